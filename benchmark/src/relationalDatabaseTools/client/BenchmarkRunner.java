@@ -0,0 +1,36 @@
+package relationalDatabaseTools.client;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs {@link StageBenchmarks} with the GC profiler, which adds the allocation
+ * rate (bytes per second and per operation) of every stage to the throughput and
+ * latency percentiles.
+ *
+ * The benchmark module (benchmark/pom.xml) compiles this folder together with
+ * src and packages the benchmarks into target/benchmarks.jar:
+ * <pre>
+ * mvn -f benchmark/pom.xml package
+ * java -jar benchmark/target/benchmarks.jar -prof gc
+ * </pre>
+ * runs the whole sweep with the standard JMH command line. This class does
+ * the same from an IDE, optionally with a regular expression that selects
+ * benchmarks, such as "StageBenchmarks.keys".
+ * @author Raymond Cho
+ *
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws RunnerException {
+		String include = args.length > 0 ? args[0] : StageBenchmarks.class.getSimpleName();
+		Options options = new OptionsBuilder()
+				.include(include)
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
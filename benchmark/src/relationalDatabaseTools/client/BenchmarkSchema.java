@@ -0,0 +1,173 @@
+package relationalDatabaseTools.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Shapes of generated relations for the stage benchmarks. Each shape produces a
+ * schema string and a functional dependency string in the syntax accepted by
+ * {@link Relation#Relation(String)} and {@link Relation#addFunctionalDependencies(String)}.
+ * Attribute names are letter-only (A, B, ..., Z, BA, BB, ...) since schemas may
+ * only contain letters. Duplicate dependencies are rejected by the parser, so
+ * every shape draws distinct dependencies and stops early if it runs out of them.
+ * @author Raymond Cho
+ *
+ */
+public enum BenchmarkSchema {
+	/**
+	 * A -> B; B -> C; ... so the first attribute is the only key; further
+	 * dependencies only point forward along the chain.
+	 */
+	CHAIN {
+		@Override
+		protected String generateFDs(final List<String> names, final int fdCount, final int lhsSize, final Random random) {
+			LinkedHashSet<String> fds = new LinkedHashSet<>();
+			for (int i = 0; i + 1 < names.size() && fds.size() < fdCount; i++) {
+				fds.add(names.get(i) + "->" + names.get(i + 1));
+			}
+			for (int attempt = 0; fds.size() < fdCount && attempt < fdCount * MAX_ATTEMPTS_PER_FD; attempt++) {
+				int right = 1 + random.nextInt(names.size() - 1);
+				List<String> left = pick(names.subList(0, right), Math.min(lhsSize, right), random);
+				fds.add(toFD(left, names.get(right)));
+			}
+			return joinFDs(fds);
+		}
+	},
+	/**
+	 * The first attribute determines every other attribute; further dependencies
+	 * are between the other attributes only.
+	 */
+	STAR {
+		@Override
+		protected String generateFDs(final List<String> names, final int fdCount, final int lhsSize, final Random random) {
+			LinkedHashSet<String> fds = new LinkedHashSet<>();
+			for (int i = 1; i < names.size() && fds.size() < fdCount; i++) {
+				fds.add(names.get(0) + "->" + names.get(i));
+			}
+			List<String> leaves = names.subList(1, names.size());
+			for (int attempt = 0; fds.size() < fdCount && leaves.size() > 1 && attempt < fdCount * MAX_ATTEMPTS_PER_FD; attempt++) {
+				fds.add(randomFD(leaves, Math.min(lhsSize, leaves.size() - 1), random));
+			}
+			return joinFDs(fds);
+		}
+	},
+	/**
+	 * Dependencies with left-hand sides of exactly lhsSize random attributes and
+	 * one random right-hand side attribute.
+	 */
+	RANDOM_K_LHS {
+		@Override
+		protected String generateFDs(final List<String> names, final int fdCount, final int lhsSize, final Random random) {
+			LinkedHashSet<String> fds = new LinkedHashSet<>();
+			for (int attempt = 0; fds.size() < fdCount && attempt < fdCount * MAX_ATTEMPTS_PER_FD; attempt++) {
+				fds.add(randomFD(names, Math.min(lhsSize, names.size() - 1), random));
+			}
+			return joinFDs(fds);
+		}
+	},
+	/**
+	 * The textbook relations used while developing the tool, regardless of the
+	 * requested attribute and dependency counts.
+	 */
+	TEXTBOOK {
+		@Override
+		public String generateSchema(final int attributeCount) {
+			return "R(TITLE, YEAR, STUDIONAME, PRESIDENT, PRESADDR, LENGTH, GENRE)";
+		}
+
+		@Override
+		public String generateFDs(final int attributeCount, final int fdCount, final int lhsSize, final long seed) {
+			return "TITLE, YEAR -> STUDIONAME, LENGTH, GENRE; STUDIONAME -> PRESIDENT; PRESIDENT -> PRESADDR";
+		}
+
+		@Override
+		protected String generateFDs(final List<String> names, final int fdCount, final int lhsSize, final Random random) {
+			throw new UnsupportedOperationException();
+		}
+	};
+
+	private static final int MAX_ATTEMPTS_PER_FD = 20;
+
+	/**
+	 * @param attributeCount
+	 * @return Schema of a relation R with the given number of attributes.
+	 */
+	public String generateSchema(final int attributeCount) {
+		return "R(" + join(names(attributeCount)) + ")";
+	}
+
+	/**
+	 * @param attributeCount
+	 * @param fdCount
+	 *            Number of dependencies to generate (shapes may generate fewer
+	 *            when the attributes cannot hold more).
+	 * @param lhsSize
+	 *            Number of left-hand side attributes of randomly drawn dependencies.
+	 * @param seed
+	 * @return Functional dependencies of the shape; the same arguments always
+	 *         give the same dependencies.
+	 */
+	public String generateFDs(final int attributeCount, final int fdCount, final int lhsSize, final long seed) {
+		return generateFDs(names(attributeCount), fdCount, lhsSize, new Random(seed));
+	}
+
+	protected abstract String generateFDs(List<String> names, int fdCount, int lhsSize, Random random);
+
+	protected static List<String> names(final int attributeCount) {
+		List<String> names = new ArrayList<>();
+		for (int i = 0; i < attributeCount; i++) {
+			StringBuilder sb = new StringBuilder();
+			int n = i;
+			do {
+				sb.append((char) ('A' + n % 26));
+				n /= 26;
+			} while (n > 0);
+			names.add(sb.reverse().toString());
+		}
+		return names;
+	}
+
+	private static String randomFD(final List<String> names, final int lhsSize, final Random random) {
+		List<String> attributes = pick(names, lhsSize + 1, random);
+		String right = attributes.remove(attributes.size() - 1);
+		return toFD(attributes, right);
+	}
+
+	private static String toFD(final List<String> left, final String right) {
+		List<String> sorted = new ArrayList<>(left);
+		Collections.sort(sorted);
+		return join(sorted) + "->" + right;
+	}
+
+	private static List<String> pick(final List<String> names, final int count, final Random random) {
+		List<String> shuffled = new ArrayList<>(names);
+		Collections.shuffle(shuffled, random);
+		return new ArrayList<>(shuffled.subList(0, count));
+	}
+
+	private static String join(final List<String> names) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < names.size(); i++) {
+			if (i > 0) {
+				sb.append(",");
+			}
+			sb.append(names.get(i));
+		}
+		return sb.toString();
+	}
+
+	private static String joinFDs(final Collection<String> fds) {
+		StringBuilder sb = new StringBuilder();
+		for (String fd : fds) {
+			if (sb.length() > 0) {
+				sb.append(";");
+			}
+			sb.append(fd);
+		}
+		return sb.toString();
+	}
+}
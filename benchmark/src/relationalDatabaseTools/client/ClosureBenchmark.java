@@ -0,0 +1,86 @@
+package relationalDatabaseTools.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the closure backends on randomly generated functional dependency
+ * sets with a large number of dependencies. For each size, every backend
+ * indexes the same dependencies and answers the same closure queries; the
+ * printed checksum (total closure size) must agree between backends. Short
+ * left-hand sides make most closures saturate; long ones keep closures small,
+ * which is where the watched-literal backend touches the fewest dependencies.
+ * The stage benchmarks in {@link StageBenchmarks} use far smaller dependency
+ * sets, so this one is run on its own from the benchmark jar:
+ * <pre>
+ * java -cp benchmark/target/benchmarks.jar relationalDatabaseTools.client.ClosureBenchmark
+ * </pre>
+ * @author Raymond Cho
+ *
+ */
+public class ClosureBenchmark {
+	private static final int ATTRIBUTE_COUNT = 200;
+	private static final int[][] LEFT_SIZE_RANGES = { { 1, 4 }, { 4, 8 } };
+	private static final int QUERY_COUNT = 500;
+	private static final int QUERY_SIZE = 3;
+	private static final int FIXPOINT_FD_LIMIT = 5000;
+	private static final int[] FD_COUNTS = { 1000, 5000, 20000, 50000 };
+
+	public static void main(String[] args) {
+		ClosureBackend[] backends = { CalculateClosure.FIXPOINT, CalculateClosure.LINEAR, CalculateClosure.WATCHED_LITERALS };
+		for (int[] leftSizeRange : LEFT_SIZE_RANGES) {
+			for (int fdCount : FD_COUNTS) {
+				run(backends, fdCount, leftSizeRange[0], leftSizeRange[1]);
+			}
+		}
+	}
+
+	private static void run(final ClosureBackend[] backends, final int fdCount, final int minLeftSize, final int maxLeftSize) {
+		Random random = new Random(fdCount);
+		List<Attribute> attributes = new ArrayList<>();
+		for (int i = 0; i < ATTRIBUTE_COUNT; i++) {
+			attributes.add(new Attribute("A" + i));
+		}
+		Relation relation = new Relation("R", attributes, new ArrayList<FunctionalDependency>());
+		List<FunctionalDependency> fds = new ArrayList<>();
+		for (int i = 0; i < fdCount; i++) {
+			List<Attribute> left = pick(attributes, minLeftSize + random.nextInt(maxLeftSize - minLeftSize + 1), random);
+			List<Attribute> right = pick(attributes, 1, random);
+			fds.add(new FunctionalDependency(left, right, relation));
+		}
+		List<List<Attribute>> queries = new ArrayList<>();
+		for (int i = 0; i < QUERY_COUNT; i++) {
+			queries.add(pick(attributes, QUERY_SIZE, random));
+		}
+		System.out.println("|F| = " + fdCount + ", left-hand sides of " + minLeftSize + " to " + maxLeftSize + " attributes, "
+				+ ATTRIBUTE_COUNT + " attributes, " + QUERY_COUNT + " queries:");
+		for (ClosureBackend backend : backends) {
+			if (backend == CalculateClosure.FIXPOINT && fdCount > FIXPOINT_FD_LIMIT) {
+				System.out.println("  " + backend.getName() + ": skipped (|F| > " + FIXPOINT_FD_LIMIT + ")");
+				continue;
+			}
+			long start = System.currentTimeMillis();
+			PreparedClosure prepared = backend.prepare(fds);
+			long preparedAt = System.currentTimeMillis();
+			long checksum = 0;
+			for (List<Attribute> query : queries) {
+				checksum += prepared.calculateClosureOf(query).getClosure().size();
+			}
+			long end = System.currentTimeMillis();
+			System.out.println("  " + backend.getName() + ": prepare " + (preparedAt - start) + " ms, queries "
+					+ (end - preparedAt) + " ms, checksum " + checksum);
+		}
+	}
+
+	private static List<Attribute> pick(final List<Attribute> attributes, final int count, final Random random) {
+		List<Attribute> result = new ArrayList<>();
+		while (result.size() < count) {
+			Attribute a = attributes.get(random.nextInt(attributes.size()));
+			if (!result.contains(a)) {
+				result.add(a);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,173 @@
+package relationalDatabaseTools.client;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Reads the report of a GWT compile with -compileReport and checks that the
+ * code behind the split point of {@link DependencyReport} stays out of the
+ * initial download. For every permutation it prints the JavaScript bytes of
+ * each fragment (fragment 0 is the initial download, the last one the
+ * leftovers loaded with the first split point) and the gzipped size of the
+ * initial and split point scripts, then the fragments in which each of the
+ * given classes has code. It exits with status 1 if any of them has code in
+ * the initial fragment.
+ * <pre>
+ * java relationalDatabaseTools.client.CompileReport extra/relationaldatabasetools war/relationaldatabasetools
+ *     MinimalFDCover,DetermineNormalForms,...
+ * </pre>
+ * The benchmark module's split-report profile compiles the application and
+ * runs this check (see benchmark/pom.xml).
+ * @author Raymond Cho
+ *
+ */
+public class CompileReport {
+	private static final String PACKAGE = "relationalDatabaseTools.client.";
+
+	public static void main(String[] args) throws Exception {
+		if (args.length != 3) {
+			System.err.println("Usage: CompileReport extraDir warDir deferredClasses");
+			System.exit(2);
+		}
+		File extra = new File(args[0]);
+		File war = new File(args[1]);
+		String[] deferred = args[2].split(",");
+		Map<Integer, String> strongNames = readStrongNames(new File(extra, "symbolMaps"));
+		if (strongNames.isEmpty()) {
+			System.err.println("No symbol maps in " + extra + "; compile with -compileReport first.");
+			System.exit(2);
+		}
+		List<String> leaks = new ArrayList<>();
+		for (Map.Entry<Integer, String> permutation : strongNames.entrySet()) {
+			Sizes sizes = readSizes(new File(extra, "soycReport/stories" + permutation.getKey() + ".xml.gz"));
+			String strongName = permutation.getValue();
+			System.out.println("Permutation " + permutation.getKey() + " (" + strongName + ")");
+			System.out.println("  fragment bytes: " + sizes.fragments);
+			System.out.println("  initial download: " + gzippedSize(new File(war, strongName + ".cache.js"))
+					+ " bytes gzipped, split point 1: " + gzippedSize(new File(war, "deferredjs/" + strongName + "/1.cache.js"))
+					+ " bytes gzipped");
+			for (String name : deferred) {
+				Map<Integer, Long> fragments = sizes.classFragments(PACKAGE + name.trim());
+				System.out.println("  " + name.trim() + ": " + fragments);
+				if (fragments.containsKey(0)) {
+					leaks.add(name.trim() + " (permutation " + permutation.getKey() + ", " + fragments.get(0) + " bytes)");
+				}
+			}
+		}
+		if (!leaks.isEmpty()) {
+			System.err.println("Code that belongs behind the split point is in the initial fragment: " + leaks);
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Bytes of JavaScript per fragment, and per class and fragment.
+	 */
+	private static class Sizes extends DefaultHandler {
+		private final Map<Integer, Long> fragments = new TreeMap<>();
+		private final Map<String, Map<Integer, Long>> classes = new TreeMap<>();
+		private int fragment = -1;
+
+		@Override
+		public void startElement(final String uri, final String localName, final String qName, final Attributes attributes) {
+			if (qName.equals("sizemap")) {
+				fragment = Integer.parseInt(attributes.getValue("fragment"));
+				fragments.put(fragment, Long.parseLong(attributes.getValue("size")));
+			} else if (qName.equals("size") && fragment >= 0) {
+				String type = attributes.getValue("type");
+				if (type.equals("type") || type.equals("method") || type.equals("field")) {
+					// Members are named Class::member; nested classes Class$Nested.
+					String ref = attributes.getValue("ref");
+					int end = ref.indexOf("::");
+					String className = end < 0 ? ref : ref.substring(0, end);
+					Map<Integer, Long> sizes = classes.get(className);
+					if (sizes == null) {
+						sizes = new TreeMap<>();
+						classes.put(className, sizes);
+					}
+					Long size = sizes.get(fragment);
+					sizes.put(fragment, (size == null ? 0 : size) + Long.parseLong(attributes.getValue("size")));
+				}
+			}
+		}
+
+		/**
+		 * @return Bytes per fragment of the class and its nested classes.
+		 */
+		private Map<Integer, Long> classFragments(final String className) {
+			Map<Integer, Long> result = new TreeMap<>();
+			for (Map.Entry<String, Map<Integer, Long>> c : classes.entrySet()) {
+				if (c.getKey().equals(className) || c.getKey().startsWith(className + "$")) {
+					for (Map.Entry<Integer, Long> f : c.getValue().entrySet()) {
+						Long size = result.get(f.getKey());
+						result.put(f.getKey(), (size == null ? 0 : size) + f.getValue());
+					}
+				}
+			}
+			return result;
+		}
+	}
+
+	private static Sizes readSizes(final File stories) throws Exception {
+		Sizes sizes = new Sizes();
+		try (InputStream in = new GZIPInputStream(new FileInputStream(stories))) {
+			SAXParserFactory.newInstance().newSAXParser().parse(in, sizes);
+		}
+		return sizes;
+	}
+
+	/**
+	 * @return Strong name of each permutation, from the first line of its
+	 *         symbol map, such as "# { 0 }".
+	 */
+	private static Map<Integer, String> readStrongNames(final File symbolMaps) throws IOException {
+		Map<Integer, String> result = new TreeMap<>();
+		File[] files = symbolMaps.listFiles();
+		if (files == null) {
+			return result;
+		}
+		for (File file : files) {
+			if (!file.getName().endsWith(".symbolMap")) {
+				continue;
+			}
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+				String header = reader.readLine();
+				if (header != null && header.startsWith("# {")) {
+					// Collapsed permutations share one script; the first id names it.
+					int permutation = Integer.parseInt(header.substring(3).trim().split("[^0-9]")[0]);
+					result.put(permutation, file.getName().substring(0, file.getName().length() - ".symbolMap".length()));
+				}
+			}
+		}
+		return result;
+	}
+
+	private static long gzippedSize(final File file) throws IOException {
+		if (!file.isFile()) {
+			return 0;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+			gzip.write(Files.readAllBytes(file.toPath()));
+		}
+		return bytes.size();
+	}
+}
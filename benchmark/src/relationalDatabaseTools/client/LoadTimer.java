@@ -0,0 +1,196 @@
+package relationalDatabaseTools.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import com.gargoylesoftware.htmlunit.BrowserVersion;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.WebResponse;
+import com.gargoylesoftware.htmlunit.html.DomElement;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.gargoylesoftware.htmlunit.util.FalsifyingWebConnection;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Measures the time to interactive of the compiled application: the time from
+ * requesting the host page until the entry point has added the Calculate
+ * button, that is until the initial download has been fetched, parsed and run.
+ * The page is served gzipped from a local server that adds a round trip time
+ * to every request and limits the bandwidth, and is loaded in the headless
+ * HtmlUnit browser that comes with gwt-dev (as Chrome, so the safari
+ * permutation). Requests to other hosts, such as the analytics script, get an
+ * empty response. HtmlUnit runs JavaScript far slower than a real browser, so
+ * the times are for comparing builds with each other, not absolute.
+ * <pre>
+ * java relationalDatabaseTools.client.LoadTimer hostPageDir moduleWarDir [bytesPerSecond] [rttMillis] [runs]
+ * </pre>
+ * Files are looked up in the compiled war first and then next to the host
+ * page. The defaults, 204800 bytes per second and 150 ms, are the throttling
+ * Lighthouse uses for mobile pages. Each run uses a fresh browser without a
+ * cache; the median of the runs is printed last.
+ * @author Raymond Cho
+ *
+ */
+public class LoadTimer {
+	private static final String HOST_PAGE = "RelationalDatabaseTools.html";
+	private static final String ROOT_ID = "relationalTools";
+	private static final long TIMEOUT_MILLIS = 120000;
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2 || args.length > 5) {
+			System.err.println("Usage: LoadTimer hostPageDir moduleWarDir [bytesPerSecond] [rttMillis] [runs]");
+			System.exit(2);
+		}
+		final File[] roots = { new File(args[1]), new File(args[0]) };
+		final int bytesPerSecond = args.length > 2 ? Integer.parseInt(args[2]) : 204800;
+		final int rttMillis = args.length > 3 ? Integer.parseInt(args[3]) : 150;
+		int runs = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+		final AtomicLong transferred = new AtomicLong();
+
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				try {
+					String path = exchange.getRequestURI().getPath();
+					File file = find(roots, path.equals("/") ? HOST_PAGE : path.substring(1));
+					sleep(rttMillis);
+					if (file == null) {
+						exchange.sendResponseHeaders(404, -1);
+						return;
+					}
+					byte[] body = gzip(Files.readAllBytes(file.toPath()));
+					transferred.addAndGet(body.length);
+					exchange.getResponseHeaders().add("Content-Type", contentType(file.getName()));
+					exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+					exchange.sendResponseHeaders(200, body.length);
+					OutputStream out = exchange.getResponseBody();
+					// Send in slices of 10 ms of bandwidth.
+					int slice = Math.max(1, bytesPerSecond / 100);
+					for (int i = 0; i < body.length; i += slice) {
+						int length = Math.min(slice, body.length - i);
+						out.write(body, i, length);
+						out.flush();
+						sleep(length * 1000L / bytesPerSecond);
+					}
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		ExecutorService executor = Executors.newFixedThreadPool(6);
+		server.setExecutor(executor);
+		server.start();
+		String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+		System.out.println("Loading " + url + " at " + bytesPerSecond + " bytes per second with " + rttMillis + " ms round trips");
+
+		List<Long> times = new ArrayList<>();
+		try {
+			for (int run = 0; run < runs; run++) {
+				transferred.set(0);
+				long millis = timeToInteractive(url);
+				times.add(millis);
+				System.out.println("run " + (run + 1) + ": " + millis + " ms, " + transferred.get() + " bytes transferred");
+			}
+		} finally {
+			server.stop(0);
+			executor.shutdownNow();
+		}
+		Collections.sort(times);
+		System.out.println("median time to interactive: " + times.get(times.size() / 2) + " ms");
+	}
+
+	private static long timeToInteractive(final String url) throws IOException {
+		final WebClient client = new WebClient(BrowserVersion.CHROME);
+		try {
+			client.getOptions().setThrowExceptionOnScriptError(false);
+			client.getOptions().setCssEnabled(false);
+			client.setWebConnection(new FalsifyingWebConnection(client) {
+				@Override
+				public WebResponse getResponse(final WebRequest request) throws IOException {
+					if (!request.getUrl().getHost().equals("127.0.0.1")) {
+						return createWebResponse(request, "", "application/javascript");
+					}
+					return super.getResponse(request);
+				}
+			});
+			long start = System.nanoTime();
+			HtmlPage page = client.getPage(url);
+			while (!isInteractive(page)) {
+				if (System.nanoTime() - start > TIMEOUT_MILLIS * 1000000) {
+					throw new IllegalStateException("The application did not start within " + TIMEOUT_MILLIS + " ms.");
+				}
+				client.waitForBackgroundJavaScript(5);
+			}
+			return (System.nanoTime() - start) / 1000000;
+		} finally {
+			client.closeAllWindows();
+		}
+	}
+
+	private static boolean isInteractive(final HtmlPage page) {
+		DomElement root = page.getElementById(ROOT_ID);
+		if (root == null) {
+			return false;
+		}
+		for (DomElement button : root.getElementsByTagName("button")) {
+			if (button.asText().contains("Calculate")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static File find(final File[] roots, final String path) {
+		for (File root : roots) {
+			File file = new File(root, path);
+			if (file.isFile() && !path.contains("..")) {
+				return file;
+			}
+		}
+		return null;
+	}
+
+	private static byte[] gzip(final byte[] content) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+			gzip.write(content);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static String contentType(final String name) {
+		if (name.endsWith(".js")) {
+			return "application/javascript";
+		}
+		if (name.endsWith(".css")) {
+			return "text/css";
+		}
+		if (name.endsWith(".html")) {
+			return "text/html";
+		}
+		return "application/octet-stream";
+	}
+
+	private static void sleep(final long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
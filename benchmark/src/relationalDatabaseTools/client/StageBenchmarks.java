@@ -0,0 +1,209 @@
+package relationalDatabaseTools.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the analysis stages, swept over schema shape, attribute
+ * count, dependency count and left-hand side size. Each stage benchmark starts
+ * from a freshly parsed relation on which the earlier stages have already run,
+ * so only the stage itself is measured; the full analysis is measured as well. Throughput and sampled latency
+ * (including percentiles) are reported for every stage; run through
+ * {@link BenchmarkRunner} to also get the allocation rate. The default sweep
+ * keeps every combination within a few seconds per operation, since the BCNF
+ * decomposition grows much faster than the other stages; larger sweeps can be
+ * given with JMH's -p option, such as -p attributeCount=16 -p fdCount=128.
+ * The key search and closure backend are chosen by the {@link AnalysisPlanner}
+ * unless forced, such as -p keySearch=lattice,pruned -p closureBackend=watched.
+ *
+ * The class lives in the client package (in the separate benchmark source
+ * folder) so that it can call the stages the user interface calls.
+ * @author Raymond Cho
+ *
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StageBenchmarks {
+	private static final long SEED = 42;
+
+	/**
+	 * Generated schema and dependencies of the current parameter combination.
+	 */
+	@State(Scope.Benchmark)
+	public static class Input {
+		@Param({ "CHAIN", "STAR", "RANDOM_K_LHS", "TEXTBOOK" })
+		public BenchmarkSchema shape;
+
+		@Param({ "6", "9", "12" })
+		public int attributeCount;
+
+		@Param({ "8", "16", "32" })
+		public int fdCount;
+
+		@Param({ "2" })
+		public int lhsSize;
+
+		@Param({ "auto" })
+		public String keySearch;
+
+		@Param({ "auto" })
+		public String closureBackend;
+
+		private String schema;
+		private String fds;
+
+		@Setup(Level.Trial)
+		public void generate() {
+			AnalysisPlanner.setForcedKeySearch(AnalysisPlanner.getKeySearch(keySearch));
+			AnalysisPlanner.setForcedClosureBackend(AnalysisPlanner.getBackend(closureBackend));
+			schema = shape.generateSchema(attributeCount);
+			fds = shape.generateFDs(attributeCount, fdCount, lhsSize, SEED);
+		}
+
+		protected Relation parse() {
+			Relation relation = new Relation(schema);
+			relation.addFunctionalDependencies(fds);
+			return relation;
+		}
+	}
+
+	/**
+	 * Freshly parsed relation.
+	 */
+	@State(Scope.Thread)
+	public static class Parsed {
+		protected Relation relation;
+
+		@Setup(Level.Invocation)
+		public void prepare(final Input input) {
+			relation = input.parse();
+		}
+	}
+
+	/**
+	 * Relation whose closures have been calculated but not its keys.
+	 */
+	@State(Scope.Thread)
+	public static class Closed {
+		protected Relation relation;
+		protected ClosureLattice lattice;
+
+		@Setup(Level.Invocation)
+		public void prepare(final Input input) {
+			relation = input.parse();
+			lattice = new ClosureLattice(relation);
+			lattice.getComponentClosures();
+			relation.setClosureLattice(lattice);
+		}
+	}
+
+	/**
+	 * Relation whose closures and keys have been calculated.
+	 */
+	@State(Scope.Thread)
+	public static class Keyed {
+		protected Relation relation;
+
+		@Setup(Level.Invocation)
+		public void prepare(final Input input) {
+			relation = input.parse();
+			CalculateClosure.improvedCalculateClosures(relation);
+		}
+	}
+
+	/**
+	 * Relation whose keys and minimal cover have been calculated.
+	 */
+	@State(Scope.Thread)
+	public static class Covered {
+		protected Relation relation;
+
+		@Setup(Level.Invocation)
+		public void prepare(final Input input) {
+			relation = input.parse();
+			CalculateClosure.improvedCalculateClosures(relation);
+			MinimalFDCover.determineMinimalCover(relation);
+		}
+	}
+
+	/**
+	 * Relation whose normal forms have been determined.
+	 */
+	@State(Scope.Thread)
+	public static class Classified {
+		protected Relation relation;
+
+		@Setup(Level.Invocation)
+		public void prepare(final Input input) {
+			relation = input.parse();
+			CalculateClosure.improvedCalculateClosures(relation);
+			MinimalFDCover.determineMinimalCover(relation);
+			relation.determineNormalForms();
+		}
+	}
+
+	@Benchmark
+	public long closures(final Parsed state) {
+		CalculateClosure.improvedCalculateClosures(state.relation);
+		long size = 0;
+		for (Closure c : state.relation.iterateClosures()) {
+			size += c.getClosure().size();
+		}
+		return size;
+	}
+
+	@Benchmark
+	public Relation keys(final Closed state) {
+		CalculateKeys.calculateKeys(state.relation, state.lattice);
+		return state.relation;
+	}
+
+	@Benchmark
+	public Relation minimalCover(final Keyed state) {
+		MinimalFDCover.determineMinimalCover(state.relation);
+		return state.relation;
+	}
+
+	@Benchmark
+	public Relation derivedFDs(final Keyed state) {
+		CalculateFDs.calculateDerivedFDs(state.relation);
+		return state.relation;
+	}
+
+	@Benchmark
+	public Relation normalForms(final Covered state) {
+		state.relation.determineNormalForms();
+		return state.relation;
+	}
+
+	@Benchmark
+	public CalculateBCNFDecomposition decomposition(final Classified state) {
+		Calculate3NFDecomposition threeNF = new Calculate3NFDecomposition(state.relation);
+		threeNF.decompose();
+		CalculateBCNFDecomposition bcnf = new CalculateBCNFDecomposition(threeNF);
+		bcnf.decompose();
+		return bcnf;
+	}
+
+	@Benchmark
+	public RelationAnalysis fullAnalysis(final Input input) {
+		RelationAnalysis analysis = new RelationAnalysis(input.schema, input.fds, "");
+		analysis.run();
+		return analysis;
+	}
+}
@@ -0,0 +1,66 @@
+package relationalDatabaseTools.batch;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import relationalDatabaseTools.client.ArmstrongRelation;
+import relationalDatabaseTools.client.ClosedSets;
+import relationalDatabaseTools.client.Relation;
+
+/**
+ * Command line driver that writes an {@link ArmstrongRelation} of one relation
+ * as CSV: a sample table that satisfies exactly the functional dependencies
+ * that follow from the given ones, for example to test data pipelines. The
+ * schema and the functional dependencies use the syntax of a
+ * {@link SchemaRecord}. Rows are written as they are built.
+ * <pre>
+ * java relationalDatabaseTools.batch.ArmstrongTable "R(A,B,C,D)" "A -> B; B,C -> D" [output|-]
+ * </pre>
+ * @author Raymond Cho
+ *
+ */
+public class ArmstrongTable {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2 || args.length > 3) {
+			System.err.println("Usage: ArmstrongTable schema fds [output|-]");
+			System.exit(2);
+		}
+		Relation relation = new Relation(args[0].toUpperCase());
+		relation.addFunctionalDependencies(args[1].toUpperCase());
+		if (relation.getAttributes().isEmpty() || !relation.hasPassedIntegrityChecks()) {
+			System.err.println(relation.getAttributes().isEmpty() ? "Input relation schema has no attributes."
+					: relation.getIntegrityCheckErrorMsg());
+			System.exit(2);
+		}
+		if (!ClosedSets.supports(relation)) {
+			System.err.println("Relation " + relation.getName() + " has more than " + ClosedSets.MAX_ATTRIBUTES + " attributes.");
+			System.exit(2);
+		}
+		String output = args.length > 2 ? args[2] : "-";
+		Writer out = !output.equals("-")
+				? new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8)
+				: new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+		try (BufferedWriter writer = new BufferedWriter(out)) {
+			write(new ArmstrongRelation(relation), writer);
+		}
+	}
+
+	/**
+	 * Writes the header and the rows, one per line.
+	 * @param table
+	 * @param writer
+	 * @throws IOException
+	 */
+	public static void write(final ArmstrongRelation table, final Writer writer) throws IOException {
+		for (String line : table) {
+			writer.write(line);
+			writer.write('\n');
+		}
+		writer.flush();
+	}
+}
@@ -0,0 +1,358 @@
+package relationalDatabaseTools.batch;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import relationalDatabaseTools.client.AnalysisBudget;
+import relationalDatabaseTools.client.AnalysisExecutor;
+import relationalDatabaseTools.client.AnalysisMetrics;
+import relationalDatabaseTools.client.AnalysisPlan;
+import relationalDatabaseTools.client.AnalysisPlanner;
+import relationalDatabaseTools.client.RelationAnalysis;
+
+/**
+ * Headless command line driver that analyzes a catalog of relation schemas.
+ * Reads one {@link SchemaRecord} per line from a file or standard input, runs the
+ * full analysis on it and writes one JSON object per line (JSON Lines) to a file
+ * or standard output. Each result is written as soon as it is ready and nothing
+ * is kept from earlier records, so inputs of any size run in constant memory.
+ * <pre>
+ * java relationalDatabaseTools.batch.BatchAnalysis [-threads N] [-metrics file] [-timeout MS]
+ *     [-maxClosures N] [-maxDepth N] [-closureBackend fixpoint|linear|watched]
+ *     [-keySearch exhaustive|lattice|pruned] [-decomposition both|from3NF] [input|-] [output|-]
+ * </pre>
+ * With more than one thread (by default one per available processor), records
+ * are analyzed concurrently by a {@link BatchScheduler}; the output is the same.
+ * With -metrics, the {@link AnalysisMetrics} of all records are added up and
+ * written to the given file as JSON at the end of the run.
+ *
+ * -timeout, -maxClosures and -maxDepth give each record an {@link AnalysisBudget}
+ * (time limit in milliseconds, closures, BCNF decomposition recursion depth).
+ * The closures include the subsets that closure walks visit without calculating
+ * their closures, such as the superkey walk.
+ * A record that runs out of budget keeps the results of the stages that finished
+ * and reports the stage that was cut short under "incomplete". When the process
+ * is interrupted, the analyses in flight are cancelled the same way, no further
+ * records are read and the results so far are written out before it exits.
+ *
+ * Each result reports the {@link AnalysisPlan} of its relation. -closureBackend,
+ * -keySearch and -decomposition force the {@link AnalysisPlanner}'s choices,
+ * for example to compare the strategies on the same catalog. The BCNF
+ * decomposition of the input relation reports "skipped" when it ran out of its
+ * closure limit or -decomposition from3NF left it out, so that its empty list
+ * of relations is not mistaken for a relation that is already in BCNF.
+ * @author Raymond Cho
+ *
+ */
+public class BatchAnalysis {
+	private static final long SHUTDOWN_GRACE_MILLIS = 10000;
+
+	public static void main(String[] args) throws IOException {
+		int threads = Runtime.getRuntime().availableProcessors();
+		String metricsOutput = null;
+		long timeLimitMillis = AnalysisBudget.NO_LIMIT;
+		long maxClosures = AnalysisBudget.NO_LIMIT;
+		long maxDepth = AnalysisBudget.NO_LIMIT;
+		boolean validOptions = true;
+		int first = 0;
+		while (args.length > first + 1 && args[first].startsWith("-") && !args[first].equals("-")) {
+			String option = args[first];
+			if (option.equals("-metrics")) {
+				metricsOutput = args[first + 1];
+			} else if (option.equals("-closureBackend")) {
+				AnalysisPlanner.setForcedClosureBackend(AnalysisPlanner.getBackend(args[first + 1]));
+				validOptions &= AnalysisPlanner.getForcedClosureBackend() != null;
+			} else if (option.equals("-keySearch")) {
+				AnalysisPlanner.setForcedKeySearch(AnalysisPlanner.getKeySearch(args[first + 1]));
+				validOptions &= AnalysisPlanner.getForcedKeySearch() != null;
+			} else if (option.equals("-decomposition")) {
+				AnalysisPlanner.setForcedDecomposition(AnalysisPlanner.getDecomposition(args[first + 1]));
+				validOptions &= AnalysisPlanner.getForcedDecomposition() != null;
+			} else {
+				long value;
+				try {
+					value = Long.parseLong(args[first + 1]);
+				} catch (NumberFormatException e) {
+					value = -1;
+				}
+				if (option.equals("-threads")) {
+					threads = value > Integer.MAX_VALUE ? -1 : (int) value;
+				} else if (option.equals("-timeout")) {
+					timeLimitMillis = value;
+				} else if (option.equals("-maxClosures")) {
+					maxClosures = value;
+				} else if (option.equals("-maxDepth")) {
+					maxDepth = value > Integer.MAX_VALUE ? -1 : value;
+				} else {
+					validOptions = false;
+				}
+			}
+			first += 2;
+		}
+		if (!validOptions || args.length - first > 2 || threads < 1 || timeLimitMillis < 0 || maxClosures < 0 || maxDepth < 0) {
+			System.err.println("Usage: BatchAnalysis [-threads N] [-metrics file] [-timeout MS] [-maxClosures N]"
+					+ " [-maxDepth N] [-closureBackend fixpoint|linear|watched] [-keySearch exhaustive|lattice|pruned]"
+					+ " [-decomposition both|from3NF] [input|-] [output|-]");
+			System.exit(2);
+		}
+		JvmMetrics.install();
+		final RecordBudgets budgets = new RecordBudgets(timeLimitMillis, maxClosures, (int) maxDepth);
+		final Thread mainThread = Thread.currentThread();
+		Thread shutdownHook = new Thread("batch-shutdown") {
+			@Override
+			public void run() {
+				budgets.cancelAll();
+				try {
+					mainThread.join(SHUTDOWN_GRACE_MILLIS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+		AnalysisMetrics total = new AnalysisMetrics();
+		String input = args.length > first ? args[first] : "-";
+		String output = args.length > first + 1 ? args[first + 1] : "-";
+		Reader in = !input.equals("-")
+				? new InputStreamReader(new FileInputStream(input), StandardCharsets.UTF_8)
+				: new InputStreamReader(System.in, StandardCharsets.UTF_8);
+		Writer out = !output.equals("-")
+				? new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8)
+				: new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+		try (BufferedReader reader = new BufferedReader(in); BufferedWriter writer = new BufferedWriter(out)) {
+			if (threads == 1) {
+				run(reader, writer, total, budgets);
+			} else {
+				BatchScheduler scheduler = new BatchScheduler(threads);
+				scheduler.setBudgets(budgets);
+				scheduler.run(reader, writer, total);
+			}
+		}
+		if (metricsOutput != null) {
+			try (Writer metricsWriter = new OutputStreamWriter(new FileOutputStream(metricsOutput), StandardCharsets.UTF_8)) {
+				metricsWriter.write(total.toJson());
+				metricsWriter.write('\n');
+			}
+		}
+	}
+
+	/**
+	 * Analyzes every record of the reader, writing one result line per record.
+	 * @param reader
+	 * @param writer
+	 * @return Number of records analyzed.
+	 * @throws IOException
+	 */
+	public static long run(final BufferedReader reader, final Writer writer) throws IOException {
+		return run(reader, writer, null);
+	}
+
+	/**
+	 * Analyzes every record of the reader, writing one result line per record.
+	 * @param reader
+	 * @param writer
+	 * @param total
+	 *            Receives the metrics of every record (may be null).
+	 * @return Number of records analyzed.
+	 * @throws IOException
+	 */
+	public static long run(final BufferedReader reader, final Writer writer, final AnalysisMetrics total) throws IOException {
+		return run(reader, writer, total, new RecordBudgets());
+	}
+
+	/**
+	 * Analyzes every record of the reader, writing one result line per record,
+	 * until the budgets are cancelled.
+	 * @param reader
+	 * @param writer
+	 * @param total
+	 *            Receives the metrics of every record (may be null).
+	 * @param budgets
+	 *            Budget of each record.
+	 * @return Number of records analyzed.
+	 * @throws IOException
+	 */
+	public static long run(final BufferedReader reader, final Writer writer, final AnalysisMetrics total,
+			final RecordBudgets budgets) throws IOException {
+		long lineNumber = 0;
+		long records = 0;
+		String line;
+		while (!budgets.isCancelled() && (line = reader.readLine()) != null) {
+			lineNumber++;
+			SchemaRecord record = SchemaRecord.parse(lineNumber, line);
+			if (record == null) {
+				continue;
+			}
+			AnalysisBudget budget = budgets.start();
+			try {
+				writer.write(analyze(record, total, budget));
+			} finally {
+				budgets.finish(budget);
+			}
+			records++;
+		}
+		writer.flush();
+		return records;
+	}
+
+	/**
+	 * @param record
+	 * @return JSON result of the record, terminated by a newline.
+	 */
+	public static String analyze(final SchemaRecord record) {
+		return analyze(record, null);
+	}
+
+	/**
+	 * @param record
+	 * @param total
+	 *            Receives the metrics of the record's analysis (may be null).
+	 * @return JSON result of the record, terminated by a newline.
+	 */
+	public static String analyze(final SchemaRecord record, final AnalysisMetrics total) {
+		return analyze(record, total, null);
+	}
+
+	/**
+	 * @param record
+	 * @param total
+	 *            Receives the metrics of the record's analysis (may be null).
+	 * @param budget
+	 *            Budget of the record's analysis (may be null for no limits).
+	 * @return JSON result of the record, terminated by a newline.
+	 */
+	public static String analyze(final SchemaRecord record, final AnalysisMetrics total, final AnalysisBudget budget) {
+		return analyze(record, total, budget, null);
+	}
+
+	/**
+	 * @param record
+	 * @param total
+	 *            Receives the metrics of the record's analysis (may be null).
+	 * @param budget
+	 *            Budget of the record's analysis (may be null for no limits).
+	 * @param executor
+	 *            Runs the independent pieces of the record's analysis (may be
+	 *            null to run them one after another).
+	 * @return JSON result of the record, terminated by a newline.
+	 */
+	public static String analyze(final SchemaRecord record, final AnalysisMetrics total, final AnalysisBudget budget,
+			final AnalysisExecutor executor) {
+		StringWriter result = new StringWriter();
+		try {
+			RelationAnalysis analysis = new RelationAnalysis(record.getSchema(), record.getFDs(), record.getMVDs());
+			analysis.setBudget(budget);
+			analysis.setExecutor(executor);
+			boolean ran;
+			try {
+				ran = analysis.run();
+			} finally {
+				if (total != null) {
+					total.add(analysis.getMetrics());
+				}
+			}
+			JsonWriter json = new JsonWriter(result);
+			json.beginObject();
+			json.name("line").value(record.getLineNumber());
+			if (!ran) {
+				writeInput(json, record);
+				json.name("error").value(analysis.getErrorMsg());
+			} else {
+				writeAnalysis(json, analysis);
+			}
+			json.endObject();
+			json.endLine();
+		} catch (RuntimeException e) {
+			return error(record, e);
+		} catch (IOException e) {
+			return error(record, e);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * @param record
+	 * @param failure
+	 * @return JSON result reporting that the analysis of the record failed, terminated by a newline.
+	 */
+	public static String error(final SchemaRecord record, final Throwable failure) {
+		StringWriter result = new StringWriter();
+		JsonWriter json = new JsonWriter(result);
+		try {
+			json.beginObject();
+			json.name("line").value(record.getLineNumber());
+			writeInput(json, record);
+			json.name("error").value("Analysis failed: " + failure);
+			json.endObject();
+			json.endLine();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return result.toString();
+	}
+
+	private static void writeInput(final JsonWriter json, final SchemaRecord record) throws IOException {
+		json.name("input").beginObject();
+		json.name("schema").value(record.getSchema());
+		json.name("fds").value(record.getFDs());
+		json.name("mvds").value(record.getMVDs());
+		json.endObject();
+	}
+
+	private static void writeAnalysis(final JsonWriter json, final RelationAnalysis analysis) throws IOException {
+		json.name("relation").value(analysis.getRelationName());
+		json.name("attributes").value(analysis.getAttributeNames());
+		json.name("fds").value(analysis.getInputFDNames());
+		json.name("mvds").value(analysis.getMVDNames());
+		json.name("warnings").value(analysis.getWarnings());
+		AnalysisPlan plan = analysis.getPlan();
+		if (plan != null) {
+			json.name("plan").beginObject();
+			json.name("closureBackend").value(plan.getClosureBackend().getName());
+			json.name("keySearch").value(plan.getKeySearch().getName());
+			json.name("decomposition").value(plan.getDecomposition().getName());
+			json.name("forced").value(plan.isForced());
+			json.endObject();
+		}
+		if (!analysis.isComplete()) {
+			json.name("incomplete").beginObject();
+			json.name("stage").value(analysis.getIncompleteStage());
+			json.name("reason").value(analysis.getIncompleteReason());
+			json.endObject();
+		}
+		json.name("minimumKeys").value(analysis.getMinimumKeys());
+		json.name("superKeyCount").value(analysis.getSuperKeyCount());
+		json.name("primeAttributes").value(analysis.getPrimeAttributeNames());
+		json.name("nonPrimeAttributes").value(analysis.getNonPrimeAttributeNames());
+		json.name("minimalCover").value(analysis.getMinimalCover());
+		json.name("normalForms");
+		if (analysis.hasNormalForms()) {
+			json.beginObject();
+			json.name("2NF").value(analysis.isIn2NF());
+			json.name("3NF").value(analysis.isIn3NF());
+			json.name("BCNF").value(analysis.isInBCNF());
+			json.name("4NF").value(analysis.isIn4NF());
+			json.name("messages").value(analysis.getNormalFormMsgs());
+			json.endObject();
+		} else {
+			json.value((String) null);
+		}
+		json.name("decomposition3NF").value(analysis.getThreeNFRelations());
+		json.name("decompositionBCNF").beginObject();
+		json.name("skipped").value(analysis.isBCNFDecompositionSkipped());
+		json.name("relations").value(analysis.getBCNFRelations());
+		json.name("lostFDs").value(analysis.getBCNFLostFDs());
+		json.name("from3NF").value(analysis.getBCNFFrom3NFRelations());
+		json.name("from3NFLostFDs").value(analysis.getBCNFFrom3NFLostFDs());
+		json.endObject();
+	}
+}
@@ -0,0 +1,311 @@
+package relationalDatabaseTools.batch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+
+import relationalDatabaseTools.client.AnalysisBudget;
+import relationalDatabaseTools.client.AnalysisExecutor;
+import relationalDatabaseTools.client.AnalysisMetrics;
+
+/**
+ * Analyzes the records of a batch concurrently on a work-stealing
+ * {@link ForkJoinPool}, writing results in input order.
+ *
+ * The reader keeps at most a window of records in flight: it blocks once the
+ * window is full until the oldest result has been written (backpressure), so
+ * memory stays bounded however large the input is. Records are scheduled in
+ * chunks of half a window, most expensive first by estimated attribute count,
+ * since the cost of an analysis grows exponentially with it. A separate writer
+ * thread waits for results in input order and writes each as soon as it and all
+ * earlier results are done, so the output is the same as a sequential run.
+ * A record whose analysis fails, even with a stack overflow or by running out
+ * of memory, produces an error result instead of ending the run. If the writer
+ * itself fails, the reader stops and the run throws its failure. Each record's
+ * {@link AnalysisMetrics} are added to the run's total by the writer thread.
+ * Each record's analysis is given an {@link AnalysisExecutor} that forks its
+ * independent components into the same pool, so no global state is changed
+ * and several schedulers can run side by side.
+ * Each record's budget starts when its analysis does, and once the
+ * {@link RecordBudgets} are cancelled no further records are read.
+ * @author Raymond Cho
+ *
+ */
+public class BatchScheduler {
+	private static final int RECORDS_IN_FLIGHT_PER_THREAD = 16;
+
+	private final int threads;
+	private final int window;
+	private RecordBudgets budgets = new RecordBudgets();
+
+	public BatchScheduler(final int threads) {
+		this(threads, threads * RECORDS_IN_FLIGHT_PER_THREAD);
+	}
+
+	/**
+	 * @param threads
+	 *            Number of worker threads.
+	 * @param window
+	 *            Maximum number of records read but not yet written, at least 2.
+	 */
+	public BatchScheduler(final int threads, final int window) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be at least 1.");
+		}
+		if (window < 2) {
+			throw new IllegalArgumentException("Window must hold at least 2 records.");
+		}
+		this.threads = threads;
+		this.window = window;
+	}
+
+	public RecordBudgets getBudgets() {
+		return budgets;
+	}
+
+	/**
+	 * @param budgets
+	 *            Budget of each record of the next run.
+	 */
+	public void setBudgets(final RecordBudgets budgets) {
+		if (budgets == null) {
+			throw new IllegalArgumentException("Input record budgets is null.");
+		}
+		this.budgets = budgets;
+	}
+
+	/**
+	 * Analyzes every record of the reader, writing one result line per record in
+	 * input order.
+	 * @param reader
+	 * @param writer
+	 * @return Number of records analyzed.
+	 * @throws IOException
+	 *             If reading the input or writing a result fails.
+	 */
+	public long run(final BufferedReader reader, final Writer writer) throws IOException {
+		return run(reader, writer, null);
+	}
+
+	/**
+	 * Analyzes every record of the reader, writing one result line per record in
+	 * input order.
+	 * @param reader
+	 * @param writer
+	 * @param total
+	 *            Receives the metrics of every record (may be null).
+	 * @return Number of records analyzed.
+	 * @throws IOException
+	 *             If reading the input or writing a result fails.
+	 */
+	public long run(final BufferedReader reader, final Writer writer, final AnalysisMetrics total) throws IOException {
+		JvmMetrics.install();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		Semaphore inFlight = new Semaphore(window);
+		ResultWriter resultWriter = new ResultWriter(writer, inFlight, window, total);
+		resultWriter.start();
+		long records = 0;
+		try {
+			int chunkSize = window / 2;
+			List<AnalysisTask> chunk = new ArrayList<>();
+			long lineNumber = 0;
+			String line;
+			while (resultWriter.getFailure() == null && !budgets.isCancelled() && (line = reader.readLine()) != null) {
+				lineNumber++;
+				SchemaRecord record = SchemaRecord.parse(lineNumber, line);
+				if (record == null) {
+					continue;
+				}
+				inFlight.acquireUninterruptibly();
+				chunk.add(new AnalysisTask(record, budgets));
+				records++;
+				if (chunk.size() == chunkSize) {
+					schedule(pool, chunk, resultWriter);
+					chunk = new ArrayList<>();
+				}
+			}
+			schedule(pool, chunk, resultWriter);
+		} finally {
+			resultWriter.finish();
+			pool.shutdown();
+		}
+		if (resultWriter.getFailure() != null) {
+			throw resultWriter.getFailure();
+		}
+		return records;
+	}
+
+	/**
+	 * Submits the chunk's tasks from most to least expensive and hands them to
+	 * the writer in input order.
+	 */
+	private static void schedule(final ForkJoinPool pool, final List<AnalysisTask> chunk, final ResultWriter resultWriter) {
+		List<AnalysisTask> byCost = new ArrayList<>(chunk);
+		Collections.sort(byCost, new Comparator<AnalysisTask>() {
+			@Override
+			public int compare(final AnalysisTask t1, final AnalysisTask t2) {
+				return Integer.compare(t2.cost, t1.cost);
+			}
+		});
+		for (AnalysisTask task : byCost) {
+			pool.execute(task);
+		}
+		for (AnalysisTask task : chunk) {
+			resultWriter.add(task);
+		}
+	}
+
+	private static class AnalysisTask extends RecursiveTask<String> {
+		private static final long serialVersionUID = 1L;
+		private static final AnalysisExecutor EXECUTOR = new ForkJoinAnalysisExecutor();
+
+		private final SchemaRecord record;
+		private final int cost;
+		private final AnalysisMetrics metrics;
+		private final RecordBudgets budgets;
+
+		private AnalysisTask(final SchemaRecord record, final RecordBudgets budgets) {
+			this.record = record;
+			this.cost = record == null ? 0 : record.estimateAttributeCount();
+			this.metrics = new AnalysisMetrics();
+			this.budgets = budgets;
+		}
+
+		@Override
+		protected String compute() {
+			AnalysisBudget budget = budgets.start();
+			try {
+				return BatchAnalysis.analyze(record, metrics, budget, EXECUTOR);
+			} catch (Throwable e) {
+				// Also errors such as a stack overflow or running out of memory on one record.
+				return BatchAnalysis.error(record, e);
+			} finally {
+				budgets.finish(budget);
+			}
+		}
+	}
+
+	/**
+	 * Writes finished results in input order and frees their place in the window.
+	 * Every result frees its place even if it cannot be written, and if the
+	 * writer stops early it frees the whole window so the reader can see the
+	 * failure instead of waiting for a place.
+	 */
+	private static class ResultWriter extends Thread {
+		private static final AnalysisTask END = new AnalysisTask(null, null);
+
+		private final Writer writer;
+		private final Semaphore inFlight;
+		private final int window;
+		private final AnalysisMetrics total;
+		private final BlockingQueue<AnalysisTask> pending;
+		private volatile IOException failure;
+
+		private ResultWriter(final Writer writer, final Semaphore inFlight, final int window, final AnalysisMetrics total) {
+			super("batch-result-writer");
+			this.writer = writer;
+			this.inFlight = inFlight;
+			this.window = window;
+			this.total = total;
+			this.pending = new LinkedBlockingQueue<>();
+		}
+
+		private void add(final AnalysisTask task) {
+			pending.add(task);
+		}
+
+		private IOException getFailure() {
+			return failure;
+		}
+
+		/**
+		 * Waits until every added task has been written.
+		 */
+		private void finish() {
+			pending.add(END);
+			boolean interrupted = false;
+			while (isAlive()) {
+				try {
+					join();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				writeResults();
+			} catch (Throwable e) {
+				if (failure == null) {
+					failure = new IOException("Writing the results failed.", e);
+				}
+			} finally {
+				if (failure != null) {
+					inFlight.release(window);
+				}
+			}
+		}
+
+		private void writeResults() {
+			while (true) {
+				AnalysisTask task;
+				try {
+					task = pending.take();
+				} catch (InterruptedException e) {
+					continue;
+				}
+				if (task == END) {
+					break;
+				}
+				try {
+					write(task);
+				} finally {
+					inFlight.release();
+				}
+			}
+			if (failure == null) {
+				try {
+					writer.flush();
+				} catch (IOException e) {
+					failure = e;
+				}
+			}
+		}
+
+		private void write(final AnalysisTask task) {
+			String result;
+			try {
+				result = task.join();
+			} catch (Throwable e) {
+				result = BatchAnalysis.error(task.record, e);
+			}
+			if (total != null) {
+				total.add(task.metrics);
+			}
+			if (failure == null) {
+				try {
+					writer.write(result);
+					if (pending.isEmpty() || !pending.peek().isDone()) {
+						writer.flush();
+					}
+				} catch (IOException e) {
+					failure = e;
+				}
+			}
+		}
+	}
+}
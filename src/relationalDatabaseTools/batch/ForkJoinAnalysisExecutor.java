@@ -0,0 +1,52 @@
+package relationalDatabaseTools.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+
+import relationalDatabaseTools.client.AnalysisExecutor;
+import relationalDatabaseTools.client.AnalysisMetrics;
+
+/**
+ * Runs the independent pieces of one relation's analysis as fork/join tasks.
+ * When called from a worker of a {@link java.util.concurrent.ForkJoinPool}, such
+ * as a relation analysis scheduled by {@link BatchScheduler}, the pieces are
+ * forked into the same pool, where idle workers steal them. Called from any
+ * other thread, the pieces run one after another on the caller. Each forked
+ * piece records its {@link AnalysisMetrics} counts in a fork of the caller's
+ * registry, which are added to the caller's registry once all pieces are done.
+ * The executor holds no state, so one instance serves any number of analyses
+ * and pools.
+ * @author Raymond Cho
+ *
+ */
+public class ForkJoinAnalysisExecutor implements AnalysisExecutor {
+
+	@Override
+	public void runAll(final List<Runnable> tasks) {
+		if (tasks.size() < 2 || !ForkJoinTask.inForkJoinPool()) {
+			AnalysisExecutor.SEQUENTIAL.runAll(tasks);
+			return;
+		}
+		AnalysisMetrics metrics = AnalysisMetrics.current();
+		List<AnalysisMetrics> forks = new ArrayList<>();
+		List<ForkJoinTask<?>> forkJoinTasks = new ArrayList<>();
+		for (final Runnable task : tasks) {
+			final AnalysisMetrics fork = metrics.fork();
+			forks.add(fork);
+			forkJoinTasks.add(ForkJoinTask.adapt(new Runnable() {
+				@Override
+				public void run() {
+					fork.runForked(task);
+				}
+			}));
+		}
+		try {
+			ForkJoinTask.invokeAll(forkJoinTasks);
+		} finally {
+			for (AnalysisMetrics fork : forks) {
+				metrics.join(fork);
+			}
+		}
+	}
+}
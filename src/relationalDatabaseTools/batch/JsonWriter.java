@@ -0,0 +1,138 @@
+package relationalDatabaseTools.batch;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Minimal streaming JSON writer: values are written straight to the underlying
+ * writer as they are added, so no document is built in memory.
+ * @author Raymond Cho
+ *
+ */
+public class JsonWriter {
+	private final Writer out;
+	private boolean needsComma;
+
+	public JsonWriter(final Writer out) {
+		this.out = out;
+		this.needsComma = false;
+	}
+
+	public JsonWriter beginObject() throws IOException {
+		separate();
+		out.write('{');
+		needsComma = false;
+		return this;
+	}
+
+	public JsonWriter endObject() throws IOException {
+		out.write('}');
+		needsComma = true;
+		return this;
+	}
+
+	public JsonWriter beginArray() throws IOException {
+		separate();
+		out.write('[');
+		needsComma = false;
+		return this;
+	}
+
+	public JsonWriter endArray() throws IOException {
+		out.write(']');
+		needsComma = true;
+		return this;
+	}
+
+	public JsonWriter name(final String name) throws IOException {
+		separate();
+		writeString(name);
+		out.write(':');
+		needsComma = false;
+		return this;
+	}
+
+	public JsonWriter value(final String value) throws IOException {
+		separate();
+		if (value == null) {
+			out.write("null");
+		} else {
+			writeString(value);
+		}
+		needsComma = true;
+		return this;
+	}
+
+	public JsonWriter value(final long value) throws IOException {
+		separate();
+		out.write(Long.toString(value));
+		needsComma = true;
+		return this;
+	}
+
+	public JsonWriter value(final boolean value) throws IOException {
+		separate();
+		out.write(value ? "true" : "false");
+		needsComma = true;
+		return this;
+	}
+
+	public JsonWriter value(final List<String> values) throws IOException {
+		beginArray();
+		for (String v : values) {
+			value(v);
+		}
+		return endArray();
+	}
+
+	/**
+	 * Ends the current top-level value with a newline (JSON Lines) and starts the next one.
+	 */
+	public void endLine() throws IOException {
+		out.write('\n');
+		needsComma = false;
+	}
+
+	private void separate() throws IOException {
+		if (needsComma) {
+			out.write(',');
+		}
+	}
+
+	private void writeString(final String s) throws IOException {
+		out.write('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '"':
+				out.write("\\\"");
+				break;
+			case '\\':
+				out.write("\\\\");
+				break;
+			case '\n':
+				out.write("\\n");
+				break;
+			case '\r':
+				out.write("\\r");
+				break;
+			case '\t':
+				out.write("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					String hex = Integer.toHexString(c);
+					out.write("\\u");
+					for (int p = hex.length(); p < 4; p++) {
+						out.write('0');
+					}
+					out.write(hex);
+				} else {
+					out.write(c);
+				}
+			}
+		}
+		out.write('"');
+	}
+}
@@ -0,0 +1,102 @@
+package relationalDatabaseTools.batch;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import relationalDatabaseTools.client.AnalysisMetrics;
+
+/**
+ * Sets up {@link AnalysisMetrics} for analyses running on several JVM threads:
+ * each thread gets its own current registry, time is read with nanosecond
+ * resolution and, where the JVM supports it, allocation is read from the
+ * thread's allocated bytes counter. On JVMs with Flight Recorder, every stage
+ * is also emitted as a Flight Recorder event (see
+ * relationalDatabaseTools.jfr.JfrStageListener, which is loaded reflectively so
+ * that the batch tools still run on older JVMs).
+ * @author Raymond Cho
+ *
+ */
+public class JvmMetrics {
+	private static boolean installed = false;
+
+	private static final String FLIGHT_RECORDER_LISTENER = "relationalDatabaseTools.jfr.JfrStageListener";
+
+	/**
+	 * Installs the thread-local scope, the JVM probe and, if available, the Flight
+	 * Recorder stage listener; later calls do nothing.
+	 */
+	public static synchronized void install() {
+		if (installed) {
+			return;
+		}
+		AnalysisMetrics.setScope(new AnalysisMetrics.Scope() {
+			private final ThreadLocal<AnalysisMetrics> current = new ThreadLocal<AnalysisMetrics>() {
+				@Override
+				protected AnalysisMetrics initialValue() {
+					return new AnalysisMetrics();
+				}
+			};
+
+			@Override
+			public AnalysisMetrics get() {
+				return current.get();
+			}
+
+			@Override
+			public void set(final AnalysisMetrics metrics) {
+				current.set(metrics);
+			}
+		});
+		AnalysisMetrics.setProbe(new AnalysisMetrics.Probe() {
+			private final ThreadMXBean threads = allocationCountingThreads();
+
+			@Override
+			public long nanoTime() {
+				return System.nanoTime();
+			}
+
+			@Override
+			public long allocatedBytes() {
+				if (threads == null) {
+					return -1;
+				}
+				return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		});
+		installFlightRecorderEvents();
+		installed = true;
+	}
+
+	private static void installFlightRecorderEvents() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			Class.forName(FLIGHT_RECORDER_LISTENER).getMethod("install").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			// No Flight Recorder, or the listener was not compiled in.
+		} catch (LinkageError e) {
+			// Same as above.
+		}
+	}
+
+	/**
+	 * @return Thread bean that can count allocated bytes, or null if this JVM cannot.
+	 */
+	private static ThreadMXBean allocationCountingThreads() {
+		try {
+			ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+			if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+				return null;
+			}
+			com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+			if (!sunThreads.isThreadAllocatedMemorySupported()) {
+				return null;
+			}
+			sunThreads.setThreadAllocatedMemoryEnabled(true);
+			return threads;
+		} catch (LinkageError e) {
+			return null;
+		} catch (UnsupportedOperationException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package relationalDatabaseTools.batch;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import relationalDatabaseTools.client.AnalysisBudget;
+
+/**
+ * Hands out the {@link AnalysisBudget} of each record of a batch and keeps track
+ * of the budgets of the records being analyzed, so that a whole run can be
+ * cancelled (for example on Ctrl-C): {@link #cancelAll()} cancels every budget
+ * in flight, and every budget started afterwards is cancelled from the start.
+ * The time limit of a record counts from the start of its own analysis.
+ * @author Raymond Cho
+ *
+ */
+public class RecordBudgets {
+	private final long timeLimitMillis;
+	private final long maxClosures;
+	private final int maxRecursionDepth;
+	private final Set<AnalysisBudget> inFlight;
+	private volatile boolean cancelled;
+
+	/**
+	 * Budgets without limits, which can still be cancelled.
+	 */
+	public RecordBudgets() {
+		this(AnalysisBudget.NO_LIMIT, AnalysisBudget.NO_LIMIT, (int) AnalysisBudget.NO_LIMIT);
+	}
+
+	/**
+	 * @param timeLimitMillis
+	 *            Time limit of each record in milliseconds, or {@link AnalysisBudget#NO_LIMIT}.
+	 * @param maxClosures
+	 *            Maximum number of closures of each record, or {@link AnalysisBudget#NO_LIMIT}.
+	 * @param maxRecursionDepth
+	 *            Maximum BCNF decomposition recursion depth of each record, or {@link AnalysisBudget#NO_LIMIT}.
+	 */
+	public RecordBudgets(final long timeLimitMillis, final long maxClosures, final int maxRecursionDepth) {
+		if (timeLimitMillis < 0 || maxClosures < 0 || maxRecursionDepth < 0) {
+			throw new IllegalArgumentException("Budget limits must not be negative.");
+		}
+		this.timeLimitMillis = timeLimitMillis;
+		this.maxClosures = maxClosures;
+		this.maxRecursionDepth = maxRecursionDepth;
+		this.inFlight = Collections.newSetFromMap(new ConcurrentHashMap<AnalysisBudget, Boolean>());
+		this.cancelled = false;
+	}
+
+	/**
+	 * @return New budget for a record whose analysis starts now; pass it to
+	 *         {@link #finish(AnalysisBudget)} once the analysis is over.
+	 */
+	public AnalysisBudget start() {
+		AnalysisBudget budget = new AnalysisBudget(timeLimitMillis, maxClosures, maxRecursionDepth);
+		inFlight.add(budget);
+		if (cancelled) {
+			budget.cancel();
+		}
+		return budget;
+	}
+
+	/**
+	 * @param budget
+	 *            Budget returned by {@link #start()} whose analysis is over.
+	 */
+	public void finish(final AnalysisBudget budget) {
+		inFlight.remove(budget);
+	}
+
+	/**
+	 * Cancels the analyses in flight and every analysis started from now on.
+	 */
+	public void cancelAll() {
+		cancelled = true;
+		for (AnalysisBudget budget : inFlight) {
+			budget.cancel();
+		}
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+}
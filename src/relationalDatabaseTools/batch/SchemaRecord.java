@@ -0,0 +1,81 @@
+package relationalDatabaseTools.batch;
+
+/**
+ * One line of batch input: a relation schema, its functional dependencies and
+ * its multivalued dependencies, separated by '|'. The dependency fields use the
+ * same syntax as the user interface and may be empty or left out, for example
+ * <pre>
+ * R(A,B,C,D) | A -> B; B,C -> D | A -> C
+ * S(X,Y)
+ * </pre>
+ * Blank lines and lines starting with '#' are not records.
+ * @author Raymond Cho
+ *
+ */
+public class SchemaRecord {
+	public static final char FIELD_SEPARATOR = '|';
+
+	private final long lineNumber;
+	private final String schema;
+	private final String fds;
+	private final String mvds;
+
+	public SchemaRecord(final long lineNumber, final String schema, final String fds, final String mvds) {
+		this.lineNumber = lineNumber;
+		this.schema = schema;
+		this.fds = fds;
+		this.mvds = mvds;
+	}
+
+	/**
+	 * @param lineNumber
+	 * @param line
+	 * @return Record of the given input line, or null if the line is blank or a comment.
+	 */
+	public static SchemaRecord parse(final long lineNumber, final String line) {
+		String trimmed = line.trim();
+		if (trimmed.isEmpty() || trimmed.charAt(0) == '#') {
+			return null;
+		}
+		String[] fields = { "", "", "" };
+		int field = 0;
+		int start = 0;
+		for (int i = 0; i <= trimmed.length() && field < fields.length; i++) {
+			if (i == trimmed.length() || (trimmed.charAt(i) == FIELD_SEPARATOR && field < fields.length - 1)) {
+				fields[field++] = trimmed.substring(start, i).trim();
+				start = i + 1;
+			}
+		}
+		return new SchemaRecord(lineNumber, fields[0], fields[1], fields[2]);
+	}
+
+	/**
+	 * @return Number of attributes in the schema, counted from its commas without
+	 *         parsing it; used to schedule expensive records first.
+	 */
+	public int estimateAttributeCount() {
+		int count = 1;
+		for (int i = 0; i < schema.length(); i++) {
+			if (schema.charAt(i) == ',') {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	public String getSchema() {
+		return schema;
+	}
+
+	public String getFDs() {
+		return fds;
+	}
+
+	public String getMVDs() {
+		return mvds;
+	}
+}
@@ -0,0 +1,352 @@
+package relationalDatabaseTools.batch;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates synthetic relations with functional and multivalued dependencies,
+ * written as {@link SchemaRecord} lines that {@link BatchAnalysis} reads. The
+ * same seed and settings always give the same records.
+ *
+ * Each relation's attributes are split at random into key attributes and
+ * dependent attributes. The key attributes form the planted candidate keys
+ * K1, ..., Kk, which are disjoint: K1 determines every dependent attribute and
+ * each key determines the attributes of the next one (Kk those of K1), so every
+ * planted key determines the whole relation. The remaining dependencies are
+ * random, with a left-hand side size drawn from the configured distribution,
+ * and always have a dependent attribute on their left-hand side and a dependent
+ * attribute on their right-hand side. They can therefore never create another
+ * key, so the relation's minimum keys are exactly the planted keys. With the
+ * cycle probability, a random dependency X -> B is followed by B -> A for an
+ * attribute A of X, so attributes determine each other.
+ * <pre>
+ * java relationalDatabaseTools.batch.WorkloadGenerator [-seed N] [-count N] [-attributes N]
+ *     [-fds N] [-lhs W1,W2,...] [-keys N] [-keySize N] [-cycles P] [-mvds N] [output|-]
+ * </pre>
+ * @author Raymond Cho
+ *
+ */
+public class WorkloadGenerator {
+	private static final int MAX_ATTEMPTS_PER_DEPENDENCY = 20;
+
+	private final Random random;
+	private int attributeCount = 8;
+	private int fdCount = 8;
+	private int[] lhsSizeWeights = { 4, 3, 2, 1 };
+	private int keyCount = 1;
+	private int keySize = 2;
+	private double cycleProbability = 0.1;
+	private int mvdCount = 0;
+
+	public WorkloadGenerator(final long seed) {
+		this.random = new Random(seed);
+	}
+
+	public static void main(String[] args) throws IOException {
+		long seed = 1;
+		long count = 1000;
+		String output = "-";
+		WorkloadGenerator generator = null;
+		List<String[]> settings = new ArrayList<>();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (!args[i].startsWith("-") || args[i].equals("-")) {
+					if (i != args.length - 1) {
+						throw new IllegalArgumentException("Output must be the last argument.");
+					}
+					output = args[i];
+				} else if (i + 1 >= args.length) {
+					throw new IllegalArgumentException("Missing value of " + args[i] + ".");
+				} else if (args[i].equals("-seed")) {
+					seed = Long.parseLong(args[++i]);
+				} else if (args[i].equals("-count")) {
+					count = Long.parseLong(args[++i]);
+				} else {
+					settings.add(new String[] { args[i], args[++i] });
+				}
+			}
+			generator = new WorkloadGenerator(seed);
+			for (String[] setting : settings) {
+				generator.configure(setting[0], setting[1]);
+			}
+			generator.checkSettings();
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: WorkloadGenerator [-seed N] [-count N] [-attributes N] [-fds N] [-lhs W1,W2,...]"
+					+ " [-keys N] [-keySize N] [-cycles P] [-mvds N] [output|-]");
+			System.exit(2);
+		}
+		Writer out = !output.equals("-")
+				? new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8)
+				: new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+		try (BufferedWriter writer = new BufferedWriter(out)) {
+			generator.write(writer, count);
+		}
+	}
+
+	private void configure(final String option, final String value) {
+		if (option.equals("-attributes")) {
+			setAttributeCount(Integer.parseInt(value));
+		} else if (option.equals("-fds")) {
+			setFDCount(Integer.parseInt(value));
+		} else if (option.equals("-lhs")) {
+			String[] parts = value.split(",");
+			int[] weights = new int[parts.length];
+			for (int i = 0; i < parts.length; i++) {
+				weights[i] = Integer.parseInt(parts[i].trim());
+			}
+			setLhsSizeWeights(weights);
+		} else if (option.equals("-keys")) {
+			setKeyCount(Integer.parseInt(value));
+		} else if (option.equals("-keySize")) {
+			setKeySize(Integer.parseInt(value));
+		} else if (option.equals("-cycles")) {
+			setCycleProbability(Double.parseDouble(value));
+		} else if (option.equals("-mvds")) {
+			setMVDCount(Integer.parseInt(value));
+		} else {
+			throw new IllegalArgumentException("Unknown option " + option + ".");
+		}
+	}
+
+	/**
+	 * Writes the given number of records, one per line.
+	 * @param writer
+	 * @param count
+	 * @throws IOException
+	 */
+	public void write(final Writer writer, final long count) throws IOException {
+		checkSettings();
+		for (long i = 0; i < count; i++) {
+			writer.write(nextRecord());
+			writer.write('\n');
+		}
+		writer.flush();
+	}
+
+	/**
+	 * @return Next record as "schema | FDs | MVDs".
+	 */
+	public String nextRecord() {
+		checkSettings();
+		List<String> names = attributeNames(attributeCount);
+		List<String> roles = new ArrayList<>(names);
+		Collections.shuffle(roles, random);
+		List<List<String>> keys = new ArrayList<>();
+		for (int k = 0; k < keyCount; k++) {
+			keys.add(sorted(roles.subList(k * keySize, (k + 1) * keySize)));
+		}
+		List<String> dependents = sorted(roles.subList(keyCount * keySize, roles.size()));
+
+		Set<String> fds = new LinkedHashSet<>();
+		if (!dependents.isEmpty()) {
+			fds.add(toDependency(keys.get(0), dependents));
+		}
+		for (int k = 0; keyCount > 1 && k < keyCount; k++) {
+			fds.add(toDependency(keys.get(k), keys.get((k + 1) % keyCount)));
+		}
+		for (int attempt = 0; fds.size() < fdCount && dependents.size() > 1
+				&& attempt < fdCount * MAX_ATTEMPTS_PER_DEPENDENCY; attempt++) {
+			String right = dependents.get(random.nextInt(dependents.size()));
+			String anchor = pickOtherThan(dependents, right);
+			List<String> left = new ArrayList<>();
+			left.add(anchor);
+			int lhsSize = Math.min(drawLhsSize(), names.size() - 1);
+			while (left.size() < lhsSize) {
+				String a = names.get(random.nextInt(names.size()));
+				if (!a.equals(right) && !left.contains(a)) {
+					left.add(a);
+				}
+			}
+			fds.add(toDependency(sorted(left), Collections.singletonList(right)));
+			if (fds.size() < fdCount && random.nextDouble() < cycleProbability) {
+				fds.add(toDependency(Collections.singletonList(right), Collections.singletonList(anchor)));
+			}
+		}
+
+		Set<String> mvds = new LinkedHashSet<>();
+		for (int attempt = 0; mvds.size() < mvdCount && names.size() > 2
+				&& attempt < mvdCount * MAX_ATTEMPTS_PER_DEPENDENCY; attempt++) {
+			List<String> shuffled = new ArrayList<>(names);
+			Collections.shuffle(shuffled, random);
+			int lhsSize = Math.min(drawLhsSize(), names.size() - 2);
+			int rhsSize = 1 + random.nextInt(names.size() - lhsSize - 1);
+			String mvd = toDependency(sorted(shuffled.subList(0, lhsSize)), sorted(shuffled.subList(lhsSize, lhsSize + rhsSize)));
+			if (!fds.contains(mvd)) {
+				mvds.add(mvd);
+			}
+		}
+		return "R(" + join(names, ",") + ") " + SchemaRecord.FIELD_SEPARATOR + " " + join(fds, "; ") + " "
+				+ SchemaRecord.FIELD_SEPARATOR + " " + join(mvds, "; ");
+	}
+
+	private void checkSettings() {
+		if (attributeCount < 2) {
+			throw new IllegalArgumentException("Relations must have at least 2 attributes.");
+		}
+		if (keyCount < 1 || keySize < 1) {
+			throw new IllegalArgumentException("Relations must have at least one key of at least one attribute.");
+		}
+		if (keyCount * keySize > attributeCount) {
+			throw new IllegalArgumentException(keyCount + " disjoint keys of " + keySize + " attributes do not fit in "
+					+ attributeCount + " attributes.");
+		}
+		if (fdCount < 0 || mvdCount < 0) {
+			throw new IllegalArgumentException("Number of dependencies must not be negative.");
+		}
+		if (cycleProbability < 0 || cycleProbability > 1) {
+			throw new IllegalArgumentException("Cycle probability must be between 0 and 1.");
+		}
+	}
+
+	private int drawLhsSize() {
+		int total = 0;
+		for (int w : lhsSizeWeights) {
+			total += w;
+		}
+		int draw = random.nextInt(total);
+		for (int i = 0; i < lhsSizeWeights.length; i++) {
+			draw -= lhsSizeWeights[i];
+			if (draw < 0) {
+				return i + 1;
+			}
+		}
+		return lhsSizeWeights.length;
+	}
+
+	private String pickOtherThan(final List<String> list, final String excluded) {
+		while (true) {
+			String a = list.get(random.nextInt(list.size()));
+			if (!a.equals(excluded)) {
+				return a;
+			}
+		}
+	}
+
+	/**
+	 * @param count
+	 * @return Letter-only attribute names A, B, ..., Z, BA, BB, ... since schemas
+	 *         may only contain letters.
+	 */
+	protected static List<String> attributeNames(final int count) {
+		List<String> names = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			StringBuilder sb = new StringBuilder();
+			int n = i;
+			do {
+				sb.append((char) ('A' + n % 26));
+				n /= 26;
+			} while (n > 0);
+			names.add(sb.reverse().toString());
+		}
+		return names;
+	}
+
+	private static List<String> sorted(final List<String> names) {
+		List<String> result = new ArrayList<>(names);
+		Collections.sort(result);
+		return result;
+	}
+
+	private static String toDependency(final List<String> left, final List<String> right) {
+		return join(left, ",") + " -> " + join(right, ",");
+	}
+
+	private static String join(final Iterable<String> parts, final String separator) {
+		StringBuilder sb = new StringBuilder();
+		for (String part : parts) {
+			if (sb.length() > 0) {
+				sb.append(separator);
+			}
+			sb.append(part);
+		}
+		return sb.toString();
+	}
+
+	public int getAttributeCount() {
+		return attributeCount;
+	}
+
+	public void setAttributeCount(final int attributeCount) {
+		this.attributeCount = attributeCount;
+	}
+
+	public int getFDCount() {
+		return fdCount;
+	}
+
+	/**
+	 * @param fdCount
+	 *            Number of functional dependencies per relation, including the
+	 *            ones that plant the keys. Fewer are generated when the
+	 *            attributes cannot hold more distinct dependencies.
+	 */
+	public void setFDCount(final int fdCount) {
+		this.fdCount = fdCount;
+	}
+
+	public int[] getLhsSizeWeights() {
+		return lhsSizeWeights;
+	}
+
+	/**
+	 * @param lhsSizeWeights
+	 *            Relative weight of each left-hand side size of random
+	 *            dependencies; entry i is the weight of size i + 1.
+	 */
+	public void setLhsSizeWeights(final int[] lhsSizeWeights) {
+		int total = 0;
+		for (int w : lhsSizeWeights) {
+			if (w < 0) {
+				throw new IllegalArgumentException("Left-hand side size weights must not be negative.");
+			}
+			total += w;
+		}
+		if (total == 0) {
+			throw new IllegalArgumentException("At least one left-hand side size weight must be positive.");
+		}
+		this.lhsSizeWeights = lhsSizeWeights.clone();
+	}
+
+	public int getKeyCount() {
+		return keyCount;
+	}
+
+	public void setKeyCount(final int keyCount) {
+		this.keyCount = keyCount;
+	}
+
+	public int getKeySize() {
+		return keySize;
+	}
+
+	public void setKeySize(final int keySize) {
+		this.keySize = keySize;
+	}
+
+	public double getCycleProbability() {
+		return cycleProbability;
+	}
+
+	public void setCycleProbability(final double cycleProbability) {
+		this.cycleProbability = cycleProbability;
+	}
+
+	public int getMVDCount() {
+		return mvdCount;
+	}
+
+	public void setMVDCount(final int mvdCount) {
+		this.mvdCount = mvdCount;
+	}
+}
@@ -0,0 +1,137 @@
+package relationalDatabaseTools.client;
+
+/**
+ * Limits the work of one analysis: a time limit, a maximum number of closures
+ * and a maximum BCNF decomposition recursion depth. The analysis checks its
+ * budget cooperatively, in the loops of the stages that can grow exponentially
+ * (closure enumeration, key search, the closure walks and the BCNF recursion),
+ * and stops with an {@link AnalysisBudgetExceededException} once a limit is
+ * reached or the budget has been cancelled, keeping the results of the stages
+ * that finished. A budget may be cancelled from any thread.
+ *
+ * The budget is attached to the analysis's {@link AnalysisMetrics} registry,
+ * which already counts the closures and is current wherever the analysis runs.
+ * An optional part of an analysis can get a closure limit of its own on top of
+ * that budget (see {@link AnalysisMetrics#beginLimit(long)}); when only that
+ * limit runs out, {@link #isExceeded()} tells the part to give up and let the
+ * rest of the analysis go on.
+ * @author Raymond Cho
+ *
+ */
+public class AnalysisBudget {
+	public static final long NO_LIMIT = 0;
+
+	private final AnalysisBudget parent;
+	private final long deadline;
+	private final long closuresBefore;
+	private final long maxClosures;
+	private final int maxRecursionDepth;
+	private volatile boolean cancelled;
+	private boolean exceeded;
+
+	/**
+	 * @param timeLimitMillis
+	 *            Time limit in milliseconds from now, or {@link #NO_LIMIT}.
+	 * @param maxClosures
+	 *            Maximum number of closures to compute, or {@link #NO_LIMIT};
+	 *            subsets that closure walks visit without closing count as closures.
+	 * @param maxRecursionDepth
+	 *            Maximum recursion depth of the BCNF decomposition, or {@link #NO_LIMIT}.
+	 */
+	public AnalysisBudget(final long timeLimitMillis, final long maxClosures, final int maxRecursionDepth) {
+		if (timeLimitMillis < 0 || maxClosures < 0 || maxRecursionDepth < 0) {
+			throw new IllegalArgumentException("Budget limits must not be negative.");
+		}
+		this.parent = null;
+		this.deadline = timeLimitMillis == NO_LIMIT ? NO_LIMIT : System.currentTimeMillis() + timeLimitMillis;
+		this.closuresBefore = 0;
+		this.maxClosures = maxClosures;
+		this.maxRecursionDepth = maxRecursionDepth;
+		this.cancelled = false;
+	}
+
+	/**
+	 * @param parent
+	 *            Budget of the whole analysis, which is checked first (may be null).
+	 * @param closureCount
+	 *            Number of closures the analysis has computed so far.
+	 * @param maxClosures
+	 *            Maximum number of further closures.
+	 */
+	protected AnalysisBudget(final AnalysisBudget parent, final long closureCount, final long maxClosures) {
+		if (maxClosures <= 0) {
+			throw new IllegalArgumentException("Closure limit must be positive.");
+		}
+		this.parent = parent;
+		this.deadline = NO_LIMIT;
+		this.closuresBefore = closureCount;
+		this.maxClosures = maxClosures;
+		this.maxRecursionDepth = (int) NO_LIMIT;
+		this.cancelled = false;
+	}
+
+	/**
+	 * @return Budget of the whole analysis, or null if this is one.
+	 */
+	protected AnalysisBudget getParent() {
+		return parent;
+	}
+
+	/**
+	 * Makes the analysis stop at its next budget check.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * @return True if the analysis was stopped by this budget's own limits,
+	 *         rather than by those of its parent.
+	 */
+	public boolean isExceeded() {
+		return exceeded;
+	}
+
+	/**
+	 * @param closureCount
+	 *            Number of closures computed so far.
+	 * @param stage
+	 *            Running stage.
+	 */
+	protected void check(final long closureCount, final AnalysisMetrics.Stage stage) {
+		if (parent != null) {
+			parent.check(closureCount, stage);
+		}
+		if (cancelled) {
+			throw new AnalysisBudgetExceededException("Analysis was cancelled.", stage);
+		}
+		if (maxClosures != NO_LIMIT && closureCount - closuresBefore > maxClosures) {
+			exceeded = true;
+			throw new AnalysisBudgetExceededException("Exceeded the limit of " + maxClosures + " closures.", stage);
+		}
+		if (deadline != NO_LIMIT && System.currentTimeMillis() > deadline) {
+			exceeded = true;
+			throw new AnalysisBudgetExceededException("Exceeded the time limit.", stage);
+		}
+	}
+
+	/**
+	 * @param depth
+	 *            Recursion depth of the BCNF decomposition about to be entered.
+	 * @param stage
+	 *            Running stage.
+	 */
+	protected void checkRecursion(final int depth, final AnalysisMetrics.Stage stage) {
+		if (parent != null) {
+			parent.checkRecursion(depth, stage);
+		}
+		if (maxRecursionDepth != NO_LIMIT && depth > maxRecursionDepth) {
+			exceeded = true;
+			throw new AnalysisBudgetExceededException("Exceeded the decomposition recursion depth of " + maxRecursionDepth + ".", stage);
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package relationalDatabaseTools.client;
+
+/**
+ * Thrown by a budget check when an analysis ran out of its {@link AnalysisBudget}
+ * or the budget was cancelled.
+ * @author Raymond Cho
+ *
+ */
+public class AnalysisBudgetExceededException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	private final AnalysisMetrics.Stage stage;
+
+	public AnalysisBudgetExceededException(final String message, final AnalysisMetrics.Stage stage) {
+		super(message);
+		this.stage = stage;
+	}
+
+	/**
+	 * @return Stage that was running when the budget ran out.
+	 */
+	public AnalysisMetrics.Stage getStage() {
+		return stage;
+	}
+}
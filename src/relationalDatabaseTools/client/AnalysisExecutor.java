@@ -0,0 +1,30 @@
+package relationalDatabaseTools.client;
+
+import java.util.List;
+
+/**
+ * Runs independent pieces of an analysis, such as the work for each independent
+ * component of a relation. The browser build has no threads and uses
+ * {@link #SEQUENTIAL}; where threads are available, a multi-threaded runner
+ * can be given to an analysis with {@link RelationAnalysis#setExecutor(AnalysisExecutor)}.
+ * @author Raymond Cho
+ *
+ */
+public interface AnalysisExecutor {
+
+	AnalysisExecutor SEQUENTIAL = new AnalysisExecutor() {
+		@Override
+		public void runAll(final List<Runnable> tasks) {
+			for (Runnable task : tasks) {
+				task.run();
+			}
+		}
+	};
+
+	/**
+	 * Runs all tasks and returns once every task has finished. An exception
+	 * thrown by a task is passed on to the caller.
+	 * @param tasks
+	 */
+	void runAll(List<Runnable> tasks);
+}
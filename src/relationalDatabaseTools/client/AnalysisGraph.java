@@ -0,0 +1,147 @@
+package relationalDatabaseTools.client;
+
+/**
+ * The analysis stages of one relation as a graph of results, each calculated
+ * from the results it depends on:
+ * <pre>
+ * CLOSURES -> KEYS -> SUPERKEYS
+ * CLOSURES -> MINIMAL_COVER
+ * CLOSURES -> DERIVED_FDS
+ * KEYS, MINIMAL_COVER -> NORMAL_FORMS
+ * CANONICAL_BASIS
+ * </pre>
+ * Asking for a result calculates the results it depends on first, then the
+ * result itself, each at most once; later requests return at once. A caller
+ * that only needs to know whether a relation is in BCNF therefore pays for the
+ * closures, minimum keys and minimal cover, but not for the walk over every
+ * subset that lists the superkeys, nor for the derived functional
+ * dependencies. The canonical basis is found from the input functional
+ * dependencies alone, without the closures of every subset. Decompositions
+ * ask for the normal forms of every relation they split. The results
+ * themselves are kept by the {@link Relation}.
+ * <p>
+ * The minimal cover and the normal forms are calculated by code that the user
+ * interface loads behind a split point (see {@link DependencyReport}), so the
+ * graph does not name it: {@link MinimalFDCover} and
+ * {@link DetermineNormalForms} set their {@link Calculator} before asking for
+ * these results. Naming them here would pull them back into the initial
+ * download.
+ * @author Raymond Cho
+ *
+ */
+public class AnalysisGraph {
+	/**
+	 * Results of the analysis of a relation.
+	 */
+	public enum Node {
+		/**
+		 * Closures of the subsets of attributes, through a closure lattice or
+		 * exhaustively as the relation's plan says (see {@link AnalysisPlanner}).
+		 */
+		CLOSURES(),
+		/**
+		 * Minimum candidate keys, prime and non-prime attributes.
+		 */
+		KEYS(CLOSURES),
+		/**
+		 * Superkeys that are not minimum keys.
+		 */
+		SUPERKEYS(KEYS),
+		MINIMAL_COVER(CLOSURES),
+		DERIVED_FDS(CLOSURES),
+		NORMAL_FORMS(KEYS, MINIMAL_COVER),
+		/**
+		 * Canonical basis of the input functional dependencies, see {@link ClosedSets}.
+		 */
+		CANONICAL_BASIS();
+
+		private final Node[] dependencies;
+
+		private Node(final Node... dependencies) {
+			this.dependencies = dependencies;
+		}
+	}
+
+	/**
+	 * Calculates a result of a relation whose dependencies have been calculated.
+	 */
+	public interface Calculator {
+		void calculate(Relation relation);
+	}
+
+	private static final Calculator[] calculators = new Calculator[Node.values().length];
+
+	private final Relation relation;
+	private final boolean[] calculated;
+
+	protected AnalysisGraph(final Relation relation) {
+		this.relation = relation;
+		this.calculated = new boolean[Node.values().length];
+	}
+
+	/**
+	 * Calculates the result, and the results it depends on, unless they have
+	 * been calculated already. A result is only recorded as calculated once it
+	 * is complete, so one whose calculation ran out of analysis budget is not.
+	 * @param node
+	 */
+	public void calculate(final Node node) {
+		if (calculated[node.ordinal()]) {
+			return;
+		}
+		for (Node dependency : node.dependencies) {
+			calculate(dependency);
+		}
+		switch (node) {
+		case CLOSURES:
+			CalculateClosure.calculateClosures(relation);
+			break;
+		case KEYS:
+			CalculateKeys.calculateMinimumKeys(relation);
+			break;
+		case SUPERKEYS:
+			CalculateKeys.calculateSuperKeys(relation);
+			break;
+		case MINIMAL_COVER:
+		case NORMAL_FORMS:
+			Calculator calculator = calculators[node.ordinal()];
+			if (calculator == null) {
+				throw new IllegalStateException("No calculator has been set for " + node.name() + ".");
+			}
+			calculator.calculate(relation);
+			break;
+		case DERIVED_FDS:
+			CalculateFDs.deriveFDs(relation);
+			break;
+		case CANONICAL_BASIS:
+			CalculateFDs.deriveCanonicalBasis(relation);
+			break;
+		}
+		calculated[node.ordinal()] = true;
+	}
+
+	public boolean isCalculated(final Node node) {
+		return calculated[node.ordinal()];
+	}
+
+	/**
+	 * Records a result that was calculated outside the graph, such as closures
+	 * with a given backend or derived functional dependencies calculated a few
+	 * closures at a time.
+	 * @param node
+	 */
+	protected void setCalculated(final Node node) {
+		calculated[node.ordinal()] = true;
+	}
+
+	/**
+	 * Sets how a result that belongs to code behind a split point is
+	 * calculated, for the graphs of every relation.
+	 * @param node
+	 *            {@link Node#MINIMAL_COVER} or {@link Node#NORMAL_FORMS}.
+	 * @param calculator
+	 */
+	protected static void setCalculator(final Node node, final Calculator calculator) {
+		calculators[node.ordinal()] = calculator;
+	}
+}
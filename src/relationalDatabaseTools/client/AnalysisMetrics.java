@@ -0,0 +1,599 @@
+package relationalDatabaseTools.client;
+
+/**
+ * Registry of per-stage counters of the analysis pipeline: number of calls,
+ * wall time, closures computed, functional dependencies scanned by the closure
+ * engines, Relation objects created and allocated bytes.
+ *
+ * The analysis classes report to the current registry of the running thread
+ * (see {@link #current()}). Stages nest: the BCNF decomposition, for example,
+ * calculates closures and keys of every relation it creates. Wall time is kept
+ * both inclusive and exclusive of nested stages; every other count goes to the
+ * innermost running stage, and counts made outside of any stage go to
+ * {@link Stage#OTHER}. Counting costs a few array updates per stage call and
+ * per batch of closures, so it is always on.
+ *
+ * A registry is not thread-safe. By default all analyses share one registry,
+ * which suits the single-threaded browser; multi-threaded drivers install a
+ * {@link Scope} that gives each thread its own current registry. Time and
+ * allocation are read through a {@link Probe}; the default probe has
+ * millisecond resolution and cannot measure allocation. Stage starts and ends
+ * are also passed to the installed {@link StageListener}. A registry may carry
+ * the {@link AnalysisBudget} of its analysis, which is checked as closures are
+ * counted and at the other budget checks, and the {@link AnalysisExecutor} that
+ * runs the independent pieces of its analysis.
+ * @author Raymond Cho
+ *
+ */
+public class AnalysisMetrics {
+
+	public enum Stage {
+		CLOSURES("closures"),
+		KEYS("keys"),
+		MINIMAL_COVER("minimalCover"),
+		DERIVED_FDS("derivedFDs"),
+		NORMAL_FORMS("normalForms"),
+		THREE_NF("3NFDecomposition"),
+		BCNF("BCNFDecomposition"),
+		OTHER("other");
+
+		private final String name;
+
+		private Stage(final String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+	}
+
+	/**
+	 * Source of time and allocation readings.
+	 */
+	public interface Probe {
+		/**
+		 * @return Current time in nanoseconds, relative to an arbitrary origin.
+		 */
+		long nanoTime();
+
+		/**
+		 * @return Bytes allocated so far by the calling thread, or -1 if allocation cannot be measured.
+		 */
+		long allocatedBytes();
+	}
+
+	/**
+	 * Holds the current registry.
+	 */
+	public interface Scope {
+		AnalysisMetrics get();
+
+		void set(AnalysisMetrics metrics);
+	}
+
+	public static final Probe MILLISECOND_CLOCK = new Probe() {
+		@Override
+		public long nanoTime() {
+			return System.currentTimeMillis() * 1000000L;
+		}
+
+		@Override
+		public long allocatedBytes() {
+			return -1;
+		}
+	};
+
+	private static final Stage[] STAGES = Stage.values();
+	private static final int STAGE_COUNT = STAGES.length;
+	private static final int INITIAL_DEPTH = 8;
+
+	private static Probe probe = MILLISECOND_CLOCK;
+	private static StageListener stageListener = StageListener.NONE;
+	private static Scope scope = new Scope() {
+		private AnalysisMetrics current = new AnalysisMetrics();
+
+		@Override
+		public AnalysisMetrics get() {
+			return current;
+		}
+
+		@Override
+		public void set(final AnalysisMetrics metrics) {
+			current = metrics;
+		}
+	};
+
+	private final Stage baseStage;
+	private final long[] calls;
+	private final long[] wallNanos;
+	private final long[] selfNanos;
+	private final long[] closures;
+	private final long[] fdsScanned;
+	private final long[] relationsCreated;
+	private final long[] allocatedBytes;
+	private boolean allocationTracked;
+	private AnalysisBudget budget;
+	private AnalysisExecutor executor = AnalysisExecutor.SEQUENTIAL;
+	private long closuresBefore;
+	private long walkSteps;
+
+	// Running stages, innermost last.
+	private int depth;
+	private Stage[] frameStages;
+	private Object[] frameEvents;
+	private long[] frameStart;
+	private long[] frameAllocationStart;
+	private long[] frameChildNanos;
+	private long[] frameChildAllocation;
+	private long unframedAllocation;
+
+	public AnalysisMetrics() {
+		this(Stage.OTHER);
+	}
+
+	/**
+	 * @param baseStage
+	 *            Stage that receives counts made outside of any stage.
+	 */
+	protected AnalysisMetrics(final Stage baseStage) {
+		this.baseStage = baseStage;
+		this.calls = new long[STAGE_COUNT];
+		this.wallNanos = new long[STAGE_COUNT];
+		this.selfNanos = new long[STAGE_COUNT];
+		this.closures = new long[STAGE_COUNT];
+		this.fdsScanned = new long[STAGE_COUNT];
+		this.relationsCreated = new long[STAGE_COUNT];
+		this.allocatedBytes = new long[STAGE_COUNT];
+		this.frameStages = new Stage[INITIAL_DEPTH];
+		this.frameEvents = new Object[INITIAL_DEPTH];
+		this.frameStart = new long[INITIAL_DEPTH];
+		this.frameAllocationStart = new long[INITIAL_DEPTH];
+		this.frameChildNanos = new long[INITIAL_DEPTH];
+		this.frameChildAllocation = new long[INITIAL_DEPTH];
+	}
+
+	public static Probe getProbe() {
+		return probe;
+	}
+
+	public static void setProbe(final Probe metricsProbe) {
+		if (metricsProbe == null) {
+			throw new IllegalArgumentException("Input metrics probe is null.");
+		}
+		probe = metricsProbe;
+	}
+
+	public static StageListener getStageListener() {
+		return stageListener;
+	}
+
+	public static void setStageListener(final StageListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Input stage listener is null.");
+		}
+		stageListener = listener;
+	}
+
+	public static Scope getScope() {
+		return scope;
+	}
+
+	/**
+	 * Replaces the holder of the current registry; the registries of the old
+	 * holder are no longer current.
+	 * @param metricsScope
+	 */
+	public static void setScope(final Scope metricsScope) {
+		if (metricsScope == null) {
+			throw new IllegalArgumentException("Input metrics scope is null.");
+		}
+		scope = metricsScope;
+	}
+
+	/**
+	 * @return Registry that analyses on the calling thread report to.
+	 */
+	public static AnalysisMetrics current() {
+		return scope.get();
+	}
+
+	/**
+	 * Makes the given registry the current one.
+	 * @param metrics
+	 * @return Previously current registry, to be restored with another call.
+	 */
+	public static AnalysisMetrics enter(final AnalysisMetrics metrics) {
+		AnalysisMetrics previous = scope.get();
+		scope.set(metrics);
+		return previous;
+	}
+
+	/**
+	 * Starts a stage in the current registry.
+	 * @param stage
+	 * @param relation
+	 *            Relation the stage works on.
+	 * @return Current registry, on which {@link #end(Stage)} must be called.
+	 */
+	protected static AnalysisMetrics begin(final Stage stage, final Relation relation) {
+		AnalysisMetrics metrics = current();
+		metrics.beginStage(stage);
+		if (stageListener != StageListener.NONE) {
+			metrics.frameEvents[metrics.depth - 1] = stageListener.stageStarted(stage.getName(),
+					relation.getAttributes().size(), relation.getInputFDs().size(), metrics.depth - 1);
+		}
+		return metrics;
+	}
+
+	protected static void countClosures(final long count) {
+		AnalysisMetrics metrics = current();
+		metrics.closures[metrics.innermostStage()] += count;
+		if (metrics.budget != null) {
+			metrics.checkBudget(metrics.budget);
+		}
+	}
+
+	/**
+	 * Counts subsets that a closure walk visited without closing them, such as
+	 * the superkey walk, which looks closures up or compares with the keys.
+	 * They count against the budget's closure limit like closures, but are not
+	 * reported as closures.
+	 * @param count
+	 */
+	protected static void countWalkSteps(final long count) {
+		AnalysisMetrics metrics = current();
+		metrics.walkSteps += count;
+		if (metrics.budget != null) {
+			metrics.checkBudget(metrics.budget);
+		}
+	}
+
+	/**
+	 * Checks the budget of the current registry, if any.
+	 * @throws AnalysisBudgetExceededException
+	 *             If the budget ran out or was cancelled.
+	 */
+	protected static void checkBudget() {
+		AnalysisMetrics metrics = current();
+		if (metrics.budget != null) {
+			metrics.checkBudget(metrics.budget);
+		}
+	}
+
+	/**
+	 * Checks the recursion depth and the rest of the budget of the current registry, if any.
+	 * @param depth
+	 * @throws AnalysisBudgetExceededException
+	 *             If the budget ran out or was cancelled.
+	 */
+	protected static void checkRecursion(final int depth) {
+		AnalysisMetrics metrics = current();
+		if (metrics.budget != null) {
+			metrics.budget.checkRecursion(depth, STAGES[metrics.innermostStage()]);
+			metrics.checkBudget(metrics.budget);
+		}
+	}
+
+	private void checkBudget(final AnalysisBudget analysisBudget) {
+		analysisBudget.check(closureCount(), STAGES[innermostStage()]);
+	}
+
+	/**
+	 * @return Closures and walk steps counted against the budget.
+	 */
+	private long closureCount() {
+		long closureCount = closuresBefore + walkSteps;
+		for (long c : closures) {
+			closureCount += c;
+		}
+		return closureCount;
+	}
+
+	/**
+	 * Limits the closures of the following work of the current registry, on
+	 * top of the registry's budget, until {@link #endLimit(AnalysisBudget)}.
+	 * @param maxClosures
+	 * @return Budget with the limit, whose {@link AnalysisBudget#isExceeded()}
+	 *         tells whether it stopped the work.
+	 */
+	protected static AnalysisBudget beginLimit(final long maxClosures) {
+		AnalysisMetrics metrics = current();
+		AnalysisBudget limit = new AnalysisBudget(metrics.budget, metrics.closureCount(), maxClosures);
+		metrics.budget = limit;
+		return limit;
+	}
+
+	/**
+	 * Restores the budget the limit was placed on.
+	 * @param limit
+	 *            Budget returned by {@link #beginLimit(long)}.
+	 */
+	protected static void endLimit(final AnalysisBudget limit) {
+		current().budget = limit.getParent();
+	}
+
+	protected static void countFDsScanned(final long count) {
+		AnalysisMetrics metrics = current();
+		metrics.fdsScanned[metrics.innermostStage()] += count;
+	}
+
+	protected static void countRelationCreated() {
+		AnalysisMetrics metrics = current();
+		metrics.relationsCreated[metrics.innermostStage()]++;
+	}
+
+	private int innermostStage() {
+		return depth > 0 ? frameStages[depth - 1].ordinal() : baseStage.ordinal();
+	}
+
+	private void beginStage(final Stage stage) {
+		if (depth == frameStages.length) {
+			int grown = depth * 2;
+			Stage[] stages = new Stage[grown];
+			System.arraycopy(frameStages, 0, stages, 0, depth);
+			frameStages = stages;
+			Object[] events = new Object[grown];
+			System.arraycopy(frameEvents, 0, events, 0, depth);
+			frameEvents = events;
+			frameStart = grow(frameStart, grown);
+			frameAllocationStart = grow(frameAllocationStart, grown);
+			frameChildNanos = grow(frameChildNanos, grown);
+			frameChildAllocation = grow(frameChildAllocation, grown);
+		}
+		calls[stage.ordinal()]++;
+		frameStages[depth] = stage;
+		frameChildNanos[depth] = 0;
+		frameChildAllocation[depth] = 0;
+		frameAllocationStart[depth] = probe.allocatedBytes();
+		frameStart[depth] = probe.nanoTime();
+		depth++;
+	}
+
+	private static long[] grow(final long[] array, final int length) {
+		long[] grown = new long[length];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+	/**
+	 * Ends the innermost running call of the stage. Stages started after it and
+	 * still running, which happens when a stage was left by an exception, are
+	 * ended first. Does nothing if the stage is not running.
+	 * @param stage
+	 */
+	protected void end(final Stage stage) {
+		int frame = depth - 1;
+		while (frame >= 0 && frameStages[frame] != stage) {
+			frame--;
+		}
+		if (frame < 0) {
+			return;
+		}
+		long now = probe.nanoTime();
+		long allocation = probe.allocatedBytes();
+		while (depth > frame) {
+			depth--;
+			int s = frameStages[depth].ordinal();
+			long elapsed = now - frameStart[depth];
+			wallNanos[s] += elapsed;
+			selfNanos[s] += elapsed - frameChildNanos[depth];
+			long allocated = 0;
+			if (allocation >= 0 && frameAllocationStart[depth] >= 0) {
+				allocated = allocation - frameAllocationStart[depth];
+				allocatedBytes[s] += allocated - frameChildAllocation[depth];
+				allocationTracked = true;
+			}
+			if (depth > 0) {
+				frameChildNanos[depth - 1] += elapsed;
+				frameChildAllocation[depth - 1] += allocated;
+			} else {
+				unframedAllocation += allocated;
+			}
+			frameStages[depth] = null;
+			if (frameEvents[depth] != null) {
+				stageListener.stageEnded(frameEvents[depth]);
+				frameEvents[depth] = null;
+			}
+		}
+	}
+
+	/**
+	 * @return New registry for work forked off this registry's innermost running
+	 *         stage onto another thread; its counts go to that stage once the
+	 *         work is joined with {@link #join(AnalysisMetrics)}.
+	 */
+	public AnalysisMetrics fork() {
+		AnalysisMetrics fork = new AnalysisMetrics(STAGES[innermostStage()]);
+		fork.budget = budget;
+		fork.executor = executor;
+		fork.closuresBefore = closureCount();
+		return fork;
+	}
+
+	/**
+	 * Runs forked work on the calling thread with this registry as the current
+	 * one, and records the bytes it allocates outside of nested stages.
+	 * @param task
+	 */
+	public void runForked(final Runnable task) {
+		AnalysisMetrics previous = enter(this);
+		long nestedBefore = unframedAllocation;
+		long start = probe.allocatedBytes();
+		try {
+			task.run();
+		} finally {
+			long allocation = probe.allocatedBytes();
+			if (start >= 0 && allocation >= 0) {
+				allocatedBytes[baseStage.ordinal()] += allocation - start - (unframedAllocation - nestedBefore);
+				allocationTracked = true;
+			}
+			enter(previous);
+		}
+	}
+
+	/**
+	 * Adds the counts of forked work. Calls and wall time of the fork are not
+	 * added, since the stage that forked it already covers them.
+	 * @param fork
+	 *            Registry created by {@link #fork()}, whose work has finished.
+	 */
+	public void join(final AnalysisMetrics fork) {
+		for (int s = 0; s < STAGE_COUNT; s++) {
+			closures[s] += fork.closures[s];
+			fdsScanned[s] += fork.fdsScanned[s];
+			relationsCreated[s] += fork.relationsCreated[s];
+			allocatedBytes[s] += fork.allocatedBytes[s];
+		}
+		allocationTracked |= fork.allocationTracked;
+		walkSteps += fork.walkSteps;
+	}
+
+	/**
+	 * Adds all counts of another registry, such as the registry of another analysis.
+	 * @param other
+	 */
+	public void add(final AnalysisMetrics other) {
+		join(other);
+		for (int s = 0; s < STAGE_COUNT; s++) {
+			calls[s] += other.calls[s];
+			wallNanos[s] += other.wallNanos[s];
+			selfNanos[s] += other.selfNanos[s];
+		}
+	}
+
+	/**
+	 * Clears all counts; running stages are abandoned.
+	 */
+	public void reset() {
+		for (int s = 0; s < STAGE_COUNT; s++) {
+			calls[s] = 0;
+			wallNanos[s] = 0;
+			selfNanos[s] = 0;
+			closures[s] = 0;
+			fdsScanned[s] = 0;
+			relationsCreated[s] = 0;
+			allocatedBytes[s] = 0;
+		}
+		allocationTracked = false;
+		walkSteps = 0;
+		while (depth > 0) {
+			frameStages[--depth] = null;
+			frameEvents[depth] = null;
+		}
+		unframedAllocation = 0;
+	}
+
+	public AnalysisBudget getBudget() {
+		return budget;
+	}
+
+	/**
+	 * @param budget
+	 *            Budget of the analysis that reports to this registry (may be null).
+	 */
+	public void setBudget(final AnalysisBudget budget) {
+		this.budget = budget;
+	}
+
+	public AnalysisExecutor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * @param executor
+	 *            Executor of the analysis that reports to this registry (may be
+	 *            null to run its pieces one after another).
+	 */
+	public void setExecutor(final AnalysisExecutor executor) {
+		this.executor = executor == null ? AnalysisExecutor.SEQUENTIAL : executor;
+	}
+
+	public long getCalls(final Stage stage) {
+		return calls[stage.ordinal()];
+	}
+
+	/**
+	 * @param stage
+	 * @return Wall time of the stage's calls in nanoseconds, including nested stages.
+	 */
+	public long getWallNanos(final Stage stage) {
+		return wallNanos[stage.ordinal()];
+	}
+
+	/**
+	 * @param stage
+	 * @return Wall time of the stage's calls in nanoseconds, excluding nested stages.
+	 */
+	public long getSelfNanos(final Stage stage) {
+		return selfNanos[stage.ordinal()];
+	}
+
+	public long getClosureCount(final Stage stage) {
+		return closures[stage.ordinal()];
+	}
+
+	public long getFDsScanned(final Stage stage) {
+		return fdsScanned[stage.ordinal()];
+	}
+
+	public long getRelationsCreated(final Stage stage) {
+		return relationsCreated[stage.ordinal()];
+	}
+
+	/**
+	 * @param stage
+	 * @return Bytes allocated by the stage outside of nested stages, or -1 if
+	 *         allocation was not measured.
+	 */
+	public long getAllocatedBytes(final Stage stage) {
+		return allocationTracked ? allocatedBytes[stage.ordinal()] : -1;
+	}
+
+	public boolean isAllocationTracked() {
+		return allocationTracked;
+	}
+
+	/**
+	 * @return All counts as a JSON object with one member per stage and one for the totals.
+	 */
+	public String toJson() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"stages\":{");
+		long totalNanos = 0;
+		long totalClosures = 0;
+		long totalFDsScanned = 0;
+		long totalRelations = 0;
+		long totalAllocated = 0;
+		for (Stage stage : STAGES) {
+			int s = stage.ordinal();
+			if (s > 0) {
+				sb.append(",");
+			}
+			sb.append("\"").append(stage.getName()).append("\":{");
+			sb.append("\"calls\":").append(calls[s]);
+			sb.append(",\"wallNanos\":").append(wallNanos[s]);
+			sb.append(",\"selfNanos\":").append(selfNanos[s]);
+			appendCounts(sb, closures[s], fdsScanned[s], relationsCreated[s], allocatedBytes[s]);
+			sb.append("}");
+			totalNanos += selfNanos[s];
+			totalClosures += closures[s];
+			totalFDsScanned += fdsScanned[s];
+			totalRelations += relationsCreated[s];
+			totalAllocated += allocatedBytes[s];
+		}
+		sb.append("},\"total\":{");
+		sb.append("\"wallNanos\":").append(totalNanos);
+		appendCounts(sb, totalClosures, totalFDsScanned, totalRelations, totalAllocated);
+		sb.append("}}");
+		return sb.toString();
+	}
+
+	private void appendCounts(final StringBuilder sb, final long closureCount, final long scanned, final long relations,
+			final long allocated) {
+		sb.append(",\"closures\":").append(closureCount);
+		sb.append(",\"fdsScanned\":").append(scanned);
+		sb.append(",\"relationsCreated\":").append(relations);
+		sb.append(",\"allocatedBytes\":").append(allocationTracked ? String.valueOf(allocated) : "null");
+	}
+}
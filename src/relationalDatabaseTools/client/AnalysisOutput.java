@@ -0,0 +1,37 @@
+package relationalDatabaseTools.client;
+
+/**
+ * Receives the text of an {@link AnalysisReport}.
+ * @author Raymond Cho
+ *
+ */
+public interface AnalysisOutput {
+	
+	/**
+	 * @param text
+	 * @param newLine
+	 *            True to start a new line with the text, false to add it to the current line.
+	 */
+	void append(String text, boolean newLine);
+	
+	/**
+	 * Separates two sections.
+	 */
+	void appendMajorBreak();
+	
+	/**
+	 * Separates two parts of a section.
+	 */
+	void appendMinorBreak();
+	
+	/**
+	 * Starts a list, such as the attribute closures, which may be long. Every
+	 * line until {@link #endList()} is a list item.
+	 */
+	void beginList();
+	
+	/**
+	 * Ends the list started by {@link #beginList()}.
+	 */
+	void endList();
+}
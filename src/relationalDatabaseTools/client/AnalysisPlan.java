@@ -0,0 +1,135 @@
+package relationalDatabaseTools.client;
+
+/**
+ * The algorithms chosen for the analysis of one relation by the
+ * {@link AnalysisPlanner}, with the cost estimates the choice was based on.
+ * @author Raymond Cho
+ *
+ */
+public class AnalysisPlan {
+
+	/**
+	 * How the closures of a relation are prepared and its minimum keys searched.
+	 */
+	public enum KeySearch {
+		/**
+		 * Closes every subset of the attributes with the closure backend and keeps
+		 * all closures in memory; the keys are then found through a closure lattice.
+		 */
+		EXHAUSTIVE("exhaustive"),
+		/**
+		 * Closes every set of group representatives of each independent component
+		 * once (see {@link ClosureLattice}) and searches the keys in that table.
+		 */
+		LATTICE("lattice"),
+		/**
+		 * Searches the keys of each component from the representatives that every
+		 * key needs, adding only representatives that can be part of a key, and
+		 * closes only the candidate sets. The closure table is built on demand if
+		 * all closures are walked later.
+		 */
+		PRUNED("pruned");
+
+		private final String name;
+
+		KeySearch(final String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+	}
+
+	/**
+	 * Which BCNF decompositions are attempted.
+	 */
+	public enum Decomposition {
+		/**
+		 * Decomposes both the input relation, within
+		 * {@link AnalysisPlanner#DIRECT_BCNF_CLOSURE_LIMIT} closures, and its 3NF
+		 * relations.
+		 */
+		BOTH("both"),
+		/**
+		 * Decomposes only the 3NF relations. The decomposition of the input
+		 * relation, which recurses on every violating functional dependency, is
+		 * skipped.
+		 */
+		FROM_3NF("from3NF");
+
+		private final String name;
+
+		Decomposition(final String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+	}
+
+	private final ClosureBackend closureBackend;
+	private final KeySearch keySearch;
+	private final Decomposition decomposition;
+	private final double closureCost;
+	private final double keySearchCost;
+	private final boolean forced;
+
+	/**
+	 * @param closureBackend
+	 *            Backend of single closure queries.
+	 * @param keySearch
+	 * @param decomposition
+	 * @param closureCost
+	 *            Estimated cost of one closure query with the chosen backend.
+	 * @param keySearchCost
+	 *            Estimated cost of the chosen key search.
+	 * @param forced
+	 *            True if at least one choice was forced rather than estimated.
+	 */
+	public AnalysisPlan(final ClosureBackend closureBackend, final KeySearch keySearch, final Decomposition decomposition,
+			final double closureCost, final double keySearchCost, final boolean forced) {
+		if (closureBackend == null || keySearch == null || decomposition == null) {
+			throw new IllegalArgumentException("Input closure backend, key search or decomposition is null.");
+		}
+		this.closureBackend = closureBackend;
+		this.keySearch = keySearch;
+		this.decomposition = decomposition;
+		this.closureCost = closureCost;
+		this.keySearchCost = keySearchCost;
+		this.forced = forced;
+	}
+
+	public ClosureBackend getClosureBackend() {
+		return closureBackend;
+	}
+
+	public KeySearch getKeySearch() {
+		return keySearch;
+	}
+
+	public Decomposition getDecomposition() {
+		return decomposition;
+	}
+
+	public double getClosureCost() {
+		return closureCost;
+	}
+
+	public double getKeySearchCost() {
+		return keySearchCost;
+	}
+
+	public boolean isForced() {
+		return forced;
+	}
+
+	@Override
+	public String toString() {
+		return "closures=" + closureBackend.getName() + " (cost " + Math.round(closureCost) + ")"
+				+ ", keys=" + keySearch.getName() + " (cost " + Math.round(keySearchCost) + ")"
+				+ ", decomposition=" + decomposition.getName()
+				+ (forced ? ", forced" : "");
+	}
+}
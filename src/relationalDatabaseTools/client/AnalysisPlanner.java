@@ -0,0 +1,251 @@
+package relationalDatabaseTools.client;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Chooses the algorithms for the analysis of each relation from the shape of
+ * its input: the number of attributes n, the number of functional
+ * dependencies |F|, their left-hand side sizes, and how many attributes appear
+ * only on left-hand sides, only on right-hand sides, on both sides or in no
+ * dependency at all. Every available strategy gets a cost estimate and the
+ * cheapest is chosen:
+ * <ul>
+ * <li>Closure backend of single closure queries (the minimal cover checks
+ * prepare a backend for every query): the fixpoint backend needs one pass over
+ * F per attribute it adds, the linear and watched-literal backends index F once
+ * and touch each left-hand side attribute at most once.</li>
+ * <li>Key search (see {@link AnalysisPlan.KeySearch}): the lattice closes
+ * 2^m sets of the m attributes that appear in a dependency, the pruned search
+ * about 2^b sets of the b attributes that appear on both sides, since
+ * attributes only on left-hand sides are in every key and attributes only on
+ * right-hand sides in none. Without the table, however, each later closure
+ * query costs a full batch, so the pruned search only pays off when the table
+ * is large. Closing every subset costs 2^n single closure queries on top of
+ * the lattice that finds the keys afterwards, so it is only used when forced.
+ * All three walk the 2^n subsets once to list the superkeys, which is left out
+ * of the comparison.</li>
+ * </ul>
+ * Both BCNF decompositions are attempted. How long decomposing the input
+ * relation takes cannot be told from n and |F| alone: each violating
+ * dependency splits the relation in two, but more dependencies also make
+ * smaller relations reach BCNF sooner, and measured runs took longest at a
+ * middling |F|. Instead of being estimated, that decomposition is therefore
+ * given a budget of {@link #DIRECT_BCNF_CLOSURE_LIMIT} closures (see
+ * {@link AnalysisBudget}) and skipped when it runs out; only the 3NF relations
+ * are then decomposed.
+ * Each choice can be forced, for example to benchmark the strategies against
+ * each other. Plans are logged at level FINE.
+ * @author Raymond Cho
+ *
+ */
+public class AnalysisPlanner {
+	/**
+	 * Closures the BCNF decomposition of the input relation may compute, about
+	 * five seconds of work on a desktop JVM at the measured 100 closures per
+	 * millisecond.
+	 */
+	public static final long DIRECT_BCNF_CLOSURE_LIMIT = 500000;
+
+	private static final Logger LOGGER = Logger.getLogger(AnalysisPlanner.class.getName());
+	private static final ClosureBackend[] BACKENDS = { CalculateClosure.FIXPOINT, CalculateClosure.LINEAR,
+			CalculateClosure.WATCHED_LITERALS };
+
+	private static ClosureBackend forcedClosureBackend;
+	private static AnalysisPlan.KeySearch forcedKeySearch;
+	private static AnalysisPlan.Decomposition forcedDecomposition;
+
+	/**
+	 * @param relation
+	 * @return The relation's plan, which is chosen and logged on the first call.
+	 */
+	public static AnalysisPlan planFor(final Relation relation) {
+		AnalysisPlan plan = relation.getPlan();
+		if (plan == null) {
+			plan = plan(relation);
+			relation.setPlan(plan);
+			if (LOGGER.isLoggable(Level.FINE)) {
+				LOGGER.fine("Plan of " + relation.getName() + " (" + relation.getAttributes().size() + " attributes, "
+						+ relation.getInputFDs().size() + " FDs): " + plan);
+			}
+		}
+		return plan;
+	}
+
+	/**
+	 * @param relation
+	 * @return Cheapest plan by estimated cost, with the forced choices applied.
+	 */
+	public static AnalysisPlan plan(final Relation relation) {
+		int n = relation.getAttributes().size();
+		int fdCount = 0;
+		int lhsTotal = 0;
+		Set<Attribute> left = new HashSet<>();
+		Set<Attribute> right = new HashSet<>();
+		for (FunctionalDependency f : relation.getInputFDs()) {
+			fdCount++;
+			lhsTotal += f.getLeftHandAttributes().size();
+			left.addAll(f.getLeftHandAttributes());
+			right.addAll(f.getRightHandAttributes());
+		}
+		int bothSides = 0;
+		int inDependencies = 0;
+		for (Attribute a : relation.getAttributes()) {
+			boolean isLeft = left.contains(a);
+			boolean isRight = right.contains(a);
+			if (isLeft && isRight) {
+				bothSides++;
+			}
+			if (isLeft || isRight) {
+				inDependencies++;
+			}
+		}
+		double averageLhs = fdCount == 0 ? 0 : (double) lhsTotal / fdCount;
+
+		ClosureBackend backend = forcedClosureBackend;
+		if (backend == null) {
+			backend = BACKENDS[0];
+			for (ClosureBackend candidate : BACKENDS) {
+				if (closureCost(candidate, n, fdCount, averageLhs, bothSides) < closureCost(backend, n, fdCount, averageLhs, bothSides)) {
+					backend = candidate;
+				}
+			}
+		}
+
+		AnalysisPlan.KeySearch keySearch = forcedKeySearch;
+		if (keySearch == null) {
+			keySearch = AnalysisPlan.KeySearch.LATTICE;
+			for (AnalysisPlan.KeySearch candidate : AnalysisPlan.KeySearch.values()) {
+				if (keySearchCost(candidate, n, fdCount, averageLhs, inDependencies, bothSides, backend)
+						< keySearchCost(keySearch, n, fdCount, averageLhs, inDependencies, bothSides, backend)) {
+					keySearch = candidate;
+				}
+			}
+		}
+
+		AnalysisPlan.Decomposition decomposition = forcedDecomposition;
+		if (decomposition == null) {
+			decomposition = AnalysisPlan.Decomposition.BOTH;
+		}
+
+		return new AnalysisPlan(backend, keySearch, decomposition, closureCost(backend, n, fdCount, averageLhs, bothSides),
+				keySearchCost(keySearch, n, fdCount, averageLhs, inDependencies, bothSides, backend),
+				forcedClosureBackend != null || forcedKeySearch != null || forcedDecomposition != null);
+	}
+
+	/**
+	 * @return Estimated cost of one closure query, including the preparation of the backend.
+	 */
+	protected static double closureCost(final ClosureBackend backend, final int n, final int fdCount,
+			final double averageLhs, final int bothSides) {
+		double scan = fdCount * Math.max(1, averageLhs);
+		if (backend == CalculateClosure.FIXPOINT) {
+			// One pass per derived attribute, plus the pass that finds nothing new.
+			return scan * Math.min(bothSides + 1, fdCount + 1);
+		}
+		if (backend == CalculateClosure.WATCHED_LITERALS) {
+			return scan + fdCount + 2 * n;
+		}
+		return 2 * scan + n;
+	}
+
+	/**
+	 * @return Estimated cost of preparing the closures and searching the keys.
+	 */
+	protected static double keySearchCost(final AnalysisPlan.KeySearch keySearch, final int n, final int fdCount,
+			final double averageLhs, final int inDependencies, final int bothSides, final ClosureBackend backend) {
+		// BatchClosure closes up to 64 sets in one scan of the dependencies.
+		double batch = fdCount * Math.max(1, averageLhs) + n;
+		double perClosure = batch / BatchClosure.BATCH_SIZE;
+		double equivalence = n * perClosure;
+		double lattice = equivalence + Math.pow(2, inDependencies) * perClosure + 2 * (n - inDependencies);
+		switch (keySearch) {
+		case EXHAUSTIVE:
+			return Math.pow(2, n) * (closureCost(backend, n, fdCount, averageLhs, bothSides) + n) + lattice;
+		case PRUNED:
+			// Without the table, every later closure query (the minimal cover checks
+			// and the short closure walks of the normal form checks) costs a batch.
+			double laterQueries = fdCount * Math.max(1, averageLhs) + n;
+			return equivalence + batch + Math.pow(2, bothSides) * perClosure + laterQueries * batch;
+		default:
+			return lattice;
+		}
+	}
+
+	/**
+	 * @param name
+	 * @return Closure backend with the given name, or null if there is none.
+	 */
+	public static ClosureBackend getBackend(final String name) {
+		for (ClosureBackend backend : BACKENDS) {
+			if (backend.getName().equals(name)) {
+				return backend;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param name
+	 * @return Key search with the given name, or null if there is none.
+	 */
+	public static AnalysisPlan.KeySearch getKeySearch(final String name) {
+		for (AnalysisPlan.KeySearch keySearch : AnalysisPlan.KeySearch.values()) {
+			if (keySearch.getName().equals(name)) {
+				return keySearch;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param name
+	 * @return Decomposition with the given name, or null if there is none.
+	 */
+	public static AnalysisPlan.Decomposition getDecomposition(final String name) {
+		for (AnalysisPlan.Decomposition decomposition : AnalysisPlan.Decomposition.values()) {
+			if (decomposition.getName().equals(name)) {
+				return decomposition;
+			}
+		}
+		return null;
+	}
+
+	public static ClosureBackend getForcedClosureBackend() {
+		return forcedClosureBackend;
+	}
+
+	/**
+	 * @param backend
+	 *            Backend every plan uses, or null to choose by cost.
+	 */
+	public static void setForcedClosureBackend(final ClosureBackend backend) {
+		forcedClosureBackend = backend;
+	}
+
+	public static AnalysisPlan.KeySearch getForcedKeySearch() {
+		return forcedKeySearch;
+	}
+
+	/**
+	 * @param keySearch
+	 *            Key search every plan uses, or null to choose by cost.
+	 */
+	public static void setForcedKeySearch(final AnalysisPlan.KeySearch keySearch) {
+		forcedKeySearch = keySearch;
+	}
+
+	public static AnalysisPlan.Decomposition getForcedDecomposition() {
+		return forcedDecomposition;
+	}
+
+	/**
+	 * @param decomposition
+	 *            Decomposition every plan uses, or null to choose by cost.
+	 */
+	public static void setForcedDecomposition(final AnalysisPlan.Decomposition decomposition) {
+		forcedDecomposition = decomposition;
+	}
+}
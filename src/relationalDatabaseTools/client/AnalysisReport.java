@@ -0,0 +1,361 @@
+package relationalDatabaseTools.client;
+
+import java.util.Iterator;
+import java.util.List;
+
+import relationalDatabaseTools.client.AnalysisMetrics.Stage;
+
+/**
+ * Calculates the analysis of a relation and writes it section by section to an
+ * {@link AnalysisOutput}, in the order and wording of the user interface. The
+ * work is split into steps so that the caller decides when to run them: the
+ * user interface runs them a time slice at a time on the page, and the
+ * {@link AnalysisWorker} runs them in a Web Worker. The attribute closures and
+ * the derived functional dependencies are produced and written
+ * {@link #ITEMS_PER_STEP} at a time, as lists (see
+ * {@link AnalysisOutput#beginList()}); each other section is one step. The
+ * sections from the minimal cover on are written by a {@link DependencyReport},
+ * which the caller sets before they are reached. Instead of the derived
+ * functional dependencies, the report can list the closed sets of attributes
+ * and the canonical basis (see {@link #setCanonicalBasisReport(boolean)}).
+ * @author Raymond Cho
+ *
+ */
+public class AnalysisReport {
+	/**
+	 * Number of closures or derived functional dependencies produced and written in one step.
+	 */
+	public static final int ITEMS_PER_STEP = 100;
+	
+	/**
+	 * Sections of the output, in the order they are calculated.
+	 */
+	public enum Section {
+		CLOSURES("attribute closures"),
+		KEYS("keys"),
+		MINIMAL_COVER("minimal cover"),
+		DERIVED_FDS("derived functional dependencies"),
+		NORMAL_FORMS("normal forms"),
+		THREE_NF("3NF decomposition"),
+		BCNF("BCNF decomposition");
+		
+		private final String description;
+		
+		Section(final String description) {
+			this.description = description;
+		}
+		
+		public String getDescription() {
+			return description;
+		}
+	}
+	
+	private final Relation relation;
+	private final AnalysisOutput output;
+	private Section section = Section.CLOSURES;
+	private Iterator<Closure> closures;
+	private long closuresShown;
+	private Iterator<Closure> derivationClosures;
+	private int derivedFDsShown = -1;
+	private boolean canonicalBasisReport;
+	private Iterator<List<Attribute>> closedSets;
+	private long closedSetsShown;
+	private DependencyReport dependencyReport;
+	
+	/**
+	 * @param relation
+	 *            Relation with its input dependencies, which passed the integrity checks.
+	 * @param output
+	 */
+	public AnalysisReport(final Relation relation, final AnalysisOutput output) {
+		if (relation == null || output == null) {
+			throw new IllegalArgumentException("Input relation or output is null.");
+		}
+		this.relation = relation;
+		this.output = output;
+	}
+	
+	public Relation getRelation() {
+		return relation;
+	}
+	
+	public AnalysisOutput getOutput() {
+		return output;
+	}
+	
+	public Section getSection() {
+		return section;
+	}
+	
+	/**
+	 * @return True if the next step needs a {@link DependencyReport}, which has not been set.
+	 */
+	public boolean isWaitingForDependencyReport() {
+		return dependencyReport == null && section.compareTo(Section.MINIMAL_COVER) >= 0;
+	}
+	
+	/**
+	 * @param dependencyReport
+	 *            Writes the minimal cover, normal form and decomposition sections
+	 *            of this report; must be set before the minimal cover section.
+	 */
+	public void setDependencyReport(final DependencyReport dependencyReport) {
+		if (dependencyReport == null) {
+			throw new IllegalArgumentException("Input dependency report is null.");
+		}
+		this.dependencyReport = dependencyReport;
+	}
+	
+	/**
+	 * @param canonicalBasisReport
+	 *            True to write the closed sets of attributes and the canonical
+	 *            basis in place of a derived functional dependency for every
+	 *            subset whose closure adds attributes; must be set before the
+	 *            derived functional dependencies section.
+	 */
+	public void setCanonicalBasisReport(final boolean canonicalBasisReport) {
+		this.canonicalBasisReport = canonicalBasisReport;
+	}
+	
+	private DependencyReport getDependencyReport() {
+		if (dependencyReport == null) {
+			throw new IllegalStateException("Dependency report of the " + section.getDescription() + " has not been set.");
+		}
+		return dependencyReport;
+	}
+	
+	/**
+	 * Runs the next step of the current section and writes its output.
+	 * @return False once the last section has been written.
+	 */
+	public boolean step() {
+		switch (section) {
+		case CLOSURES:
+			if (closures == null) {
+				// Print out closure of given attributes and keys
+				output.appendMajorBreak();
+				CalculateClosure.improvedCalculateClosures(relation);
+				output.append("Calculating attribute closures: ", true);
+				closures = relation.iterateClosures().iterator();
+				output.beginList();
+			}
+			for (int i = 0; i < ITEMS_PER_STEP && closures.hasNext(); i++) {
+				renderClosure(closures.next());
+				closuresShown++;
+			}
+			if (!closures.hasNext()) {
+				output.endList();
+				section = Section.KEYS;
+			}
+			return true;
+		case KEYS:
+			renderKeys();
+			section = Section.MINIMAL_COVER;
+			return true;
+		case MINIMAL_COVER:
+			getDependencyReport().renderMinimalCover();
+			section = Section.DERIVED_FDS;
+			return true;
+		case DERIVED_FDS:
+			if (canonicalBasisReport) {
+				stepCanonicalBasis();
+				return true;
+			}
+			if (derivationClosures == null) {
+				// Print out derived functional dependencies
+				output.appendMajorBreak();
+				derivationClosures = relation.iterateClosures().iterator();
+			}
+			if (derivedFDsShown < 0) {
+				if (!CalculateFDs.calculateDerivedFDs(relation, derivationClosures, ITEMS_PER_STEP)) {
+					output.append("Calculating complete set of non-trivial functional dependencies based on the given ones: ", true);
+					if (relation.getDerivedFDs().isEmpty()) {
+						output.append("There are no new functional dependencies aside from the pre-existing ones.", true);
+					} else {
+						output.append("Full set of non-trivial functional dependencies: ", true);
+						output.beginList();
+					}
+					derivedFDsShown = 0;
+				}
+				return true;
+			}
+			List<FunctionalDependency> derivedFDs = relation.getDerivedFDs();
+			for (int i = 0; i < ITEMS_PER_STEP && derivedFDsShown < derivedFDs.size(); i++) {
+				output.append(derivedFDs.get(derivedFDsShown++).getFDName(), true);
+			}
+			if (derivedFDsShown == derivedFDs.size()) {
+				if (!derivedFDs.isEmpty()) {
+					output.endList();
+				}
+				section = Section.NORMAL_FORMS;
+			}
+			return true;
+		case NORMAL_FORMS:
+			getDependencyReport().renderNormalForms();
+			section = Section.THREE_NF;
+			return true;
+		case THREE_NF:
+			getDependencyReport().render3NFDecomposition();
+			section = Section.BCNF;
+			return true;
+		default:
+			getDependencyReport().renderBCNFDecomposition();
+			return false;
+		}
+	}
+	
+	/**
+	 * @return Description of the current section and how far it has been written.
+	 */
+	public String describeProgress() {
+		String progress = "Calculating " + section.getDescription() + " (step " + (section.ordinal() + 1) + " of "
+				+ Section.values().length + ")";
+		if (section == Section.CLOSURES && closures != null) {
+			long total = (1L << relation.getAttributes().size()) - 1;
+			progress += ": " + closuresShown + " of " + total + " shown";
+		} else if (section == Section.DERIVED_FDS && derivedFDsShown >= 0) {
+			progress += ": " + derivedFDsShown + " of " + relation.getDerivedFDs().size() + " shown";
+		} else if (section == Section.DERIVED_FDS && closedSets != null) {
+			progress += ": " + closedSetsShown + " closed sets shown";
+		}
+		return progress + "...";
+	}
+	
+	/**
+	 * Writes the next closed sets, and the canonical basis once they have all been written.
+	 */
+	private void stepCanonicalBasis() {
+		AnalysisMetrics metrics = AnalysisMetrics.begin(Stage.DERIVED_FDS, relation);
+		try {
+			if (closedSets == null) {
+				output.appendMajorBreak();
+				output.append("Listing the closed sets of attributes (sets of attributes that are their own closure), in lectic order: ", true);
+				closedSets = new ClosedSets(relation).iterator();
+				output.beginList();
+			}
+			for (int i = 0; i < ITEMS_PER_STEP && closedSets.hasNext(); i++) {
+				renderAttributeSet(closedSets.next());
+				closedSetsShown++;
+			}
+		} finally {
+			metrics.end(Stage.DERIVED_FDS);
+		}
+		if (closedSets.hasNext()) {
+			return;
+		}
+		output.endList();
+		CalculateFDs.calculateCanonicalBasis(relation);
+		List<FunctionalDependency> basis = relation.getCanonicalBasis();
+		output.append("Calculating the canonical (Duquenne-Guigues) basis: the smallest set of functional dependencies "
+				+ "from which every functional dependency that follows from the given ones can be derived: ", true);
+		if (basis.isEmpty()) {
+			output.append("There are no non-trivial functional dependencies.", true);
+		} else {
+			output.beginList();
+			for (FunctionalDependency fd : basis) {
+				output.append(fd.getFDName(), true);
+			}
+			output.endList();
+		}
+		section = Section.NORMAL_FORMS;
+	}
+	
+	private void renderAttributeSet(final List<Attribute> attributes) {
+		output.append("{", true);
+		for (int i = 0; i < attributes.size(); i++) {
+			output.append(attributes.get(i).getName(), false);
+			if (i < attributes.size() - 1) {
+				output.append(", ", false);
+			}
+		}
+		output.append("}", false);
+	}
+	
+	private void renderClosure(final Closure closure) {
+		List<Attribute> left = closure.getClosureOf();
+		List<Attribute> right = closure.getClosure();
+		output.append("{", true);
+		for (int i = 0; i < left.size(); i++) {
+			output.append(left.get(i).getName(), false);
+			if (i < left.size() - 1) {
+				output.append(", ", false);
+			}
+		}
+		output.append("}+ = {", false);
+		for (int i = 0; i < right.size(); i++) {
+			output.append(right.get(i).getName(), false);
+			if (i < right.size() - 1) {
+				output.append(", ", false);
+			}
+		}
+		output.append("}", false);
+		if (relation.isMinimumKeyClosure(closure)) {
+			if (closure.getClosureOf().size() == 1) {
+				output.append(" " + RDTUtils.LONG_LEFTWARDS_ARROW + " Minimum candidate key", false);
+			} else {
+				output.append(" " + RDTUtils.LONG_LEFTWARDS_ARROW + " Composite minimum candidate key", false);
+			}
+		}
+		if (relation.isSuperKeyClosure(closure)) {
+			output.append(" " + RDTUtils.LONG_LEFTWARDS_ARROW + " Superkey", false);
+		}
+	}
+	
+	private void renderKeys() {
+		// Print out number of minimum candidate keys and superkeys
+		output.appendMajorBreak();
+		int minKeys = relation.getMinimumKeyClosures().size();
+		int minCompKeys = 0;
+		for (Closure c : relation.getMinimumKeyClosures()) {
+			if (c.getClosureOf().size() > 1) {
+				minCompKeys++;
+			}
+		}
+		if (minKeys == 1) {
+			if (minCompKeys == 0) {
+				output.append("Found 1 minimum candidate key. There are no composite minimum candidate keys.", true);
+			} else {
+				output.append("Found 1 composite minimum candidate key. There are no non-composite minimum candidate keys.", true);
+			}
+		} else {
+			output.append("Found " + relation.getMinimumKeyClosures().size() + " minimum candidate keys, ", true);
+			if (minCompKeys == 1) {
+				output.append("of which 1 is a composite minimum candidate key.", false);
+			} else {
+				output.append("of which " + minCompKeys + " are composite minimum candidate keys.", false);
+			}
+		}
+		int numSuperKeys = relation.getSuperKeyClosures().size();
+		if (numSuperKeys == 1) {
+			output.append("Found 1 superkey (excluding minimum candidate keys).", true);
+		} else {
+			output.append("Found " + relation.getSuperKeyClosures().size() + " superkeys (excluding minimum candidate keys).", true);
+		}
+		
+
+		// Print out prime and non-prime attributes
+		output.appendMajorBreak();
+		output.append("List of prime attributes (attributes that are part of a minimum candidate key): ", true);
+		List<Attribute> primes = relation.getPrimeAttributes();
+		for (int i = 0; i < primes.size(); i++) {
+			output.append(primes.get(i).getName(), false);
+			if (i < primes.size() - 1) {
+				output.append(", ", false);
+			}
+		}
+		output.append(".", false);
+		output.append("List of non-prime attributes (attributes that are not part of any minimum candidate key): ", true);
+		List<Attribute> nonPrimes = relation.getNonPrimeAttributes();
+		if (nonPrimes.isEmpty()) {
+			output.append("(none).", false);
+		} else {
+			for (int i = 0; i < nonPrimes.size(); i++) {
+				output.append(nonPrimes.get(i).getName(), false);
+				if (i < nonPrimes.size() - 1) {
+					output.append(", ", false);
+				}
+			}
+			output.append(".", false);
+		}
+	}
+}
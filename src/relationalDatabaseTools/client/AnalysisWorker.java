@@ -0,0 +1,95 @@
+package relationalDatabaseTools.client;
+
+import java.util.List;
+
+import com.google.gwt.core.client.EntryPoint;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayString;
+
+/**
+ * Entry point of the AnalysisWorker module, which runs the analysis inside a
+ * Web Worker; {@link WorkerAnalysis} is the page's side. The worker receives
+ * an array of the relation schema, the functional dependencies and the
+ * multivalued dependencies as entered, and {@link #CANONICAL_BASIS} for a
+ * report of the canonical basis (see
+ * {@link AnalysisReport#setCanonicalBasisReport(boolean)}) or an empty string.
+ * It answers with arrays whose first element is the message type:
+ * <ul>
+ * <li>{@link #OUTPUT}, followed by {@link SerializedOutput} entries;</li>
+ * <li>{@link #PROGRESS}, followed by the description of the next step;</li>
+ * <li>{@link #DONE}, once the report is complete;</li>
+ * <li>{@link #ERROR}, followed by a message, if the analysis failed.</li>
+ * </ul>
+ * Output is posted after every step of the {@link AnalysisReport}, so the page
+ * shows each section as soon as it is ready.
+ * @author Raymond Cho
+ *
+ */
+public class AnalysisWorker implements EntryPoint {
+	public static final String OUTPUT = "output";
+	public static final String PROGRESS = "progress";
+	public static final String DONE = "done";
+	public static final String ERROR = "error";
+	public static final String CANONICAL_BASIS = "canonicalBasis";
+	
+	@Override
+	public void onModuleLoad() {
+		listen();
+	}
+	
+	private static native void listen() /*-{
+		$wnd.onmessage = $entry(function(event) {
+			@relationalDatabaseTools.client.AnalysisWorker::analyze(Lcom/google/gwt/core/client/JsArrayString;)(event.data);
+		});
+	}-*/;
+	
+	private static void analyze(final JsArrayString input) {
+		try {
+			Relation relation = new Relation(input.get(0));
+			relation.addFunctionalDependencies(input.get(1));
+			relation.addMultivaluedDependencies(input.get(2));
+			if (!relation.hasPassedIntegrityChecks()) {
+				post(ERROR, relation.getIntegrityCheckErrorMsg());
+				return;
+			}
+			SerializedOutput output = new SerializedOutput();
+			AnalysisReport report = new AnalysisReport(relation, output);
+			report.setDependencyReport(new DependencyReport(relation, output));
+			report.setCanonicalBasisReport(CANONICAL_BASIS.equals(input.get(3)));
+			boolean hasNextStep;
+			do {
+				hasNextStep = report.step();
+				List<String> entries = output.takeEntries();
+				if (!entries.isEmpty()) {
+					JsArrayString message = createMessage(OUTPUT);
+					for (String entry : entries) {
+						message.push(entry);
+					}
+					post(message);
+				}
+				if (hasNextStep) {
+					post(PROGRESS, report.describeProgress());
+				}
+			} while (hasNextStep);
+			post(createMessage(DONE));
+		} catch (RuntimeException e) {
+			post(ERROR, "Analysis failed: " + e.getMessage());
+		}
+	}
+	
+	private static JsArrayString createMessage(final String type) {
+		JsArrayString message = JavaScriptObject.createArray().cast();
+		message.push(type);
+		return message;
+	}
+	
+	private static void post(final String type, final String text) {
+		JsArrayString message = createMessage(type);
+		message.push(text);
+		post(message);
+	}
+	
+	private static native void post(final JsArrayString message) /*-{
+		$wnd.postMessage(message);
+	}-*/;
+}
@@ -0,0 +1,278 @@
+package relationalDatabaseTools.client;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Sample table of a relation that satisfies exactly the functional
+ * dependencies that follow from the input ones and violates every other: an
+ * Armstrong relation. It is built from the maximal sets, for each attribute A
+ * the maximal sets of attributes that do not determine A. These are exactly
+ * the closed sets that are not the intersection of larger closed sets, and
+ * every closed set other than the set of all attributes is an intersection of
+ * them. The table has a first row of zeros and one row per maximal set, whose
+ * i-th row is 0 in the attributes of the i-th set and i in the others. Two rows
+ * then agree exactly on a closed set, so X -> A holds in the table exactly when
+ * A is in the closure of X.
+ * <p>
+ * The maximal sets of A are found by dualizing instead of closing every
+ * subset: the complements of the maximal sets found so far form a hypergraph,
+ * and each minimal transversal of it either determines A, and is a minimal
+ * left-hand side of A, or can be extended to a new maximal set. The minimal
+ * transversals are updated edge by edge (Berge's algorithm) until all of them
+ * determine A. Attribute sets are handled as bit masks, so relations are
+ * limited to {@link ClosedSets#MAX_ATTRIBUTES} attributes.
+ * @author Raymond Cho
+ *
+ */
+public class ArmstrongRelation implements Iterable<String> {
+	private final List<Attribute> attributes;
+	private final ClosedSets closedSets;
+	private final long fullSet;
+	private final List<Long> maximalSets;
+
+	/**
+	 * @param relation
+	 *            Relation with its input functional dependencies, at most
+	 *            {@link ClosedSets#MAX_ATTRIBUTES} attributes.
+	 */
+	public ArmstrongRelation(final Relation relation) {
+		this.closedSets = new ClosedSets(relation);
+		this.attributes = relation.getAttributes();
+		this.fullSet = attributes.size() == ClosedSets.MAX_ATTRIBUTES ? -1L : (1L << attributes.size()) - 1;
+		Set<Long> found = new LinkedHashSet<>();
+		for (int i = 0; i < attributes.size(); i++) {
+			found.addAll(findMaximalSets(i));
+		}
+		this.maximalSets = new ArrayList<>(found);
+	}
+
+	/**
+	 * @return Maximal sets of every attribute, without repeats, in attribute order.
+	 */
+	public List<List<Attribute>> getMaximalSets() {
+		List<List<Attribute>> result = new ArrayList<>();
+		for (long set : maximalSets) {
+			result.add(closedSets.toAttributes(set));
+		}
+		return result;
+	}
+
+	/**
+	 * @return Number of rows of the table, without the header.
+	 */
+	public int getRowCount() {
+		return maximalSets.size() + 1;
+	}
+
+	/**
+	 * @return Lines of the table as comma-separated values, without line
+	 *         breaks: a header of the attribute names, then the rows, each
+	 *         built when it is reached.
+	 */
+	@Override
+	public Iterator<String> iterator() {
+		return new Iterator<String>() {
+			private int line = 0;
+
+			@Override
+			public boolean hasNext() {
+				return line <= getRowCount();
+			}
+
+			@Override
+			public String next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				String result = line == 0 ? toHeader() : toRow(line - 1);
+				line++;
+				return result;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	private String toHeader() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < attributes.size(); i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			appendField(sb, attributes.get(i).getName());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @param row
+	 *            0 for the row of zeros, i for the row of the i-th maximal set.
+	 */
+	private String toRow(final int row) {
+		long zeros = row == 0 ? fullSet : maximalSets.get(row - 1);
+		String value = String.valueOf(row);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < attributes.size(); i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append((zeros & (1L << i)) != 0 ? "0" : value);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Quotes fields that contain a separator, quote or line break.
+	 */
+	private static void appendField(final StringBuilder sb, final String field) {
+		boolean quote = false;
+		for (int i = 0; i < field.length() && !quote; i++) {
+			char c = field.charAt(i);
+			quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+		}
+		if (!quote) {
+			sb.append(field);
+			return;
+		}
+		sb.append('"');
+		for (int i = 0; i < field.length(); i++) {
+			char c = field.charAt(i);
+			if (c == '"') {
+				sb.append('"');
+			}
+			sb.append(c);
+		}
+		sb.append('"');
+	}
+
+	/**
+	 * @param attribute
+	 *            Index of attribute A.
+	 * @return Maximal sets of attributes that do not determine A.
+	 */
+	private List<Long> findMaximalSets(final int attribute) {
+		long target = 1L << attribute;
+		long others = fullSet & ~target;
+		List<Long> result = new ArrayList<>();
+		if (determines(0, target)) {
+			return result;
+		}
+		// Minimal transversals of the complements of the maximal sets, and
+		// whether each is known to determine A; the empty hypergraph has the
+		// empty set as its only minimal transversal.
+		List<Long> transversals = new ArrayList<>();
+		List<Boolean> determining = new ArrayList<>();
+		transversals.add(0L);
+		determining.add(false);
+		int i = 0;
+		while (i < transversals.size()) {
+			if (determining.get(i)) {
+				i++;
+				continue;
+			}
+			long transversal = transversals.get(i);
+			if (determines(transversal, target)) {
+				determining.set(i, true);
+				i++;
+				continue;
+			}
+			long maximal = extend(transversal, target);
+			result.add(maximal);
+			addEdge(transversals, determining, others & ~maximal);
+			i = 0;
+		}
+		return result;
+	}
+
+	private boolean determines(final long set, final long target) {
+		return (closedSets.close(set) & target) != 0;
+	}
+
+	/**
+	 * @return Maximal superset of the set that does not determine the target.
+	 */
+	private long extend(final long set, final long target) {
+		long result = closedSets.close(set);
+		for (int i = 0; i < attributes.size(); i++) {
+			long bit = 1L << i;
+			if ((result & bit) == 0 && bit != target) {
+				long closure = closedSets.close(result | bit);
+				if ((closure & target) == 0) {
+					result = closure;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Updates the minimal transversals for a new edge: transversals that meet
+	 * the edge stay, the others are extended by each attribute of the edge and
+	 * kept if no other transversal is contained in them. Transversals that
+	 * determine A are not subsets of a maximal set, so they always meet the
+	 * new edge and stay.
+	 */
+	private static void addEdge(final List<Long> transversals, final List<Boolean> determining, final long edge) {
+		List<Long> kept = new ArrayList<>();
+		List<Boolean> keptDetermining = new ArrayList<>();
+		List<Long> extended = new ArrayList<>();
+		for (int i = 0; i < transversals.size(); i++) {
+			long transversal = transversals.get(i);
+			if ((transversal & edge) != 0) {
+				kept.add(transversal);
+				keptDetermining.add(determining.get(i));
+			} else {
+				extended.add(transversal);
+			}
+		}
+		int keptCount = kept.size();
+		for (long transversal : extended) {
+			long remaining = edge;
+			while (remaining != 0) {
+				long bit = Long.lowestOneBit(remaining);
+				remaining &= ~bit;
+				long candidate = transversal | bit;
+				if (!containsSubsetOf(kept, keptCount, candidate) && !kept.subList(keptCount, kept.size()).contains(candidate)) {
+					kept.add(candidate);
+					keptDetermining.add(false);
+				}
+			}
+		}
+		// Extended candidates are minimal unless they contain another extended candidate.
+		transversals.clear();
+		determining.clear();
+		for (int i = 0; i < kept.size(); i++) {
+			if (i < keptCount || !containsProperSubsetOf(kept, keptCount, kept.get(i))) {
+				transversals.add(kept.get(i));
+				determining.add(keptDetermining.get(i));
+			}
+		}
+	}
+
+	private static boolean containsSubsetOf(final List<Long> sets, final int count, final long set) {
+		for (int i = 0; i < count; i++) {
+			if ((sets.get(i) & set) == sets.get(i)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean containsProperSubsetOf(final List<Long> sets, final int from, final long set) {
+		for (int i = from; i < sets.size(); i++) {
+			long other = sets.get(i);
+			if (other != set && (other & set) == other) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,111 @@
+package relationalDatabaseTools.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Groups a relation's attributes that functionally determine each other, such as
+ * ID and CODE under ID -> CODE; CODE -> ID. Attribute B is reachable from A when
+ * B is in the closure of {A}, so the groups are the strongly connected components
+ * of the single-attribute determination graph.
+ *
+ * Attributes in the same group are interchangeable: the closure of a set of
+ * attributes only depends on which groups it touches, and a minimum key contains
+ * at most one attribute of each group. {@link ClosureLattice} therefore only
+ * visits subsets of one representative per group during closure enumeration and
+ * key search, and expands its results back onto the original attributes.
+ * @author Raymond Cho
+ *
+ */
+public class AttributeEquivalence {
+	private final List<Attribute> attributes;
+	private final List<List<Attribute>> groups;
+	private final int[] groupOf;
+	private final int[] representatives;
+
+	public AttributeEquivalence(final Relation relation) {
+		this(relation.getAttributes(), new BatchClosure(relation.getAttributes(), relation.getInputFDs()));
+	}
+
+	/**
+	 * @param attributes
+	 *            The relation's attributes.
+	 * @param batchClosure
+	 *            Batch closure over the relation's functional dependencies that
+	 *            numbers the relation's attributes first.
+	 */
+	protected AttributeEquivalence(final List<Attribute> attributes, final BatchClosure batchClosure) {
+		if (attributes.size() >= BatchClosure.BATCH_SIZE - 1) {
+			throw new IllegalArgumentException("Cannot enumerate the power set of " + attributes.size() + " attributes.");
+		}
+		this.attributes = attributes;
+		int n = attributes.size();
+		long[] singletons = new long[n];
+		for (int i = 0; i < n; i++) {
+			singletons[i] = 1L << i;
+		}
+		long[] singletonClosures = batchClosure.closeSubsets(singletons);
+		this.groups = new ArrayList<>();
+		this.groupOf = new int[n];
+		List<Integer> representativeIds = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			groupOf[i] = -1;
+		}
+		for (int i = 0; i < n; i++) {
+			if (groupOf[i] >= 0) {
+				continue;
+			}
+			int group = groups.size();
+			List<Attribute> members = new ArrayList<>();
+			for (int j = i; j < n; j++) {
+				if (groupOf[j] < 0 && (j == i || ((singletonClosures[i] & (1L << j)) != 0
+						&& (singletonClosures[j] & (1L << i)) != 0))) {
+					groupOf[j] = group;
+					members.add(attributes.get(j));
+				}
+			}
+			groups.add(members);
+			representativeIds.add(i);
+		}
+		this.representatives = new int[representativeIds.size()];
+		for (int g = 0; g < representatives.length; g++) {
+			representatives[g] = representativeIds.get(g);
+		}
+	}
+
+	/**
+	 * @return Groups of mutually determining attributes, in the order of their
+	 *         first attribute; each group's first attribute is its representative.
+	 */
+	public List<List<Attribute>> getGroups() {
+		return groups;
+	}
+
+	/**
+	 * @return True if at least one group holds more than one attribute.
+	 */
+	public boolean hasCollapsedAttributes() {
+		return groups.size() < attributes.size();
+	}
+
+	protected int getGroupCount() {
+		return groups.size();
+	}
+
+	/**
+	 * @param attribute
+	 *            Position of an attribute in the relation.
+	 * @return Group of the attribute.
+	 */
+	protected int getGroupOf(final int attribute) {
+		return groupOf[attribute];
+	}
+
+	/**
+	 * @param group
+	 * @return Position in the relation of the group's representative.
+	 */
+	protected int getRepresentative(final int group) {
+		return representatives[group];
+	}
+}
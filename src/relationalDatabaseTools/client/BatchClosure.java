@@ -0,0 +1,199 @@
+package relationalDatabaseTools.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Calculates the closures of up to 64 attribute sets at once. The seed sets are
+ * stored transposed: one long per attribute, in which bit j is set when the
+ * attribute is in the closure of seed set j. A functional dependency X -> Y is
+ * then applied to all seed sets together by AND-ing the words of X and OR-ing
+ * the result into the words of Y, repeated until no word changes.
+ * @author Raymond Cho
+ *
+ */
+public class BatchClosure {
+	public static final int BATCH_SIZE = 64;
+
+	private final ClosureIndex index;
+	private final int[] sortedIds;
+
+	public BatchClosure(final List<FunctionalDependency> givenFDs) {
+		this(null, givenFDs);
+	}
+
+	/**
+	 * @param attributes
+	 *            Attributes numbered first, in the given order, so that callers
+	 *            working with attribute ids can address them by position (may be null).
+	 * @param givenFDs
+	 */
+	public BatchClosure(final List<Attribute> attributes, final List<FunctionalDependency> givenFDs) {
+		this.index = new ClosureIndex(attributes, givenFDs);
+		List<Attribute> sorted = new ArrayList<>();
+		for (int i = 0; i < index.getAttributeCount(); i++) {
+			sorted.add(index.getAttribute(i));
+		}
+		Collections.sort(sorted);
+		this.sortedIds = new int[sorted.size()];
+		for (int i = 0; i < sortedIds.length; i++) {
+			sortedIds[i] = index.getAttributeId(sorted.get(i));
+		}
+	}
+
+	/**
+	 * @param seeds
+	 *            At most {@link #BATCH_SIZE} attribute sets.
+	 * @return Closure of each seed set, in the same order as the input. Like
+	 *         {@link PreparedClosure#calculateClosureOf(List)}, the entry for a
+	 *         null or empty seed set is null.
+	 */
+	public List<Closure> calculateClosuresOf(final List<List<Attribute>> seeds) {
+		if (seeds.size() > BATCH_SIZE) {
+			throw new IllegalArgumentException("At most " + BATCH_SIZE + " attribute sets can be closed in one batch.");
+		}
+		long[] words = new long[index.getAttributeCount()];
+		for (int j = 0; j < seeds.size(); j++) {
+			if (seeds.get(j) == null) {
+				continue;
+			}
+			for (Attribute a : seeds.get(j)) {
+				int id = index.getAttributeId(a);
+				if (id >= 0) {
+					words[id] |= 1L << j;
+				}
+			}
+		}
+		propagate(words, seeds.size());
+		List<Closure> result = new ArrayList<>();
+		for (int j = 0; j < seeds.size(); j++) {
+			if (seeds.get(j) == null || seeds.get(j).isEmpty()) {
+				result.add(null);
+				continue;
+			}
+			AnalysisMetrics.countClosures(1);
+			boolean[] closed = new boolean[words.length];
+			for (int i = 0; i < words.length; i++) {
+				closed[i] = (words[i] & (1L << j)) != 0;
+			}
+			result.add(index.toClosure(seeds.get(j), closed));
+		}
+		return result;
+	}
+
+	/**
+	 * Calculates closures of attribute sets given as bit masks over attribute ids,
+	 * where bit i selects the attribute with id i. Requires that the index holds
+	 * at most 64 attributes.
+	 * @param subsets
+	 *            Seed sets as bit masks.
+	 * @param closures
+	 *            Receives the closure of each seed set as a bit mask.
+	 * @param offset
+	 *            Position of the first seed set to close.
+	 * @param count
+	 *            Number of seed sets to close, at most {@link #BATCH_SIZE}.
+	 */
+	protected void closeSubsets(final long[] subsets, final long[] closures, final int offset, final int count) {
+		if (index.getAttributeCount() > BATCH_SIZE) {
+			throw new IllegalArgumentException("Attribute sets of " + index.getAttributeCount() + " attributes do not fit in a bit mask.");
+		}
+		long[] words = new long[index.getAttributeCount()];
+		for (int j = 0; j < count; j++) {
+			long subset = subsets[offset + j];
+			for (int i = 0; subset != 0; i++, subset >>>= 1) {
+				if ((subset & 1L) != 0) {
+					words[i] |= 1L << j;
+				}
+			}
+		}
+		propagate(words, count);
+		AnalysisMetrics.countClosures(count);
+		for (int j = 0; j < count; j++) {
+			long bit = 1L << j;
+			long closure = 0;
+			for (int i = 0; i < words.length; i++) {
+				if ((words[i] & bit) != 0) {
+					closure |= 1L << i;
+				}
+			}
+			closures[offset + j] = closure;
+		}
+	}
+
+	/**
+	 * @param subsets
+	 *            Seed sets as bit masks over attribute ids.
+	 * @return Closure of each seed set as a bit mask.
+	 */
+	protected long[] closeSubsets(final long[] subsets) {
+		long[] closures = new long[subsets.length];
+		for (int offset = 0; offset < subsets.length; offset += BATCH_SIZE) {
+			closeSubsets(subsets, closures, offset, Math.min(BATCH_SIZE, subsets.length - offset));
+		}
+		return closures;
+	}
+
+	/**
+	 * @param subset
+	 *            Attribute set as a bit mask over attribute ids.
+	 * @param closure
+	 *            Its closure as a bit mask over attribute ids.
+	 * @return Closure object with both sides sorted.
+	 */
+	protected Closure toClosure(final long subset, final long closure) {
+		List<Attribute> leftSide = new ArrayList<>();
+		List<Attribute> rightSide = new ArrayList<>();
+		for (int id : sortedIds) {
+			if ((subset & (1L << id)) != 0) {
+				leftSide.add(index.getAttribute(id));
+			}
+			if ((closure & (1L << id)) != 0) {
+				rightSide.add(index.getAttribute(id));
+			}
+		}
+		return new Closure(leftSide, rightSide);
+	}
+
+	/**
+	 * Closes the transposed seed sets in place.
+	 * @param words
+	 *            One word per attribute id of this batch's index.
+	 * @param seedCount
+	 *            Number of seed sets (low-order bits) in use.
+	 */
+	protected void propagate(final long[] words, final int seedCount) {
+		long active = seedCount >= BATCH_SIZE ? -1L : (1L << seedCount) - 1;
+		long scanned = 0;
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			scanned += index.getFDCount();
+			for (int fd = 0; fd < index.getFDCount(); fd++) {
+				long mask = active;
+				for (int a : index.getLeftSide(fd)) {
+					mask &= words[a];
+					if (mask == 0) {
+						break;
+					}
+				}
+				if (mask == 0) {
+					continue;
+				}
+				for (int b : index.getRightSide(fd)) {
+					long updated = words[b] | mask;
+					if (updated != words[b]) {
+						words[b] = updated;
+						changed = true;
+					}
+				}
+			}
+		}
+		AnalysisMetrics.countFDsScanned(scanned);
+	}
+
+	protected ClosureIndex getIndex() {
+		return index;
+	}
+}
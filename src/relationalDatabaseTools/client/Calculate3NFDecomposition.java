@@ -3,6 +3,8 @@ package relationalDatabaseTools.client;
 import java.util.ArrayList;
 import java.util.List;
 
+import relationalDatabaseTools.client.AnalysisMetrics.Stage;
+
 /**
  * Used to decompose a relation not in Third normal form into relations that are
  * in Third normal form.
@@ -26,6 +28,15 @@ public class Calculate3NFDecomposition extends CalculateDecomposition {
 	}
 	
 	private void decompose(final boolean force3NFDecomposition) {
+		AnalysisMetrics metrics = AnalysisMetrics.begin(Stage.THREE_NF, getInputRelation());
+		try {
+			synthesize(force3NFDecomposition);
+		} finally {
+			metrics.end(Stage.THREE_NF);
+		}
+	}
+	
+	private void synthesize(final boolean force3NFDecomposition) {
 		if (getInputRelation().getMinimalCover().isEmpty()) {
 			setOutputMsgFlag(true);
 			setOutputMsg("No functional dependencies in minimal cover, therefore input relation is already in 3NF.");
@@ -3,6 +3,8 @@ package relationalDatabaseTools.client;
 import java.util.ArrayList;
 import java.util.List;
 
+import relationalDatabaseTools.client.AnalysisMetrics.Stage;
+
 /**
  * Used to decompose a relation not in Boyce-Codd normal form into a collection
  * of relations that are in Boyce-Codd normal form.
@@ -11,11 +13,21 @@ import java.util.List;
  * And if a 3NF decomposition was performed (such as if original relation was not in 3NF), then the second method
  * uses the decomposed 3NF relations as the sources. This sometimes makes a difference in the output in terms of
  * minimizing lost functional dependencies and number of decomposed relations.
+ * The first decomposition can grow exponentially, so it may compute at most
+ * {@link AnalysisPlanner#DIRECT_BCNF_CLOSURE_LIMIT} closures. When it runs out
+ * of closures, or the plan of the input relation (see {@link AnalysisPlanner})
+ * only decomposes the 3NF relations, the first decomposition is skipped (see
+ * {@link #isPureBCNFSkipped()}) and its results are null.
  * 
  * @author Raymond Cho
  * 
  */
 public class CalculateBCNFDecomposition extends CalculateDecomposition {
+	/**
+	 * Name under which each recursive decomposition step is reported to the {@link StageListener}.
+	 */
+	public static final String DECOMPOSITION_STEP = "BCNFDecompositionStep";
+
 	private final List<Relation> resultWithPossibleDuplicates;
 	private Calculate3NFDecomposition threenfDecomposition;
 	private List<Relation> bcnfDecomposedWithDuplicates;
@@ -24,6 +36,7 @@ public class CalculateBCNFDecomposition extends CalculateDecomposition {
 	private List<Relation> threeNFDecomposedRs;
 	private List<FunctionalDependency> pureBCNFLostFDs;
 	private List<FunctionalDependency> threeNFLostFDs;
+	private String pureBCNFSkippedMsg;
 	
 	public CalculateBCNFDecomposition(final Calculate3NFDecomposition threenfDecomposition) {
 		super(threenfDecomposition.getInputRelation());
@@ -44,17 +57,42 @@ public class CalculateBCNFDecomposition extends CalculateDecomposition {
 			return;
 		}
 		
-		BCNFDecomposeMethodWithout3NF();
-		if (threenfDecomposition.getOutputRelations().isEmpty()) {
-			threenfDecomposition.force3NFDecomposition();
-		}
-		if (!threenfDecomposition.getOutputRelations().isEmpty()) {
-			decomposeFrom3NF();
+		AnalysisMetrics metrics = AnalysisMetrics.begin(Stage.BCNF, getInputRelation());
+		try {
+			AnalysisPlan plan = getInputRelation().getPlan();
+			if (plan == null || plan.getDecomposition() == AnalysisPlan.Decomposition.BOTH) {
+				decomposeWithinLimit();
+			} else {
+				pureBCNFSkippedMsg = "Skipped decomposing the input relation into BCNF relations directly, since the analysis plan only decomposes the 3NF relations. ";
+			}
+			if (threenfDecomposition.getOutputRelations().isEmpty()) {
+				threenfDecomposition.force3NFDecomposition();
+			}
+			if (!threenfDecomposition.getOutputRelations().isEmpty()) {
+				decomposeFrom3NF();
+			}
+		} finally {
+			metrics.end(Stage.BCNF);
 		}
 
 		return;
 	}
 	
+	/**
+	 * @return True if the decomposition from the input relation was skipped,
+	 *         rather than not needed.
+	 */
+	public boolean isPureBCNFSkipped() {
+		return pureBCNFSkippedMsg != null;
+	}
+
+	/**
+	 * @return Why the decomposition from the input relation was skipped, or null.
+	 */
+	public String getPureBCNFSkippedMsg() {
+		return pureBCNFSkippedMsg;
+	}
+
 	public List<Relation> getPureBCNFDecomposedRs() {
 		return pureBCNFDecomposedRs;
 	}
@@ -79,8 +117,23 @@ public class CalculateBCNFDecomposition extends CalculateDecomposition {
 		return threeNFLostFDs;
 	}
 
+	private void decomposeWithinLimit() {
+		AnalysisBudget limit = AnalysisMetrics.beginLimit(AnalysisPlanner.DIRECT_BCNF_CLOSURE_LIMIT);
+		try {
+			BCNFDecomposeMethodWithout3NF();
+		} catch (AnalysisBudgetExceededException e) {
+			if (!limit.isExceeded()) {
+				throw e;
+			}
+			pureBCNFSkippedMsg = "Skipped decomposing the input relation into BCNF relations directly, since the decomposition needed more than "
+					+ AnalysisPlanner.DIRECT_BCNF_CLOSURE_LIMIT + " closures. ";
+		} finally {
+			AnalysisMetrics.endLimit(limit);
+		}
+	}
+	
 	private void BCNFDecomposeMethodWithout3NF() {
-		List<Relation> workingOutputRelations = decomposeBCNFHelper(getInputRelation());
+		List<Relation> workingOutputRelations = decomposeBCNFHelper(getInputRelation(), 0);
 		bcnfDecomposedWithDuplicates = workingOutputRelations;
 		List<Relation> eliminatedDuplicatesAndSubsets = eliminateDuplicateSubsetRelations(workingOutputRelations);
 		List<FunctionalDependency> missingFDs = findEliminatedFunctionalDependencies(eliminatedDuplicatesAndSubsets, getInputRelation().getInputFDs());
@@ -88,27 +141,28 @@ public class CalculateBCNFDecomposition extends CalculateDecomposition {
 		pureBCNFLostFDs = missingFDs;
 	}
 	
-	private List<Relation> decomposeBCNFHelper(final Relation r) {
+	private List<Relation> decomposeBCNFHelper(final Relation r, final int depth) {
+		AnalysisMetrics.checkRecursion(depth);
+		StageListener listener = AnalysisMetrics.getStageListener();
+		Object event = listener.stageStarted(DECOMPOSITION_STEP, r.getAttributes().size(), r.getInputFDs().size(), depth);
+		try {
+			return decomposeBCNFStep(r, depth);
+		} finally {
+			listener.stageEnded(event);
+		}
+	}
+	
+	private List<Relation> decomposeBCNFStep(final Relation r, final int depth) {
 		List<Relation> result = new ArrayList<>();
 		int counter = 0;
-		if (r.getClosures().isEmpty()) {
-			CalculateClosure.improvedCalculateClosures(r);
-		}
-		if (r.getMinimalCover().isEmpty()) {
-			MinimalFDCover.determineMinimalCover(r);
-		}
-		if (r.getMinimumKeyClosures().isEmpty()) {
-			CalculateKeys.calculateKeys(r);
-		}
-		if (!r.getNormalFormsResults().hasDeterminedNormalForms) {
-			r.determineNormalForms();
-		}
-		if (r.getNormalFormsResults().isInBCNF()) {
+		r.determineNormalForms();
+		DetermineNormalForms normalForms = r.getNormalFormsResults();
+		if (normalForms.isInBCNF()) {
 			result.add(r);
 			return result;
 		}
-		for (FunctionalDependency f : r.getNormalFormsResults().getBCNFViolatingFDs()) {
-			Closure leftSideClosure = RDTUtils.findClosureWithLeftHandAttributes(f.getLeftHandAttributes(), r.getClosures());
+		for (FunctionalDependency f : normalForms.getBCNFViolatingFDs()) {
+			Closure leftSideClosure = r.findClosure(f.getLeftHandAttributes());
 			List<FunctionalDependency> r1FDs = RDTUtils.fetchFDsOfDecomposedR(RDTUtils.getSingleAttributeMinimalCoverList(r.getInputFDs(), r), leftSideClosure.getClosure());
 			Relation r1 = new Relation(r.getName() + "_" + counter++, leftSideClosure.getClosure(), r1FDs);
 			List<Attribute> r2Attributes = new ArrayList<>();
@@ -126,8 +180,8 @@ public class CalculateBCNFDecomposition extends CalculateDecomposition {
 			}
 			List<FunctionalDependency> r2FDs = RDTUtils.fetchFDsOfDecomposedR(RDTUtils.getSingleAttributeMinimalCoverList(r.getInputFDs(), r), r2Attributes);
 			Relation r2 = new Relation(r.getName() + "_" + counter++, r2Attributes, r2FDs);
-			result.addAll(decomposeBCNFHelper(r1));
-			result.addAll(decomposeBCNFHelper(r2));
+			result.addAll(decomposeBCNFHelper(r1, depth + 1));
+			result.addAll(decomposeBCNFHelper(r2, depth + 1));
 		}
 		return result;
 	}
@@ -138,7 +192,7 @@ public class CalculateBCNFDecomposition extends CalculateDecomposition {
 		}
 		List<Relation> workingBCNFRelations = new ArrayList<>();
 		for (Relation threeNF : threenfDecomposition.getOutputRelations()) {
-			workingBCNFRelations.addAll(decomposeBCNFHelper(threeNF));
+			workingBCNFRelations.addAll(decomposeBCNFHelper(threeNF, 0));
 		}
 		threeNFDecomposedWithDuplicates = workingBCNFRelations;
 		List<Relation> purgeDuplicatesAndSubsets = eliminateDuplicateSubsetRelations(workingBCNFRelations);
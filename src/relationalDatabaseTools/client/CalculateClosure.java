@@ -1,86 +1,141 @@
 package relationalDatabaseTools.client;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
+import relationalDatabaseTools.client.AnalysisMetrics.Stage;
+
 /**
  * Contains static methods for calculating the closure of attributes based
  * on a list of given functional dependencies.
+ * 
+ * Single closures are delegated to a {@link ClosureBackend}. Callers may pass a
+ * backend explicitly, such as the one the {@link AnalysisPlanner} chooses;
+ * otherwise {@link #LINEAR} is used. Closures of many attribute sets, such as
+ * the full power set, are calculated 64 at a time by {@link BatchClosure}.
  * @author Raymond Cho
  * 
  */
 public class CalculateClosure {
 
+	public static final ClosureBackend FIXPOINT = new FixpointClosureBackend();
+	public static final ClosureBackend LINEAR = new LinearClosureBackend();
+	public static final ClosureBackend WATCHED_LITERALS = new WatchedLiteralClosureBackend();
+
 	public static Closure calculateClosureOf(final List<Attribute> closureAttributes,
 			final List<FunctionalDependency> givenFDs) {
+		return calculateClosureOf(closureAttributes, givenFDs, LINEAR);
+	}
+
+	public static Closure calculateClosureOf(final List<Attribute> closureAttributes,
+			final List<FunctionalDependency> givenFDs, final ClosureBackend backend) {
 		if (closureAttributes == null || givenFDs == null || closureAttributes.isEmpty()) {
 			return null;
 		}
-		List<Attribute> leftSideClosure = new ArrayList<>();
-		List<Attribute> rightSideClosure = new ArrayList<>();
-		for (Attribute a : closureAttributes) {
-			if (!RDTUtils.attributeListContainsAttribute(leftSideClosure, a)) {
-				leftSideClosure.add(a);
-			}
-			if (!RDTUtils.attributeListContainsAttribute(rightSideClosure, a)) {
-				rightSideClosure.add(a);
-			}
+		return backend.prepare(givenFDs).calculateClosureOf(closureAttributes);
+	}
+
+	/**
+	 * @param seeds
+	 * @param givenFDs
+	 * @return Closure of each input attribute set, in the same order as the input
+	 *         (null for a null or empty attribute set).
+	 */
+	public static List<Closure> calculateClosuresOf(final List<List<Attribute>> seeds,
+			final List<FunctionalDependency> givenFDs) {
+		List<Closure> result = new ArrayList<>();
+		BatchClosure batchClosure = new BatchClosure(givenFDs);
+		for (int start = 0; start < seeds.size(); start += BatchClosure.BATCH_SIZE) {
+			int end = Math.min(start + BatchClosure.BATCH_SIZE, seeds.size());
+			result.addAll(batchClosure.calculateClosuresOf(seeds.subList(start, end)));
 		}
-		int closureSize = rightSideClosure.size();
-		List<FunctionalDependency> addedFDs = new ArrayList<>();
-		while (true) {
-			for (FunctionalDependency f : givenFDs) {
-				if (!addedFDs.contains(f)) {
-					boolean containsAll = true;
-					for (Attribute leftAttr : f.getLeftHandAttributes()) {
-						if (!RDTUtils.attributeListContainsAttribute(rightSideClosure, leftAttr)) {
-							containsAll = false;
-							break;
-						}
-					}
-					if (containsAll) {
-						for (Attribute rightAttr : f.getRightHandAttributes()) {
-							if (!RDTUtils.attributeListContainsAttribute(rightSideClosure, rightAttr)) {
-								rightSideClosure.add(rightAttr);
-							}
-						}
-						addedFDs.add(f);
-					}
-				}
-			}
-			if (rightSideClosure.size() > closureSize) {
-				closureSize = rightSideClosure.size();
-				continue;
+		return result;
+	}
+
+	/**
+	 * Calculates the closures and the keys of the relation, minimum keys and
+	 * superkeys, unless they have been calculated already (see
+	 * {@link AnalysisGraph}).
+	 * @param relation
+	 */
+	public static void improvedCalculateClosures(final Relation relation) {
+		relation.getAnalysisGraph().calculate(AnalysisGraph.Node.SUPERKEYS);
+	}
+
+	/**
+	 * Like {@link #improvedCalculateClosures(Relation)}, but closes every
+	 * subset with the given backend if the closures have not been calculated.
+	 * @param relation
+	 * @param backend
+	 */
+	public static void improvedCalculateClosures(final Relation relation, final ClosureBackend backend) {
+		AnalysisGraph graph = relation.getAnalysisGraph();
+		if (!graph.isCalculated(AnalysisGraph.Node.CLOSURES)) {
+			calculateClosures(relation, backend);
+			graph.setCalculated(AnalysisGraph.Node.CLOSURES);
+		}
+		graph.calculate(AnalysisGraph.Node.SUPERKEYS);
+	}
+
+	/**
+	 * Prepares the closure of every non-empty subset of the relation's
+	 * attributes for the key search of the relation's plan (see
+	 * {@link AnalysisPlanner}). With the lattice search, only the subsets of
+	 * group representatives within each independent component are actually
+	 * closed (see {@link ClosureLattice}); the pruned search closes only the
+	 * candidate keys. Either way the closures themselves are produced on demand
+	 * through {@link Relation#iterateClosures()}.
+	 * @param relation
+	 */
+	protected static void calculateClosures(final Relation relation) {
+		AnalysisPlan plan = AnalysisPlanner.planFor(relation);
+		if (plan.getKeySearch() == AnalysisPlan.KeySearch.EXHAUSTIVE) {
+			calculateClosures(relation, plan.getClosureBackend());
+			return;
+		}
+		AnalysisMetrics metrics = AnalysisMetrics.begin(Stage.CLOSURES, relation);
+		try {
+			ClosureLattice lattice = new ClosureLattice(relation);
+			if (plan.getKeySearch() == AnalysisPlan.KeySearch.PRUNED) {
+				lattice.setPrunedKeySearch(true);
 			} else {
-				break;
+				lattice.getComponentClosures();
 			}
+			relation.setClosureLattice(lattice);
+		} finally {
+			metrics.end(Stage.CLOSURES);
 		}
-		Collections.sort(leftSideClosure);
-		Collections.sort(rightSideClosure);
-
-		return new Closure(leftSideClosure, rightSideClosure);
 	}
 
-	public static void improvedCalculateClosures(final Relation relation) {
-		List<Attribute> relationAttributes = relation.getAttributes();
-		BinaryCounter counter = new BinaryCounter(relationAttributes.size());
-		while (!counter.hasReachedMax()) {
-			boolean[] selectAttributes = counter.getCounter();
-			List<Attribute> selectedAttributes = new ArrayList<>();
-			for (int i = 0; i < selectAttributes.length; i++) {
-				if (selectAttributes[i]) {
-					selectedAttributes.add(relationAttributes.get(i));
+	/**
+	 * Closes every non-empty subset of the relation's attributes with the given backend.
+	 * @param relation
+	 * @param backend
+	 */
+	protected static void calculateClosures(final Relation relation, final ClosureBackend backend) {
+		AnalysisMetrics metrics = AnalysisMetrics.begin(Stage.CLOSURES, relation);
+		try {
+			List<Attribute> relationAttributes = relation.getAttributes();
+			PreparedClosure preparedClosure = backend.prepare(relation.getInputFDs());
+			BinaryCounter counter = new BinaryCounter(relationAttributes.size());
+			while (!counter.hasReachedMax()) {
+				boolean[] selectAttributes = counter.getCounter();
+				List<Attribute> selectedAttributes = new ArrayList<>();
+				for (int i = 0; i < selectAttributes.length; i++) {
+					if (selectAttributes[i]) {
+						selectedAttributes.add(relationAttributes.get(i));
+					}
 				}
+				Closure c = preparedClosure.calculateClosureOf(selectedAttributes);
+				if (c != null) {
+					relation.addClosure(c);
+				}
+				counter.incrementCounter();
 			}
-			Closure c = calculateClosureOf(selectedAttributes, relation.getInputFDs());
-			if (c != null) {
-				relation.addClosure(c);
-			}
-			counter.incrementCounter();
+			relation.sortClosures();
+		} finally {
+			metrics.end(Stage.CLOSURES);
 		}
-		relation.sortClosures();
-		CalculateKeys.calculateKeys(relation);
 	}
 
 	protected static String printClosureOf(final Closure closure) {
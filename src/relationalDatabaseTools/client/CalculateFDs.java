@@ -1,8 +1,11 @@
 package relationalDatabaseTools.client;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
+import relationalDatabaseTools.client.AnalysisMetrics.Stage;
+
 /**
  * Contains static methods for deriving new functional dependencies from a
  * relation's input functional dependencies.
@@ -12,23 +15,95 @@ import java.util.List;
  */
 public class CalculateFDs {
 
+	/**
+	 * Derives the functional dependencies, and calculates the closures they are
+	 * derived from, unless they have been derived already (see
+	 * {@link AnalysisGraph}).
+	 * @param relation
+	 */
 	public static void calculateDerivedFDs(final Relation relation) {
-		if (relation.getClosures().isEmpty()) {
-			CalculateClosure.improvedCalculateClosures(relation);
+		relation.getAnalysisGraph().calculate(AnalysisGraph.Node.DERIVED_FDS);
+	}
+
+	/**
+	 * Derives the functional dependencies of a relation whose closures have been calculated.
+	 * @param relation
+	 */
+	protected static void deriveFDs(final Relation relation) {
+		AnalysisMetrics metrics = AnalysisMetrics.begin(Stage.DERIVED_FDS, relation);
+		try {
+			for (Closure c : relation.iterateClosures()) {
+				addDerivedFD(relation, c);
+			}
+			relation.sortFDs();
+		} finally {
+			metrics.end(Stage.DERIVED_FDS);
 		}
-		for (Closure c : relation.getClosures()) {
-			List<Attribute> rightSide = new ArrayList<>();
-			for (Attribute a : c.getClosure()) {
-				if (!RDTUtils.attributeListContainsAttribute(c.getClosureOf(), a)) {
-					rightSide.add(a);
-				}
+	}
+
+	/**
+	 * Calculates the canonical basis of the input functional dependencies,
+	 * unless it has been calculated already (see {@link AnalysisGraph}). Unlike
+	 * the derived functional dependencies, which have one dependency for every
+	 * subset whose closure adds attributes, the basis has one dependency for
+	 * every pseudo-closed set, and every derived functional dependency follows
+	 * from it.
+	 * @param relation
+	 */
+	public static void calculateCanonicalBasis(final Relation relation) {
+		relation.getAnalysisGraph().calculate(AnalysisGraph.Node.CANONICAL_BASIS);
+	}
+
+	protected static void deriveCanonicalBasis(final Relation relation) {
+		AnalysisMetrics metrics = AnalysisMetrics.begin(Stage.DERIVED_FDS, relation);
+		try {
+			for (FunctionalDependency fd : new ClosedSets(relation).calculateCanonicalBasis()) {
+				relation.addCanonicalBasisFD(fd);
 			}
-			if (!rightSide.isEmpty()) {
-				FunctionalDependency derived = new FunctionalDependency(c.getClosureOf(), rightSide, relation);
-				relation.addDerivedFunctionalDependency(derived);
+		} finally {
+			metrics.end(Stage.DERIVED_FDS);
+		}
+	}
+
+	/**
+	 * Derives the functional dependencies of the next closures only, so that
+	 * callers such as the user interface can spread the work over several steps.
+	 * Once the closures are exhausted the derived functional dependencies are sorted.
+	 * @param relation
+	 *            Relation whose closures have been calculated.
+	 * @param closures
+	 *            Iterator over {@link Relation#iterateClosures()}, kept by the caller between calls.
+	 * @param maxClosures
+	 *            Maximum number of closures to process in this call.
+	 * @return True if closures remain.
+	 */
+	protected static boolean calculateDerivedFDs(final Relation relation, final Iterator<Closure> closures, final int maxClosures) {
+		AnalysisMetrics metrics = AnalysisMetrics.begin(Stage.DERIVED_FDS, relation);
+		try {
+			for (int i = 0; i < maxClosures && closures.hasNext(); i++) {
+				addDerivedFD(relation, closures.next());
+			}
+			if (closures.hasNext()) {
+				return true;
+			}
+			relation.sortFDs();
+			relation.getAnalysisGraph().setCalculated(AnalysisGraph.Node.DERIVED_FDS);
+			return false;
+		} finally {
+			metrics.end(Stage.DERIVED_FDS);
+		}
+	}
+
+	private static void addDerivedFD(final Relation relation, final Closure c) {
+		List<Attribute> rightSide = new ArrayList<>();
+		for (Attribute a : c.getClosure()) {
+			if (!RDTUtils.attributeListContainsAttribute(c.getClosureOf(), a)) {
+				rightSide.add(a);
 			}
 		}
-		relation.sortFDs();
-		return;
+		if (!rightSide.isEmpty()) {
+			FunctionalDependency derived = new FunctionalDependency(c.getClosureOf(), rightSide, relation);
+			relation.addDerivedFunctionalDependency(derived);
+		}
 	}
 }
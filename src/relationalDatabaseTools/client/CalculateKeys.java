@@ -1,7 +1,12 @@
 package relationalDatabaseTools.client;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
+import relationalDatabaseTools.client.AnalysisMetrics.Stage;
+
 /**
  * Contains static methods used to calculate a relation's minimum candidate keys and superkeys.
  * @author Raymond Cho
@@ -9,49 +14,118 @@ import java.util.List;
  */
 public class CalculateKeys {
 	
+	/**
+	 * Calculates the closures and keys of the relation, unless they have been
+	 * calculated already (see {@link AnalysisGraph}).
+	 * @param relation
+	 */
 	public static void calculateKeys(final Relation relation) {
-		List<Closure> closures = relation.getClosures();
-		if (closures.isEmpty()) {
+		relation.getAnalysisGraph().calculate(AnalysisGraph.Node.SUPERKEYS);
+	}
+
+	/**
+	 * Records the minimum keys and superkeys of the relation.
+	 * @param relation
+	 * @param lattice
+	 *            Closure lattice of the relation.
+	 */
+	protected static void calculateKeys(final Relation relation, final ClosureLattice lattice) {
+		calculateMinimumKeys(relation, lattice);
+		calculateSuperKeys(relation, lattice);
+	}
+
+	/**
+	 * Records the minimum keys, prime and non-prime attributes of a relation
+	 * whose closures have been calculated, through its closure lattice; one is
+	 * created for closures that were calculated exhaustively.
+	 * @param relation
+	 */
+	protected static void calculateMinimumKeys(final Relation relation) {
+		ClosureLattice lattice = relation.getClosureLattice();
+		if (lattice == null) {
+			lattice = new ClosureLattice(relation);
+			relation.setClosureLattice(lattice);
+		}
+		calculateMinimumKeys(relation, lattice);
+	}
+
+	/**
+	 * Finds the minimum keys through the closure lattice, which searches each
+	 * independent component over one representative per group of mutually
+	 * determining attributes, and records their closures in the order the
+	 * closure walk visits them: by size, then by subset number.
+	 * @param relation
+	 * @param lattice
+	 *            Closure lattice of the relation.
+	 */
+	private static void calculateMinimumKeys(final Relation relation, final ClosureLattice lattice) {
+		if (lattice.getAttributeCount() == 0) {
 			return;
 		}
-		boolean foundMinimum = false;
-		int minimumKeySize = relation.getAttributes().size();
-		for (Closure closure : closures) {
-			List<Attribute> left = closure.getClosureOf();
-			List<Attribute> right = closure.getClosure();
-			if (right.size() == relation.getAttributes().size()) {
-				if (!foundMinimum) {
-					foundMinimum = true;
-					minimumKeySize = left.size();
+		AnalysisMetrics metrics = AnalysisMetrics.begin(Stage.KEYS, relation);
+		try {
+			List<Long> keys = new ArrayList<>(lattice.findMinimumKeys());
+			Collections.sort(keys, new Comparator<Long>() {
+				@Override
+				public int compare(final Long k1, final Long k2) {
+					return isInWalkOrder(k1, k2) ? (k1.equals(k2) ? 0 : -1) : 1;
 				}
-				if (left.size() == minimumKeySize) {
-					relation.addMinimumKeyClosure(closure);
-				} else {
-					boolean addedtoSuperKeyClosure = false;
-					for (Closure minimumClosure : relation.getMinimumKeyClosures()) {
-						boolean earlyTerminateLocal = false;
-						for (Attribute minAttr : minimumClosure.getClosureOf()) {
-							if (!RDTUtils.attributeListContainsAttribute(left, minAttr)) {
-								earlyTerminateLocal = true;
-								break;
-							}
-						}
-						if (!earlyTerminateLocal) {
-							relation.addSuperKeyClosure(closure);
-							addedtoSuperKeyClosure = true;
-							break;
-						}
-					}
-					if (!addedtoSuperKeyClosure) {
-						relation.addMinimumKeyClosure(closure);
-					}
+			});
+			for (long key : keys) {
+				relation.addMinimumKeyClosure(lattice.toSuperKeyClosure(key));
+			}
+			calculateNonPrimeAttributes(relation);
+			calculatePrimeAttributes(relation);
+		} finally {
+			metrics.end(Stage.KEYS);
+		}
+	}
+
+	/**
+	 * Records the superkeys of a relation whose minimum keys have been calculated.
+	 * @param relation
+	 */
+	protected static void calculateSuperKeys(final Relation relation) {
+		calculateSuperKeys(relation, relation.getClosureLattice());
+	}
+
+	/**
+	 * Walks the subsets in closure list order and records the closures of the
+	 * superkeys that are not minimum keys; no other closure is built. If the
+	 * analysis budget runs out during the walk, the superkeys are left
+	 * incomplete and the budget exception is passed on.
+	 * @param relation
+	 * @param lattice
+	 *            Closure lattice of the relation.
+	 */
+	private static void calculateSuperKeys(final Relation relation, final ClosureLattice lattice) {
+		if (lattice.getAttributeCount() == 0) {
+			return;
+		}
+		AnalysisMetrics metrics = AnalysisMetrics.begin(Stage.KEYS, relation);
+		try {
+			ClosureIterator subsets = lattice.iterator();
+			while (subsets.hasNext()) {
+				long subset = subsets.peekSubset();
+				if (lattice.isSuperKey(subset) && !lattice.isMinimumKey(subset)) {
+					relation.addSuperKeyClosure(lattice.toSuperKeyClosure(subset));
 				}
+				subsets.advance();
 			}
+		} finally {
+			metrics.end(Stage.KEYS);
 		}
-		calculateNonPrimeAttributes(relation);
-		calculatePrimeAttributes(relation);
 	}
-	
+
+	/**
+	 * @return True if the walk visits subset s1 no later than subset s2.
+	 */
+	private static boolean isInWalkOrder(final long s1, final long s2) {
+		int size1 = Long.bitCount(s1);
+		int size2 = Long.bitCount(s2);
+		return size1 < size2 || (size1 == size2 && s1 <= s2);
+	}
+
 	public static void calculateNonPrimeAttributes(final Relation relation) {
 		List<Closure> minimumKeys = relation.getMinimumKeyClosures();
 		List<Attribute> allAttributes = relation.getAttributes();
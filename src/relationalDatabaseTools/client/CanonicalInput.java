@@ -0,0 +1,119 @@
+package relationalDatabaseTools.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Normalized form of a relation's input: the schema with its attributes
+ * sorted, and the functional and multivalued dependencies with sorted sides,
+ * sorted and without duplicates. Inputs that differ only in spacing or in the
+ * order of attributes or dependencies have the same canonical input, whose
+ * fingerprint keys the {@link ResultCache}. The canonical strings are valid
+ * input themselves, so the analysis can be run on them to get the same result
+ * for every such variant.
+ * @author Raymond Cho
+ *
+ */
+public class CanonicalInput {
+	private static final String FINGERPRINT_SEPARATOR = "|";
+	
+	private final String schema;
+	private final String functionalDependencies;
+	private final String multivaluedDependencies;
+	
+	private CanonicalInput(final String schema, final String functionalDependencies, final String multivaluedDependencies) {
+		this.schema = schema;
+		this.functionalDependencies = functionalDependencies;
+		this.multivaluedDependencies = multivaluedDependencies;
+	}
+	
+	/**
+	 * @param relation
+	 *            Relation parsed from the input, with its dependencies added.
+	 * @return Canonical input of the relation.
+	 */
+	public static CanonicalInput of(final Relation relation) {
+		if (relation == null) {
+			throw new IllegalArgumentException("Input relation is null.");
+		}
+		List<Attribute> attributes = new ArrayList<>(relation.getAttributes());
+		Collections.sort(attributes);
+		String schema = relation.getName() + "(" + joinNames(attributes) + ")";
+		Set<String> fds = new TreeSet<>();
+		for (FunctionalDependency fd : relation.getInputFDs()) {
+			fds.add(canonicalize(fd));
+		}
+		Set<String> mvds = new TreeSet<>();
+		for (MultivaluedDependency mvd : relation.getMVDs()) {
+			mvds.add(canonicalize(mvd));
+		}
+		return new CanonicalInput(schema, join(fds), join(mvds));
+	}
+	
+	private static String canonicalize(final Dependency<?> dependency) {
+		List<Attribute> left = new ArrayList<>(dependency.getLeftHandAttributes());
+		List<Attribute> right = new ArrayList<>(dependency.getRightHandAttributes());
+		Collections.sort(left);
+		Collections.sort(right);
+		return joinNames(left) + "->" + joinNames(right);
+	}
+	
+	private static String joinNames(final List<Attribute> attributes) {
+		StringBuilder sb = new StringBuilder();
+		for (Attribute a : attributes) {
+			if (sb.length() > 0) {
+				sb.append(",");
+			}
+			sb.append(a.getName());
+		}
+		return sb.toString();
+	}
+	
+	private static String join(final Set<String> dependencies) {
+		StringBuilder sb = new StringBuilder();
+		for (String dependency : dependencies) {
+			if (sb.length() > 0) {
+				sb.append(";");
+			}
+			sb.append(dependency);
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * @return Relation parsed from the canonical input.
+	 */
+	public Relation createRelation() {
+		Relation relation = new Relation(schema);
+		relation.addFunctionalDependencies(functionalDependencies);
+		relation.addMultivaluedDependencies(multivaluedDependencies);
+		return relation;
+	}
+	
+	public String getSchema() {
+		return schema;
+	}
+	
+	public String getFunctionalDependencies() {
+		return functionalDependencies;
+	}
+	
+	public String getMultivaluedDependencies() {
+		return multivaluedDependencies;
+	}
+	
+	/**
+	 * @return Single string that identifies the canonical input.
+	 */
+	public String getFingerprint() {
+		return schema + FINGERPRINT_SEPARATOR + functionalDependencies + FINGERPRINT_SEPARATOR + multivaluedDependencies;
+	}
+	
+	@Override
+	public String toString() {
+		return getFingerprint();
+	}
+}
@@ -0,0 +1,271 @@
+package relationalDatabaseTools.client;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Lists the closed sets of attributes of a relation (the sets that are their
+ * own closure under the input functional dependencies) with Ganter's
+ * NextClosure algorithm, and calculates the canonical (Duquenne-Guigues) basis
+ * of the functional dependencies. Only the closed sets are visited, not every
+ * subset, and the next closed set is found with at most one closure per
+ * attribute, so the work grows with the number of closed sets instead of 2^n.
+ * <p>
+ * Closed sets come in lectic order: with the attributes in relation order, set
+ * A comes before set B if the first attribute in which they differ is in B.
+ * The canonical basis has one functional dependency P -> P+ \ P for every
+ * pseudo-closed set P, a set that is not closed but contains the closure of
+ * every pseudo-closed proper subset; no basis of the input functional
+ * dependencies has fewer dependencies. Attribute sets are handled as bit masks
+ * in which bit i selects the i-th attribute of the relation, so relations are
+ * limited to {@link #MAX_ATTRIBUTES} attributes.
+ * @author Raymond Cho
+ *
+ */
+public class ClosedSets implements Iterable<List<Attribute>> {
+	public static final int MAX_ATTRIBUTES = 64;
+
+	private final Relation relation;
+	private final List<Attribute> attributes;
+	private final long fullSet;
+	private final long[] leftSides;
+	private final long[] rightSides;
+	/**
+	 * For each attribute, the input functional dependencies with the attribute on their left-hand side.
+	 */
+	private final int[][] dependenciesOf;
+	private final int[] missing;
+	private final int[] queue;
+
+	/**
+	 * @param relation
+	 *            Relation with its input functional dependencies, at most
+	 *            {@link #MAX_ATTRIBUTES} attributes.
+	 */
+	public ClosedSets(final Relation relation) {
+		if (relation == null) {
+			throw new IllegalArgumentException("Input relation is null.");
+		}
+		if (!supports(relation)) {
+			throw new IllegalArgumentException("Relation " + relation.getName() + " has more than " + MAX_ATTRIBUTES + " attributes.");
+		}
+		this.relation = relation;
+		this.attributes = relation.getAttributes();
+		this.fullSet = attributes.size() == MAX_ATTRIBUTES ? -1L : (1L << attributes.size()) - 1;
+		List<FunctionalDependency> fds = new ArrayList<>();
+		for (FunctionalDependency fd : relation.getInputFDs()) {
+			if (fd.getIsProperDependency()) {
+				fds.add(fd);
+			}
+		}
+		leftSides = new long[fds.size()];
+		rightSides = new long[fds.size()];
+		int[] counts = new int[attributes.size()];
+		for (int f = 0; f < fds.size(); f++) {
+			leftSides[f] = toMask(fds.get(f).getLeftHandAttributes());
+			rightSides[f] = toMask(fds.get(f).getRightHandAttributes());
+			for (int i = 0; i < attributes.size(); i++) {
+				if ((leftSides[f] & (1L << i)) != 0) {
+					counts[i]++;
+				}
+			}
+		}
+		dependenciesOf = new int[attributes.size()][];
+		for (int i = 0; i < attributes.size(); i++) {
+			dependenciesOf[i] = new int[counts[i]];
+			counts[i] = 0;
+		}
+		for (int f = 0; f < fds.size(); f++) {
+			for (int i = 0; i < attributes.size(); i++) {
+				if ((leftSides[f] & (1L << i)) != 0) {
+					dependenciesOf[i][counts[i]++] = f;
+				}
+			}
+		}
+		missing = new int[fds.size()];
+		queue = new int[attributes.size()];
+	}
+
+	/**
+	 * @return True if the relation has few enough attributes.
+	 */
+	public static boolean supports(final Relation relation) {
+		return relation.getAttributes().size() <= MAX_ATTRIBUTES;
+	}
+
+	/**
+	 * @return Closed sets in lectic order, found one at a time as they are
+	 *         iterated; the first is the closure of the empty set and the last
+	 *         is the set of all attributes.
+	 */
+	@Override
+	public Iterator<List<Attribute>> iterator() {
+		return new Iterator<List<Attribute>>() {
+			private long next = close(0);
+			private boolean hasNext = true;
+
+			@Override
+			public boolean hasNext() {
+				return hasNext;
+			}
+
+			@Override
+			public List<Attribute> next() {
+				if (!hasNext) {
+					throw new NoSuchElementException();
+				}
+				long current = next;
+				if (current == fullSet) {
+					hasNext = false;
+				} else {
+					next = nextClosure(current, null);
+				}
+				return toAttributes(current);
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Walks the sets that are closed or pseudo-closed in lectic order. Each
+	 * pseudo-closed set is found before any set that contains it, so the
+	 * pseudo-closure of the next set can be taken with the basis found so far.
+	 * @return Canonical basis, in lectic order of the left-hand sides.
+	 */
+	public List<FunctionalDependency> calculateCanonicalBasis() {
+		List<long[]> basis = new ArrayList<>();
+		long set = 0;
+		while (true) {
+			long closure = close(set);
+			if (closure != set) {
+				basis.add(new long[] { set, closure });
+			}
+			if (set == fullSet) {
+				break;
+			}
+			set = nextClosure(set, basis);
+		}
+		List<FunctionalDependency> result = new ArrayList<>();
+		for (long[] implication : basis) {
+			result.add(new FunctionalDependency(toAttributes(implication[0]), toAttributes(implication[1] & ~implication[0]),
+					relation));
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the set after the given one in lectic order that is closed under
+	 * the input functional dependencies, or under the pseudo-closure of the
+	 * given basis.
+	 * @param set
+	 *            Closed set other than the set of all attributes.
+	 * @param basis
+	 *            Left-hand sides and closures of the pseudo-closed sets found so
+	 *            far, or null for the closure under the input functional dependencies.
+	 * @return The next closed set.
+	 */
+	private long nextClosure(final long set, final List<long[]> basis) {
+		long prefix = set;
+		for (int i = attributes.size() - 1; i >= 0; i--) {
+			long bit = 1L << i;
+			if ((prefix & bit) != 0) {
+				prefix &= ~bit;
+				continue;
+			}
+			long closure = basis == null ? close(prefix | bit) : pseudoClose(prefix | bit, basis);
+			// The closure must not add an attribute before attribute i.
+			if ((closure & ~prefix & (bit - 1)) == 0) {
+				return closure;
+			}
+		}
+		return fullSet;
+	}
+
+	/**
+	 * @return Closure of the set under the input functional dependencies,
+	 *         adding each dependency's right-hand side once all of its
+	 *         left-hand side has been reached.
+	 */
+	protected long close(final long set) {
+		AnalysisMetrics.countClosures(1);
+		long closure = set;
+		int queued = 0;
+		for (int f = 0; f < leftSides.length; f++) {
+			missing[f] = Long.bitCount(leftSides[f] & ~set);
+			if (missing[f] == 0) {
+				long added = rightSides[f] & ~closure;
+				closure |= added;
+				queued = enqueue(added, queued);
+			}
+		}
+		while (queued > 0) {
+			for (int f : dependenciesOf[queue[--queued]]) {
+				if (--missing[f] == 0) {
+					long added = rightSides[f] & ~closure;
+					closure |= added;
+					queued = enqueue(added, queued);
+				}
+			}
+		}
+		return closure;
+	}
+
+	private int enqueue(final long added, final int queued) {
+		int count = queued;
+		long remaining = added;
+		while (remaining != 0) {
+			long bit = Long.lowestOneBit(remaining);
+			remaining &= ~bit;
+			queue[count++] = Long.bitCount(bit - 1);
+		}
+		return count;
+	}
+
+	/**
+	 * @return Smallest superset of the set that contains the closure of every
+	 *         pseudo-closed set of the basis that it strictly contains.
+	 */
+	private static long pseudoClose(final long set, final List<long[]> basis) {
+		long closure = set;
+		boolean grown = true;
+		while (grown) {
+			grown = false;
+			for (long[] implication : basis) {
+				if ((closure & implication[0]) == implication[0] && closure != implication[0]
+						&& (closure & implication[1]) != implication[1]) {
+					closure |= implication[1];
+					grown = true;
+				}
+			}
+		}
+		return closure;
+	}
+
+	private long toMask(final List<Attribute> subset) {
+		long mask = 0;
+		for (Attribute a : subset) {
+			int i = attributes.indexOf(a);
+			if (i < 0) {
+				throw new IllegalArgumentException("Attribute " + a.getName() + " does not exist in schema of Relation " + relation.getName());
+			}
+			mask |= 1L << i;
+		}
+		return mask;
+	}
+
+	protected List<Attribute> toAttributes(final long mask) {
+		List<Attribute> result = new ArrayList<>();
+		for (int i = 0; i < attributes.size(); i++) {
+			if ((mask & (1L << i)) != 0) {
+				result.add(attributes.get(i));
+			}
+		}
+		return result;
+	}
+}
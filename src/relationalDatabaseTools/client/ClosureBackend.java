@@ -0,0 +1,24 @@
+package relationalDatabaseTools.client;
+
+import java.util.List;
+
+/**
+ * A strategy for calculating attribute closures. A backend indexes a list of
+ * functional dependencies once through {@link #prepare(List)} and the returned
+ * {@link PreparedClosure} then answers any number of closure queries against it.
+ * @author Raymond Cho
+ *
+ */
+public interface ClosureBackend {
+
+	/**
+	 * @return Short name of the backend, used when printing benchmark results.
+	 */
+	String getName();
+
+	/**
+	 * @param givenFDs
+	 * @return Closure calculator for the given list of functional dependencies.
+	 */
+	PreparedClosure prepare(List<FunctionalDependency> givenFDs);
+}
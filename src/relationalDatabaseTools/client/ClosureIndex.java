@@ -0,0 +1,165 @@
+package relationalDatabaseTools.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Numbers the attributes referenced by a list of functional dependencies and
+ * stores each functional dependency as arrays of attribute ids, so that closure
+ * backends can work with plain int and boolean arrays instead of attribute lists.
+ * @author Raymond Cho
+ *
+ */
+public class ClosureIndex {
+	private final List<Attribute> attributes;
+	private final HashMap<String, Integer> attributeIds;
+	private final int[][] leftSides;
+	private final int[][] rightSides;
+
+	public ClosureIndex(final List<FunctionalDependency> fds) {
+		this(null, fds);
+	}
+
+	/**
+	 * @param relationAttributes
+	 *            Attributes numbered first, in the given order (may be null).
+	 * @param fds
+	 */
+	public ClosureIndex(final List<Attribute> relationAttributes, final List<FunctionalDependency> fds) {
+		this.attributes = new ArrayList<>();
+		this.attributeIds = new HashMap<>();
+		if (relationAttributes != null) {
+			for (Attribute a : relationAttributes) {
+				addAttribute(a);
+			}
+		}
+		this.leftSides = new int[fds.size()][];
+		this.rightSides = new int[fds.size()][];
+		for (int i = 0; i < fds.size(); i++) {
+			FunctionalDependency f = fds.get(i);
+			leftSides[i] = toIds(f.getLeftHandAttributes());
+			rightSides[i] = toIds(f.getRightHandAttributes());
+		}
+	}
+
+	private int addAttribute(final Attribute a) {
+		Integer id = attributeIds.get(a.getName());
+		if (id == null) {
+			id = attributes.size();
+			attributes.add(a);
+			attributeIds.put(a.getName(), id);
+		}
+		return id;
+	}
+
+	private int[] toIds(final List<Attribute> attributeList) {
+		int[] ids = new int[attributeList.size()];
+		int size = 0;
+		for (Attribute a : attributeList) {
+			int id = addAttribute(a);
+			boolean duplicate = false;
+			for (int i = 0; i < size; i++) {
+				if (ids[i] == id) {
+					duplicate = true;
+					break;
+				}
+			}
+			if (!duplicate) {
+				ids[size++] = id;
+			}
+		}
+		if (size == ids.length) {
+			return ids;
+		}
+		int[] trimmed = new int[size];
+		System.arraycopy(ids, 0, trimmed, 0, size);
+		return trimmed;
+	}
+
+	protected int getAttributeCount() {
+		return attributes.size();
+	}
+
+	protected Attribute getAttribute(final int id) {
+		return attributes.get(id);
+	}
+
+	/**
+	 * @param attribute
+	 * @return Id of the attribute, or -1 if it does not appear in the index.
+	 */
+	protected int getAttributeId(final Attribute attribute) {
+		Integer id = attributeIds.get(attribute.getName());
+		if (id == null) {
+			return -1;
+		}
+		return id;
+	}
+
+	protected int getFDCount() {
+		return leftSides.length;
+	}
+
+	protected int[] getLeftSide(final int fd) {
+		return leftSides[fd];
+	}
+
+	protected int[] getRightSide(final int fd) {
+		return rightSides[fd];
+	}
+
+	/**
+	 * @return For each attribute id, the ids of the functional dependencies whose left-hand side contains it.
+	 */
+	protected int[][] buildLeftSideOccurrences() {
+		int[] counts = new int[attributes.size()];
+		for (int[] left : leftSides) {
+			for (int a : left) {
+				counts[a]++;
+			}
+		}
+		int[][] occurrences = new int[attributes.size()][];
+		for (int a = 0; a < occurrences.length; a++) {
+			occurrences[a] = new int[counts[a]];
+			counts[a] = 0;
+		}
+		for (int fd = 0; fd < leftSides.length; fd++) {
+			for (int a : leftSides[fd]) {
+				occurrences[a][counts[a]++] = fd;
+			}
+		}
+		return occurrences;
+	}
+
+	/**
+	 * Builds the Closure object for a query in the same form that the original
+	 * list-based calculation produced: duplicate-free and sorted on both sides.
+	 * @param closureAttributes
+	 *            Attributes whose closure was calculated.
+	 * @param closed
+	 *            Flags indexed by attribute id marking attributes in the closure.
+	 * @return Closure of the given attributes.
+	 */
+	protected Closure toClosure(final List<Attribute> closureAttributes, final boolean[] closed) {
+		List<Attribute> leftSideClosure = new ArrayList<>();
+		List<Attribute> rightSideClosure = new ArrayList<>();
+		HashSet<String> seen = new HashSet<>();
+		for (Attribute a : closureAttributes) {
+			if (seen.add(a.getName())) {
+				leftSideClosure.add(a);
+				rightSideClosure.add(a);
+			}
+		}
+		for (int i = 0; i < closed.length; i++) {
+			if (closed[i] && !seen.contains(attributes.get(i).getName())) {
+				rightSideClosure.add(attributes.get(i));
+			}
+		}
+		Collections.sort(leftSideClosure);
+		Collections.sort(rightSideClosure);
+		return new Closure(leftSideClosure, rightSideClosure);
+	}
+}
@@ -0,0 +1,139 @@
+package relationalDatabaseTools.client;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Streams the closure of every non-empty subset of a relation's attributes in
+ * the same order as the sorted closure list: by increasing subset size, and
+ * within one size by increasing subset number (bit i selects the i-th
+ * attribute). Each closure is produced on demand from a {@link ClosureLattice},
+ * so walking all 2^n closures keeps only the current one in memory. When the
+ * lattice closes directly rather than through its closure table, upcoming
+ * subsets are closed together in batches that double up to
+ * {@link BatchClosure#BATCH_SIZE}, so a walk that stops early closes only about
+ * twice as many subsets as it visits. Subsets that the walk does not close
+ * itself, because their closure is looked up in the table or they are passed
+ * over with {@link #advance()}, count against the analysis budget's closure
+ * limit {@link #BUDGET_CHECK_INTERVAL} at a time (see
+ * {@link AnalysisMetrics#countWalkSteps(long)}), so the limit also bounds a
+ * walk that closes nothing, such as the superkey walk.
+ * @author Raymond Cho
+ *
+ */
+public class ClosureIterator implements Iterator<Closure> {
+	public static final int BUDGET_CHECK_INTERVAL = 4096;
+	private static final int FIRST_BUFFER_SIZE = 8;
+
+	private final ClosureLattice lattice;
+	private final int attributeCount;
+	private final long limit;
+	private int size;
+	private long subset;
+	private int uncheckedSteps;
+	private long[] bufferedSubsets;
+	private long[] bufferedClosures;
+	private int buffered;
+	private int position;
+	private int bufferSize = FIRST_BUFFER_SIZE;
+
+	public ClosureIterator(final ClosureLattice lattice) {
+		this.lattice = lattice;
+		this.attributeCount = lattice.getAttributeCount();
+		this.limit = 1L << attributeCount;
+		this.size = 1;
+		this.subset = 1;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return size <= attributeCount;
+	}
+
+	@Override
+	public Closure next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Closure closure;
+		if (lattice.closesDirectly()) {
+			if (position >= buffered || bufferedSubsets[position] != subset) {
+				fillBuffer();
+			}
+			closure = lattice.toClosure(subset, bufferedClosures[position++]);
+			// Already counted as a closure.
+			moveToNext();
+		} else {
+			closure = lattice.toClosure(subset);
+			advance();
+		}
+		return closure;
+	}
+
+	/**
+	 * Closes the current subset and the ones that follow it, up to the buffer size.
+	 */
+	private void fillBuffer() {
+		if (bufferedSubsets == null) {
+			bufferedSubsets = new long[BatchClosure.BATCH_SIZE];
+			bufferedClosures = new long[BatchClosure.BATCH_SIZE];
+		}
+		int nextSize = size;
+		long next = subset;
+		buffered = 0;
+		while (buffered < bufferSize && nextSize <= attributeCount) {
+			bufferedSubsets[buffered++] = next;
+			next = nextOfSameSize(next);
+			if (next >= limit) {
+				nextSize++;
+				next = (1L << nextSize) - 1;
+			}
+		}
+		lattice.closeDirectly(bufferedSubsets, bufferedClosures, buffered);
+		position = 0;
+		bufferSize = Math.min(2 * bufferSize, BatchClosure.BATCH_SIZE);
+	}
+
+	/**
+	 * @return Subset number of the closure that the next call to {@link #next()} returns.
+	 */
+	protected long peekSubset() {
+		return subset;
+	}
+
+	/**
+	 * Moves to the next subset, counting the step against the analysis budget.
+	 */
+	protected void advance() {
+		if (++uncheckedSteps == BUDGET_CHECK_INTERVAL) {
+			uncheckedSteps = 0;
+			AnalysisMetrics.countWalkSteps(BUDGET_CHECK_INTERVAL);
+		}
+		moveToNext();
+	}
+
+	/**
+	 * Moves to the next subset of the same size (Gosper's hack), or to the first
+	 * subset of the next size once the current size is exhausted.
+	 */
+	private void moveToNext() {
+		long nextSubset = nextOfSameSize(subset);
+		if (nextSubset < limit) {
+			subset = nextSubset;
+		} else {
+			size++;
+			subset = (1L << size) - 1;
+		}
+	}
+
+	private static long nextOfSameSize(final long subset) {
+		long lowest = subset & -subset;
+		long ripple = subset + lowest;
+		return (((ripple ^ subset) >>> 2) / lowest) | ripple;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("Closures cannot be removed.");
+	}
+}
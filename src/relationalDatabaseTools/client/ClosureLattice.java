@@ -0,0 +1,592 @@
+package relationalDatabaseTools.client;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Closure of every subset of a relation's attributes, without closing every
+ * subset. Two reductions make this possible:
+ * <ul>
+ * <li>The attributes are split into independent components: attributes that
+ * appear together in a functional dependency belong to the same component.
+ * The closure of a set is the union of the closures of its parts in each
+ * component, and the minimum keys are the cross product of the minimum keys
+ * of each component.</li>
+ * <li>Within a component, mutually determining attributes are collapsed onto
+ * one representative (see {@link AttributeEquivalence}).</li>
+ * </ul>
+ * Only the subsets of the representatives of each component are closed, so a
+ * relation of three independent 10-attribute components needs 3 * 2^10 closure
+ * calculations instead of 2^30. The components are processed through the
+ * {@link AnalysisExecutor} of the analysis that creates the lattice (see
+ * {@link AnalysisMetrics#getExecutor()}), so concurrent analyses each keep
+ * their own.
+ *
+ * Iterating a lattice streams all closures in closure list order (see
+ * {@link ClosureIterator}) without holding them in memory.
+ *
+ * With the pruned key search (see {@link AnalysisPlan.KeySearch#PRUNED}), the
+ * keys are found without closing every set of representatives, superkeys are
+ * recognized as supersets of minimum keys, and closures are calculated directly
+ * (64 at a time when iterated) instead of building the closure table.
+ * A component of more than {@link #MAX_TABLE_GROUPS} groups has no table under
+ * either search: its keys are searched the pruned way and its closures are
+ * calculated directly, so only the analysis budget limits how large it can be.
+ *
+ * Attribute sets are handled as bit masks in which bit i selects the i-th
+ * attribute of the relation, so relations are limited to 62 attributes.
+ * @author Raymond Cho
+ *
+ */
+public class ClosureLattice implements Iterable<Closure> {
+	/**
+	 * Largest number of groups of a component whose closure table is built,
+	 * which holds 2^30 closures.
+	 */
+	public static final int MAX_TABLE_GROUPS = 30;
+
+	private final List<Attribute> attributes;
+	private final AnalysisExecutor executor;
+	private final BatchClosure batchClosure;
+	private final AttributeEquivalence equivalence;
+	private final List<List<Attribute>> components;
+	private final long[] componentMasks;
+	private final int[] componentOf;
+	private final int[] localBits;
+	private final int[][] componentRepresentatives;
+	private long[][] componentClosures;
+	private HashSet<Long> minimumKeys;
+	private boolean prunedKeySearch;
+	private long fullClosure = -1;
+
+	public ClosureLattice(final Relation relation) {
+		this(relation.getAttributes(), relation.getInputFDs());
+	}
+
+	public ClosureLattice(final List<Attribute> attributes, final List<FunctionalDependency> fds) {
+		this.attributes = attributes;
+		this.executor = AnalysisMetrics.current().getExecutor();
+		this.batchClosure = new BatchClosure(attributes, fds);
+		this.equivalence = new AttributeEquivalence(attributes, batchClosure);
+		int n = attributes.size();
+
+		// Union-find over the attributes of each functional dependency.
+		int[] parent = new int[n];
+		for (int i = 0; i < n; i++) {
+			parent[i] = i;
+		}
+		ClosureIndex index = batchClosure.getIndex();
+		for (int fd = 0; fd < index.getFDCount(); fd++) {
+			int first = -1;
+			for (int[] side : new int[][] { index.getLeftSide(fd), index.getRightSide(fd) }) {
+				for (int a : side) {
+					if (a >= n) {
+						continue;
+					}
+					if (first < 0) {
+						first = a;
+					} else {
+						parent[find(parent, a)] = find(parent, first);
+					}
+				}
+			}
+		}
+
+		// Number the components by their first attribute and the groups within each component.
+		this.components = new ArrayList<>();
+		this.componentOf = new int[n];
+		this.localBits = new int[n];
+		int[] componentOfRoot = new int[n];
+		for (int i = 0; i < n; i++) {
+			componentOfRoot[i] = -1;
+		}
+		List<Long> masks = new ArrayList<>();
+		List<List<Integer>> representatives = new ArrayList<>();
+		int[] localGroup = new int[equivalence.getGroupCount()];
+		for (int i = 0; i < n; i++) {
+			int root = find(parent, i);
+			if (componentOfRoot[root] < 0) {
+				componentOfRoot[root] = components.size();
+				components.add(new ArrayList<Attribute>());
+				masks.add(0L);
+				representatives.add(new ArrayList<Integer>());
+			}
+			int c = componentOfRoot[root];
+			componentOf[i] = c;
+			components.get(c).add(attributes.get(i));
+			masks.set(c, masks.get(c) | (1L << i));
+			int group = equivalence.getGroupOf(i);
+			if (equivalence.getRepresentative(group) == i) {
+				localGroup[group] = representatives.get(c).size();
+				representatives.get(c).add(i);
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			localBits[i] = 1 << localGroup[equivalence.getGroupOf(i)];
+		}
+		this.componentMasks = new long[components.size()];
+		this.componentRepresentatives = new int[components.size()][];
+		for (int c = 0; c < componentMasks.length; c++) {
+			componentMasks[c] = masks.get(c);
+			List<Integer> componentRepresentativeList = representatives.get(c);
+			componentRepresentatives[c] = new int[componentRepresentativeList.size()];
+			for (int g = 0; g < componentRepresentatives[c].length; g++) {
+				componentRepresentatives[c][g] = componentRepresentativeList.get(g);
+			}
+		}
+	}
+
+	private static int find(final int[] parent, int a) {
+		while (parent[a] != a) {
+			parent[a] = parent[parent[a]];
+			a = parent[a];
+		}
+		return a;
+	}
+
+	/**
+	 * @return Independent components of the relation's attributes, in the order of their first attribute.
+	 */
+	public List<List<Attribute>> getComponents() {
+		return components;
+	}
+
+	public AttributeEquivalence getEquivalence() {
+		return equivalence;
+	}
+
+	protected boolean isPrunedKeySearch() {
+		return prunedKeySearch;
+	}
+
+	/**
+	 * @param prunedKeySearch
+	 *            True to search the keys without the closure table.
+	 */
+	protected void setPrunedKeySearch(final boolean prunedKeySearch) {
+		this.prunedKeySearch = prunedKeySearch;
+	}
+
+	protected int getAttributeCount() {
+		return attributes.size();
+	}
+
+	protected long getAllAttributes() {
+		return (1L << attributes.size()) - 1;
+	}
+
+	/**
+	 * @param attributeList
+	 * @return The attributes as a bit mask, or -1 if one of them is not an attribute of the relation.
+	 */
+	protected long toSubset(final List<Attribute> attributeList) {
+		long subset = 0;
+		for (Attribute a : attributeList) {
+			int id = batchClosure.getIndex().getAttributeId(a);
+			if (id < 0 || id >= attributes.size()) {
+				return -1;
+			}
+			subset |= 1L << id;
+		}
+		return subset;
+	}
+
+	/**
+	 * Closes every subset of representatives of every component; calculated once and reused.
+	 * @return For each component, the closure (as a bit mask over the relation's
+	 *         attributes) of each set of its groups, indexed by the set's bit mask
+	 *         over the component's groups, or null for a component of more than
+	 *         {@link #MAX_TABLE_GROUPS} groups.
+	 */
+	protected long[][] getComponentClosures() {
+		if (componentClosures == null) {
+			final long[][] closures = new long[components.size()][];
+			List<Runnable> tasks = new ArrayList<>();
+			for (int c = 0; c < closures.length; c++) {
+				final int component = c;
+				final int[] representatives = componentRepresentatives[c];
+				if (representatives.length > MAX_TABLE_GROUPS) {
+					continue;
+				}
+				tasks.add(new Runnable() {
+					@Override
+					public void run() {
+						long[] subsets = new long[1 << representatives.length];
+						for (int local = 0; local < subsets.length; local++) {
+							long subset = 0;
+							for (int g = 0; g < representatives.length; g++) {
+								if ((local & (1 << g)) != 0) {
+									subset |= 1L << representatives[g];
+								}
+							}
+							subsets[local] = subset;
+						}
+						closures[component] = batchClosure.closeSubsets(subsets);
+					}
+				});
+			}
+			executor.runAll(tasks);
+			componentClosures = closures;
+		}
+		return componentClosures;
+	}
+
+	/**
+	 * @param subset
+	 *            Attribute set as a bit mask over the relation's attributes.
+	 * @return Closure of the attribute set as a bit mask over the relation's attributes.
+	 */
+	protected long closureOf(long subset) {
+		long[][] closures = getComponentClosures();
+		int[] locals = new int[closures.length];
+		long rest = subset;
+		for (int i = 0; rest != 0; i++, rest >>>= 1) {
+			if ((rest & 1L) != 0) {
+				locals[componentOf[i]] |= localBits[i];
+			}
+		}
+		long closure = 0;
+		for (int c = 0; c < closures.length; c++) {
+			if (closures[c] != null) {
+				closure |= closures[c][locals[c]];
+			} else if ((subset & componentMasks[c]) != 0) {
+				// No table; the component is independent, so its part is closed on its own.
+				closure |= batchClosure.closeSubsets(new long[] { subset & componentMasks[c] })[0];
+			}
+		}
+		return closure;
+	}
+
+	/**
+	 * @param subset
+	 *            Attribute set as a bit mask over the relation's attributes.
+	 * @return Closure object of the attribute set, with both sides sorted.
+	 */
+	protected Closure toClosure(final long subset) {
+		return batchClosure.toClosure(subset, closureOf(subset));
+	}
+
+	/**
+	 * @return True if closures are calculated directly instead of looked up,
+	 *         which is the case with the pruned key search until the closure
+	 *         table has been built.
+	 */
+	protected boolean closesDirectly() {
+		return prunedKeySearch && componentClosures == null;
+	}
+
+	/**
+	 * Closes attribute sets directly, without the closure table.
+	 * @param subsets
+	 *            Attribute sets as bit masks over the relation's attributes.
+	 * @param closures
+	 *            Receives the closure of each attribute set as a bit mask.
+	 * @param count
+	 *            Number of attribute sets to close, at most {@link BatchClosure#BATCH_SIZE}.
+	 */
+	protected void closeDirectly(final long[] subsets, final long[] closures, final int count) {
+		batchClosure.closeSubsets(subsets, closures, 0, count);
+	}
+
+	/**
+	 * @param subset
+	 *            Attribute set as a bit mask over the relation's attributes.
+	 * @param closure
+	 *            Its closure as a bit mask over the relation's attributes.
+	 * @return Closure object with both sides sorted.
+	 */
+	protected Closure toClosure(final long subset, final long closure) {
+		return batchClosure.toClosure(subset, closure);
+	}
+
+	/**
+	 * @param attributeList
+	 * @return Closure object of the given attributes, or null if the list is
+	 *         empty or holds an attribute that is not in the relation.
+	 */
+	protected Closure toClosure(final List<Attribute> attributeList) {
+		long subset = toSubset(attributeList);
+		if (subset <= 0) {
+			return null;
+		}
+		if (closesDirectly()) {
+			return batchClosure.toClosure(subset, batchClosure.closeSubsets(new long[] { subset })[0]);
+		}
+		return toClosure(subset);
+	}
+
+	/**
+	 * @param subset
+	 *            Key or superkey as a bit mask over the relation's attributes.
+	 * @return Its closure object, which is the closure of all attributes.
+	 */
+	protected Closure toSuperKeyClosure(final long subset) {
+		if (fullClosure < 0) {
+			fullClosure = closesDirectly()
+					? batchClosure.closeSubsets(new long[] { getAllAttributes() })[0]
+					: closureOf(getAllAttributes());
+		}
+		return batchClosure.toClosure(subset, fullClosure);
+	}
+
+	@Override
+	public ClosureIterator iterator() {
+		return new ClosureIterator(this);
+	}
+
+	/**
+	 * @param subset
+	 *            Attribute set as a bit mask over the relation's attributes.
+	 * @return True if the attribute set is a minimum candidate key of the relation.
+	 */
+	protected boolean isMinimumKey(final long subset) {
+		return findMinimumKeys().contains(subset);
+	}
+
+	/**
+	 * @param subset
+	 *            Attribute set as a bit mask over the relation's attributes.
+	 * @return True if the attribute set is a key or superkey of the relation.
+	 */
+	protected boolean isSuperKey(final long subset) {
+		if (prunedKeySearch) {
+			for (long key : findMinimumKeys()) {
+				if ((subset & key) == key) {
+					return true;
+				}
+			}
+			return false;
+		}
+		long all = getAllAttributes();
+		return (closureOf(subset) & all) == all;
+	}
+
+	/**
+	 * Searches the minimum keys of each component over its representatives, in
+	 * order of increasing size, expands them by substituting every member of a
+	 * group for its representative, and combines the components' keys. The
+	 * keys are calculated once and reused.
+	 * @return Bit masks over the relation's attributes of all minimum candidate keys.
+	 */
+	protected HashSet<Long> findMinimumKeys() {
+		if (minimumKeys != null) {
+			return minimumKeys;
+		}
+		final long[][] closures = prunedKeySearch ? null : getComponentClosures();
+		final List<List<Long>> componentKeys = new ArrayList<>();
+		List<Runnable> tasks = new ArrayList<>();
+		for (int c = 0; c < components.size(); c++) {
+			final List<Long> keys = new ArrayList<>();
+			componentKeys.add(keys);
+			final int component = c;
+			tasks.add(new Runnable() {
+				@Override
+				public void run() {
+					if (closures == null || closures[component] == null) {
+						findComponentKeysPruned(component, keys);
+					} else {
+						findComponentKeys(component, closures[component], keys);
+					}
+				}
+			});
+		}
+		executor.runAll(tasks);
+		List<Long> combined = new ArrayList<>();
+		combined.add(0L);
+		for (List<Long> keys : componentKeys) {
+			List<Long> next = new ArrayList<>();
+			for (long partial : combined) {
+				for (long key : keys) {
+					next.add(partial | key);
+				}
+			}
+			combined = next;
+		}
+		minimumKeys = new HashSet<>(combined);
+		return minimumKeys;
+	}
+
+	private void findComponentKeys(final int component, final long[] closures, final List<Long> keys) {
+		long all = componentMasks[component];
+		int groupCount = componentRepresentatives[component].length;
+		List<Integer> localKeys = new ArrayList<>();
+		for (int size = 1; size <= groupCount; size++) {
+			AnalysisMetrics.checkBudget();
+			// Visit all sets of groups of the given size in increasing order (Gosper's hack).
+			int local = (1 << size) - 1;
+			while (local < closures.length) {
+				if ((closures[local] & all) == all) {
+					boolean containsKey = false;
+					for (int key : localKeys) {
+						if ((local & key) == key) {
+							containsKey = true;
+							break;
+						}
+					}
+					if (!containsKey) {
+						localKeys.add(local);
+					}
+				}
+				int lowest = local & -local;
+				int ripple = local + lowest;
+				local = (((ripple ^ local) >>> 2) / lowest) | ripple;
+			}
+		}
+		for (int localKey : localKeys) {
+			expand(component, localKey, 0, 0L, keys);
+		}
+	}
+
+	/**
+	 * Searches the minimum keys of a component without its closure table. A
+	 * representative that the other representatives do not determine is in
+	 * every key; a representative that they do determine and whose group
+	 * appears on no left-hand side is in no key, since removing it from a key
+	 * changes no other closure. The search starts from the representatives that
+	 * every key needs and adds sets of the remaining ones in order of increasing
+	 * size, closing 64 candidate sets at a time and skipping supersets of keys
+	 * already found. Sets are bit masks over the component's groups, so it
+	 * handles up to 62 of them; the analysis budget stops a search that grows
+	 * too large, with the skipped sets counted like the steps of a closure walk
+	 * (see {@link AnalysisMetrics#countWalkSteps(long)}).
+	 */
+	private void findComponentKeysPruned(final int component, final List<Long> keys) {
+		long all = componentMasks[component];
+		int[] representatives = componentRepresentatives[component];
+		long allRepresentatives = 0;
+		for (int r : representatives) {
+			allRepresentatives |= 1L << r;
+		}
+		long onLeftSide = 0;
+		ClosureIndex index = batchClosure.getIndex();
+		for (int fd = 0; fd < index.getFDCount(); fd++) {
+			for (int a : index.getLeftSide(fd)) {
+				if (a < attributes.size()) {
+					onLeftSide |= 1L << a;
+				}
+			}
+		}
+		long[] withoutOne = new long[representatives.length];
+		for (int g = 0; g < representatives.length; g++) {
+			withoutOne[g] = allRepresentatives & ~(1L << representatives[g]);
+		}
+		long[] withoutOneClosures = batchClosure.closeSubsets(withoutOne);
+		long core = 0;
+		List<Integer> candidates = new ArrayList<>();
+		for (int g = 0; g < representatives.length; g++) {
+			if ((withoutOneClosures[g] & (1L << representatives[g])) == 0) {
+				core |= 1L << g;
+			} else if ((groupMask(representatives[g]) & onLeftSide) != 0) {
+				candidates.add(g);
+			}
+		}
+		List<Long> localKeys = new ArrayList<>();
+		long[] batch = new long[BatchClosure.BATCH_SIZE];
+		long[] batchLocals = new long[BatchClosure.BATCH_SIZE];
+		long[] batchClosures = new long[BatchClosure.BATCH_SIZE];
+		int skippedSets = 0;
+		for (int size = 0; size <= candidates.size(); size++) {
+			AnalysisMetrics.checkBudget();
+			int count = 0;
+			long limit = 1L << candidates.size();
+			// Visit all sets of candidates of the given size in increasing order (Gosper's hack).
+			for (long chosen = (1L << size) - 1; chosen < limit; ) {
+				long local = core;
+				for (int i = 0; i < candidates.size(); i++) {
+					if ((chosen & (1L << i)) != 0) {
+						local |= 1L << candidates.get(i);
+					}
+				}
+				if (!containsAny(local, localKeys)) {
+					batch[count] = toRepresentativeSubset(component, local);
+					batchLocals[count] = local;
+					count++;
+				} else if (++skippedSets == ClosureIterator.BUDGET_CHECK_INTERVAL) {
+					skippedSets = 0;
+					AnalysisMetrics.countWalkSteps(ClosureIterator.BUDGET_CHECK_INTERVAL);
+				}
+				if (count == batch.length) {
+					addKeys(batch, batchLocals, batchClosures, count, all, localKeys);
+					count = 0;
+				}
+				if (size == 0) {
+					break;
+				}
+				long lowest = chosen & -chosen;
+				long ripple = chosen + lowest;
+				chosen = (((ripple ^ chosen) >>> 2) / lowest) | ripple;
+			}
+			addKeys(batch, batchLocals, batchClosures, count, all, localKeys);
+			if (size == 0 && !localKeys.isEmpty()) {
+				// The representatives that every key needs form the only key.
+				break;
+			}
+		}
+		for (long localKey : localKeys) {
+			expand(component, localKey, 0, 0L, keys);
+		}
+	}
+
+	private void addKeys(final long[] batch, final long[] batchLocals, final long[] batchClosures, final int count,
+			final long all, final List<Long> localKeys) {
+		if (count == 0) {
+			return;
+		}
+		batchClosure.closeSubsets(batch, batchClosures, 0, count);
+		for (int j = 0; j < count; j++) {
+			if ((batchClosures[j] & all) == all) {
+				localKeys.add(batchLocals[j]);
+			}
+		}
+	}
+
+	private static boolean containsAny(final long local, final List<Long> localKeys) {
+		for (long key : localKeys) {
+			if ((local & key) == key) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private long toRepresentativeSubset(final int component, final long local) {
+		int[] representatives = componentRepresentatives[component];
+		long subset = 0;
+		for (int g = 0; g < representatives.length; g++) {
+			if ((local & (1L << g)) != 0) {
+				subset |= 1L << representatives[g];
+			}
+		}
+		return subset;
+	}
+
+	private long groupMask(final int attribute) {
+		int group = equivalence.getGroupOf(attribute);
+		long mask = 0;
+		for (int i = 0; i < attributes.size(); i++) {
+			if (equivalence.getGroupOf(i) == group) {
+				mask |= 1L << i;
+			}
+		}
+		return mask;
+	}
+
+	private void expand(final int component, final long localKey, final int group, final long key, final List<Long> keys) {
+		int[] representatives = componentRepresentatives[component];
+		if (group == representatives.length) {
+			keys.add(key);
+			return;
+		}
+		if ((localKey & (1L << group)) == 0) {
+			expand(component, localKey, group + 1, key, keys);
+			return;
+		}
+		int representativeGroup = equivalence.getGroupOf(representatives[group]);
+		for (int i = 0; i < attributes.size(); i++) {
+			if (equivalence.getGroupOf(i) == representativeGroup) {
+				expand(component, localKey, group + 1, key | (1L << i), keys);
+			}
+		}
+	}
+}
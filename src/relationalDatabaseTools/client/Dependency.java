@@ -58,37 +58,13 @@ public abstract class Dependency<T extends Dependency<T>> implements Comparable<
 	}
 	
 	private void setAttributes(final String input) {
-		String[] splitted = input.split("->");
-		String fullLeft = splitted[0];
-		String fullRight = splitted[1];
-		
-		// Get left attributes
-		String[] leftAttributes = fullLeft.split(",");
-		for (String attribute : leftAttributes) {
-			if (!attribute.isEmpty()) {
-				Attribute a = relation.getAttribute(attribute);
-				if (a == null) {
-					relation.setIntegrityCheckErrorMsg("Attribute " + attribute + " does not exist in schema of Relation " + relation.getName());
-					relation.setPassedIntegrityChecks(false);
-					return;
-				}
-				leftSide.add(a);
-			}
-		}
-		
-		// Get right attributes
-		String[] rightAttributes = fullRight.split(",");
-		for (String attribute : rightAttributes) {
-			if (!attribute.isEmpty()) {
-				Attribute a = relation.getAttribute(attribute);
-				if (a == null) {
-					relation.setIntegrityCheckErrorMsg("Attribute " + attribute + " does not exist in schema of Relation " + relation.getName());
-					relation.setPassedIntegrityChecks(false);
-					return;
-				}
-				rightSide.add(a);
-			}
+		DependencyTokenizer tokenizer = new DependencyTokenizer(input, relation.getAttributes());
+		if (!tokenizer.next()) {
+			return;
 		}
+		relation.reportUnknownAttribute(tokenizer);
+		leftSide.addAll(tokenizer.getLeftHandAttributes());
+		rightSide.addAll(tokenizer.getRightHandAttributes());
 	}
 	
 	/**
@@ -0,0 +1,206 @@
+package relationalDatabaseTools.client;
+
+import java.util.List;
+
+/**
+ * Writes the sections of an {@link AnalysisReport} that need the minimal
+ * cover, normal form and decomposition code. The report only reaches that code
+ * through an instance of this class, so that the user interface can load it on
+ * demand with a split point while the closures and keys are shown.
+ * @author Raymond Cho
+ *
+ */
+public class DependencyReport {
+	private final Relation relation;
+	private final AnalysisOutput output;
+	private Calculate3NFDecomposition threeNF;
+	
+	/**
+	 * @param relation
+	 *            Relation of the report, whose closures and keys have been calculated.
+	 * @param output
+	 */
+	public DependencyReport(final Relation relation, final AnalysisOutput output) {
+		if (relation == null || output == null) {
+			throw new IllegalArgumentException("Input relation or output is null.");
+		}
+		this.relation = relation;
+		this.output = output;
+	}
+	
+	protected void renderMinimalCover() {
+		// Print out minimal cover of functional dependencies
+		output.appendMajorBreak();
+		MinimalFDCover.determineMinimalCover(relation);
+		output.append("Calculating a minimal cover set (F_min) of functional dependencies from given input: (note that functional dependencies with common left-hand sides have their right-hand sides combined)", true);
+		output.appendMinorBreak();
+		List<FunctionalDependency> minimalCover = relation.getMinimalCover();
+		List<String> minimalCoverOutput = relation.getMinimalCoverOutput();
+		for (String line : minimalCoverOutput) {
+			output.append(line, true);
+		}
+		output.appendMinorBreak();
+		if (minimalCover.isEmpty()) {
+			output.append("There are no functional dependencies in the minimal cover set.", true);
+		} else {
+			output.append("F_min = { ", true);
+			for (int i = 0; i < minimalCover.size(); i++) {
+				output.append(minimalCover.get(i).getFDName(), false);
+				if (i < minimalCover.size() - 1) {
+					output.append("; ", false);
+				}
+			}
+			output.append(" }", false);
+		}
+	}
+	
+	protected void renderNormalForms() {
+		// Display normal forms
+		output.appendMajorBreak();
+		output.append("Determining highest normal form of relation: ", true);
+		relation.determineNormalForms();
+		DetermineNormalForms normalForms = relation.getNormalFormsResults();
+		output.append(normalForms.getFirstNormalFormMsg(), true);
+		output.appendMinorBreak();
+		output.append(normalForms.getSecondNormalFormMsg(), true);
+		output.appendMinorBreak();
+		output.append(normalForms.getThirdNormalFormMsg(), true);
+		output.appendMinorBreak();
+		output.append(normalForms.getBCNFMsg(), true);
+		output.appendMinorBreak();
+		output.append(normalForms.getFourthNormalFormMsg(), true);
+	}
+	
+	protected void render3NFDecomposition() {
+		DetermineNormalForms normalForms = relation.getNormalFormsResults();
+		
+		// Output 3NF decomposition
+		output.appendMajorBreak();
+		output.append("Decomposing input relation into 3NF using canonical functional dependency cover (lossless and preserving all minimal cover set functional dependencies): ", true);
+		threeNF = new Calculate3NFDecomposition(relation);
+		if (normalForms.isIn3NF()) {
+			output.append("Input relation is already in 3NF. No decomposition necessary. ", true);
+		} else {
+			threeNF.decompose();
+			output.append(threeNF.getOutputMsg(), true);
+			List<Relation> output3NFRelations = threeNF.getOutputRelations();
+			for (Relation r : output3NFRelations) {
+				output.append(r.printRelation(), true);
+			}
+		}
+	}
+	
+	protected void renderBCNFDecomposition() {
+		DetermineNormalForms normalForms = relation.getNormalFormsResults();
+		
+		// Output BCNF decomposition
+		output.appendMajorBreak();
+		output.append("Decomposing input relation into BCNF relations (lossless but not necessarily functional dependency preserving). Will attempt two parallel decompositions: one from the input relation and the second from the set of decomposed 3NF relations: ", true);
+		output.appendMinorBreak();
+		if (normalForms.isInBCNF()) {
+			output.append("Input relation is already in BCNF. No decomposition necessary. ", true);
+		} else {
+			if (normalForms.isIn3NF()) {
+				threeNF.decompose();
+			}
+			CalculateBCNFDecomposition bcnf = new CalculateBCNFDecomposition(threeNF);
+			bcnf.decompose();
+			
+			// Start with input relation source BCNF decomposition
+			if (bcnf.isPureBCNFSkipped()) {
+				output.append(bcnf.getPureBCNFSkippedMsg(), true);
+			} else {
+				output.append("Decomposing input relation into BCNF relations using input relation and input functional dependencies as sources. ", true);
+				if (bcnf.getBcnfDecomposedWithDuplicates().size() == bcnf.getPureBCNFDecomposedRs().size()) {
+					output.append("Final set of decomposed BCNF relations: ", true);
+					for (Relation r : bcnf.getPureBCNFDecomposedRs()) {
+						output.append(r.printRelation(), true);
+					}
+				} else {
+					output.append("Initial set of decomposed BCNF relations: ", true);
+					for (Relation r : bcnf.getBcnfDecomposedWithDuplicates()) {
+						output.append(r.printRelation(), true);
+					}
+					output.append("Final set of decomposed BCNF relations (removing duplicate and subset relations): ", true);
+					for (Relation r : bcnf.getPureBCNFDecomposedRs()) {
+						output.append(r.printRelation(), true);
+					}
+				}
+				List<FunctionalDependency> pureBCNFLostFDs = bcnf.getPureBCNFLostFDs();
+				if (pureBCNFLostFDs.isEmpty()) {
+					output.append("No input functional dependencies were lost.", true);
+				} else {
+					if (pureBCNFLostFDs.size() == 1) {
+						output.append("The following input functional dependency was lost: ", true);
+					} else {
+						output.append("The following input functional dependencies were lost: ", true);
+					}
+					for (int i = 0; i < pureBCNFLostFDs.size(); i++) {
+						output.append(pureBCNFLostFDs.get(i).getFDName(), false);
+						if (i < pureBCNFLostFDs.size() - 1) {
+							output.append("; ", false);
+						}
+					}
+					output.append(".", false);
+					output.append("Note that a lost input functional dependency can be safely ignored if it is not part of the minimal cover set of functional dependencies", true);
+				}
+			}
+			
+			output.appendMinorBreak();
+			
+			// Next display 3NF relation source BCNF decomposition
+			output.append("Decomposing input relation into BCNF relations using decomposed 3NF relations and the minimal cover set of functional dependencies as sources. ", true);
+			if (bcnf.getThreeNFDecomposedWithDuplicates().size() == bcnf.getThreeNFDecomposedRs().size()) {
+				output.append("Final set of decomposed BCNF relations: ", true);
+				for (Relation r : bcnf.getThreeNFDecomposedRs()) {
+					output.append(r.printRelation(), true);
+				}
+			} else {
+				output.append("Initial set of decomposed BCNF relations: ", true);
+				for (Relation r : bcnf.getThreeNFDecomposedWithDuplicates()) {
+					output.append(r.printRelation(), true);
+				}
+				output.append("Final set of decomposed BCNF relations (removing duplicate and subset relations): ", true);
+				for (Relation r : bcnf.getThreeNFDecomposedRs()) {
+					output.append(r.printRelation(), true);
+				}
+			}
+			List<FunctionalDependency> threeNFLostFDs = bcnf.getThreeNFLostFDs();
+			if (threeNFLostFDs.isEmpty()) {
+				output.append("No functional dependencies from the minimal cover set were lost.", true);
+			} else {
+				if (threeNFLostFDs.size() == 1) {
+					output.append("The following minimal cover set functional dependency was lost: ", true);
+				} else {
+					output.append("The following minimal cover set functional dependencies were lost: ", true);
+				}
+				for (int i = 0; i < threeNFLostFDs.size(); i++) {
+					output.append(threeNFLostFDs.get(i).getFDName(), false);
+					if (i < threeNFLostFDs.size() - 1) {
+						output.append("; ", false);
+					}
+				}
+				output.append(".", false);
+			}
+			
+			output.append(bcnf.getOutputMsg(), true);
+			List<Relation> resultsWithDuplicates = bcnf.getResultWithDuplicates();
+			List<Relation> outputBCNFRelations = bcnf.getOutputRelations();
+			if (resultsWithDuplicates.size() == outputBCNFRelations.size()) {
+				for (Relation r : outputBCNFRelations) {
+					output.append(r.printRelation(), true);
+				}
+			} else {
+				output.append("Initial set of decomposed BCNF relations: ", true);
+				for (Relation r : resultsWithDuplicates) {
+					output.append(r.printRelation(), true);
+				}
+				output.append("Final set of decomposed BCNF relations (removing duplicate and subset relations): ", true);
+				for (Relation r : outputBCNFRelations) {
+					output.append(r.printRelation(), true);
+				}
+			}
+			
+		}
+	}
+}
@@ -0,0 +1,353 @@
+package relationalDatabaseTools.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a list of dependencies in the input form A,B -> C; D -> E one
+ * dependency at a time, in a single pass over the characters and without
+ * regular expressions, and resolves attribute names to attribute IDs (their
+ * positions in the relation's attribute list) as it goes. Whitespace is
+ * ignored everywhere, also inside attribute names and arrows. The rules of
+ * splitting the input are kept:
+ * <ul>
+ * <li>Dependencies are separated by semi-colons. A dependency without an
+ * arrow, or with nothing but arrows after its first arrow, is read as empty
+ * and its attributes are not checked.</li>
+ * <li>The left-hand side is everything before the first arrow and the
+ * right-hand side everything up to a second arrow; the rest is ignored.</li>
+ * <li>Empty attribute names between commas are skipped. The first attribute
+ * that does not exist in the relation ends its side, and a left-hand side
+ * that ends that way also ends the dependency.</li>
+ * </ul>
+ * Positions are character offsets in the input. Each dependency also has a
+ * {@link Key} made of the attribute masks of its sides, to find duplicates
+ * by hashing.
+ * @author Raymond Cho
+ *
+ */
+public class DependencyTokenizer {
+	/**
+	 * Left-hand and right-hand attribute masks of a dependency, in words of 64
+	 * attribute IDs. Two dependencies without repeated attributes have equal
+	 * keys exactly if they have the same name.
+	 */
+	public static final class Key {
+		private final long[] words;
+		private final int hash;
+
+		private Key(final long[] words) {
+			this.words = words;
+			this.hash = hash(words);
+		}
+
+		/**
+		 * Masks have few bits set, so each word is mixed by a multiplication
+		 * to spread them over the hash.
+		 */
+		private static int hash(final long[] words) {
+			long h = 0;
+			for (long word : words) {
+				h = (h ^ word) * 0x9E3779B97F4A7C15L;
+				h ^= h >>> 32;
+			}
+			return (int) h;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (o == this) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			return Arrays.equals(words, ((Key) o).words);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	private final String input;
+	private final List<Attribute> attributes;
+	private final Map<String, Integer> attributeIds;
+	/**
+	 * Stamp of the side each attribute was last read on, to find duplicates.
+	 */
+	private final int[] seen;
+	private int stamp;
+	private int position;
+	private final StringBuilder token = new StringBuilder();
+	private int tokenStart;
+
+	private int start;
+	private int[] left = new int[8];
+	private int leftCount;
+	private int[] right = new int[8];
+	private int rightCount;
+	private boolean duplicateAttributes;
+	private String unknownAttribute;
+	private int unknownAttributePosition;
+
+	/**
+	 * @param input
+	 *            Dependencies, separated by semi-colons.
+	 * @param attributes
+	 *            Attributes of the relation.
+	 */
+	public DependencyTokenizer(final String input, final List<Attribute> attributes) {
+		if (input == null || attributes == null) {
+			throw new IllegalArgumentException("Input dependencies or attributes is null.");
+		}
+		this.input = input;
+		this.attributes = attributes;
+		this.attributeIds = new HashMap<>();
+		for (int i = 0; i < attributes.size(); i++) {
+			if (!attributeIds.containsKey(attributes.get(i).getName())) {
+				attributeIds.put(attributes.get(i).getName(), i);
+			}
+		}
+		this.seen = new int[attributes.size()];
+	}
+
+	/**
+	 * Reads the next dependency.
+	 * @return False if there are no more dependencies.
+	 */
+	public boolean next() {
+		if (position >= input.length()) {
+			return false;
+		}
+		start = position;
+		leftCount = 0;
+		rightCount = 0;
+		duplicateAttributes = false;
+		unknownAttribute = null;
+		unknownAttributePosition = -1;
+		stamp += 2;
+		// 0: left-hand side, 1: right-hand side, 2: after the second arrow.
+		int side = 0;
+		boolean contentAfterArrow = false;
+		while (position < input.length()) {
+			char c = input.charAt(position);
+			if (c == ';') {
+				break;
+			}
+			if (isWhitespace(c)) {
+				position++;
+				continue;
+			}
+			if (c == '-') {
+				int next = skipWhitespace(position + 1);
+				if (next < input.length() && input.charAt(next) == '>') {
+					endToken(side);
+					if (side < 2) {
+						side++;
+					}
+					position = next + 1;
+					continue;
+				}
+			}
+			if (side > 0) {
+				contentAfterArrow = true;
+			}
+			if (side < 2) {
+				if (c == ',') {
+					endToken(side);
+				} else {
+					if (token.length() == 0) {
+						tokenStart = position;
+					}
+					token.append(c);
+				}
+			}
+			position++;
+		}
+		endToken(side);
+		if (position < input.length()) {
+			// Skip the semi-colon.
+			position++;
+		}
+		if (!contentAfterArrow) {
+			leftCount = 0;
+			rightCount = 0;
+			duplicateAttributes = false;
+			unknownAttribute = null;
+			unknownAttributePosition = -1;
+		}
+		return true;
+	}
+
+	/**
+	 * Resolves the attribute name read so far, if any, on the given side.
+	 */
+	private void endToken(final int side) {
+		if (token.length() == 0) {
+			return;
+		}
+		String name = token.toString();
+		token.setLength(0);
+		if (side == 2 || unknownAttribute != null) {
+			return;
+		}
+		Integer id = attributeIds.get(name);
+		if (id == null) {
+			unknownAttribute = name;
+			unknownAttributePosition = tokenStart;
+			return;
+		}
+		int sideStamp = side == 0 ? stamp : stamp + 1;
+		if (seen[id] == sideStamp) {
+			duplicateAttributes = true;
+		}
+		seen[id] = sideStamp;
+		if (side == 0) {
+			if (leftCount == left.length) {
+				left = grow(left);
+			}
+			left[leftCount++] = id;
+		} else {
+			if (rightCount == right.length) {
+				right = grow(right);
+			}
+			right[rightCount++] = id;
+		}
+	}
+
+	private static int[] grow(final int[] ids) {
+		int[] result = new int[ids.length * 2];
+		System.arraycopy(ids, 0, result, 0, ids.length);
+		return result;
+	}
+
+	private int skipWhitespace(final int from) {
+		int i = from;
+		while (i < input.length() && isWhitespace(input.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * @return True for the characters matched by the regular expression \s.
+	 */
+	protected static boolean isWhitespace(final char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	/**
+	 * @return True if the input is empty or only whitespace.
+	 */
+	protected static boolean isBlank(final String input) {
+		for (int i = 0; i < input.length(); i++) {
+			if (!isWhitespace(input.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return Position of the first character of the current dependency.
+	 */
+	public int getStart() {
+		return start;
+	}
+
+	/**
+	 * @return IDs of the left-hand attributes of the current dependency, in input order.
+	 */
+	public int[] getLeftHandIds() {
+		int[] result = new int[leftCount];
+		System.arraycopy(left, 0, result, 0, leftCount);
+		return result;
+	}
+
+	/**
+	 * @return IDs of the right-hand attributes of the current dependency, in input order.
+	 */
+	public int[] getRightHandIds() {
+		int[] result = new int[rightCount];
+		System.arraycopy(right, 0, result, 0, rightCount);
+		return result;
+	}
+
+	/**
+	 * @return Key of the current dependency.
+	 */
+	public Key getKey() {
+		int size = (attributes.size() + 63) / 64;
+		long[] words = new long[2 * size];
+		for (int i = 0; i < leftCount; i++) {
+			words[left[i] >>> 6] |= 1L << left[i];
+		}
+		for (int i = 0; i < rightCount; i++) {
+			words[size + (right[i] >>> 6)] |= 1L << right[i];
+		}
+		return new Key(words);
+	}
+
+	/**
+	 * @return Key of a dependency with the given sides; attributes that are not in the relation are left out.
+	 */
+	public Key keyOf(final List<Attribute> leftHandSide, final List<Attribute> rightHandSide) {
+		int size = (attributes.size() + 63) / 64;
+		long[] words = new long[2 * size];
+		for (Attribute a : leftHandSide) {
+			Integer id = attributeIds.get(a.getName());
+			if (id != null) {
+				words[id >>> 6] |= 1L << id;
+			}
+		}
+		for (Attribute a : rightHandSide) {
+			Integer id = attributeIds.get(a.getName());
+			if (id != null) {
+				words[size + (id >>> 6)] |= 1L << id;
+			}
+		}
+		return new Key(words);
+	}
+
+	public List<Attribute> getLeftHandAttributes() {
+		return toAttributes(left, leftCount);
+	}
+
+	public List<Attribute> getRightHandAttributes() {
+		return toAttributes(right, rightCount);
+	}
+
+	private List<Attribute> toAttributes(final int[] ids, final int count) {
+		List<Attribute> result = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			result.add(attributes.get(ids[i]));
+		}
+		return result;
+	}
+
+	/**
+	 * @return True if an attribute appears twice on the same side of the current dependency.
+	 */
+	public boolean hasDuplicateAttributes() {
+		return duplicateAttributes;
+	}
+
+	/**
+	 * @return Name of the first attribute of the current dependency that does not exist, or null if there is none.
+	 */
+	public String getUnknownAttribute() {
+		return unknownAttribute;
+	}
+
+	/**
+	 * @return Position of the unknown attribute, or -1 if there is none.
+	 */
+	public int getUnknownAttributePosition() {
+		return unknownAttributePosition;
+	}
+}
@@ -3,6 +3,8 @@ package relationalDatabaseTools.client;
 import java.util.ArrayList;
 import java.util.List;
 
+import relationalDatabaseTools.client.AnalysisMetrics.Stage;
+
 /**
  * Checks input relation for compliance with normal forms.
  * 
@@ -10,6 +12,16 @@ import java.util.List;
  * 
  */
 public class DetermineNormalForms {
+	/**
+	 * Calculates the normal forms for the {@link AnalysisGraph}.
+	 */
+	protected static final AnalysisGraph.Calculator CALCULATOR = new AnalysisGraph.Calculator() {
+		@Override
+		public void calculate(final Relation relation) {
+			relation.getNormalFormsResults().calculateNormalForms();
+		}
+	};
+
 	private final Relation relation;
 	public boolean hasDeterminedNormalForms;
 	private boolean isFirstNormalForm;
@@ -30,13 +42,27 @@ public class DetermineNormalForms {
 		bcnfViolatingFDs = null;
 	}
 
+	/**
+	 * Sets the calculators of the normal forms, and of the minimal cover they
+	 * are determined from, on the {@link AnalysisGraph}.
+	 */
+	protected static void setCalculators() {
+		AnalysisGraph.setCalculator(AnalysisGraph.Node.MINIMAL_COVER, MinimalFDCover.CALCULATOR);
+		AnalysisGraph.setCalculator(AnalysisGraph.Node.NORMAL_FORMS, CALCULATOR);
+	}
+
 	public void calculateNormalForms() {
-		calculateFirstNormalForm();
-		calculateSecondNormalForm();
-		calculateThirdNormalForm();
-		calculateBCNF();
-		calculateFourthNormalForm();
-		hasDeterminedNormalForms = true;
+		AnalysisMetrics metrics = AnalysisMetrics.begin(Stage.NORMAL_FORMS, relation);
+		try {
+			calculateFirstNormalForm();
+			calculateSecondNormalForm();
+			calculateThirdNormalForm();
+			calculateBCNF();
+			calculateFourthNormalForm();
+			hasDeterminedNormalForms = true;
+		} finally {
+			metrics.end(Stage.NORMAL_FORMS);
+		}
 	}
 
 	private void calculateFirstNormalForm() {
@@ -81,7 +107,7 @@ public class DetermineNormalForms {
 					}
 				}
 				for (Attribute ac : nonPrimes) {
-					for (Closure c : relation.getClosures()) {
+					for (Closure c : relation.iterateClosures()) {
 						if (c.getClosureOf().size() >= minClosure.getClosureOf().size()) {
 							break;
 						}
@@ -165,6 +191,16 @@ public class DetermineNormalForms {
 	 */
 	@SuppressWarnings("rawtypes")
 	private boolean isAKeyOrSuperKey(final Dependency dependency) {
+		ClosureLattice lattice = relation.getClosureLattice();
+		if (lattice != null && !relation.getMinimumKeyClosures().isEmpty()) {
+			// Closure lookup through the independent components instead of scanning all superkeys.
+			List<Attribute> castAttrs = new ArrayList<>();
+			for (Object o : dependency.getLeftHandAttributes()) {
+				castAttrs.add((Attribute) o);
+			}
+			long subset = lattice.toSubset(castAttrs);
+			return subset > 0 && lattice.isSuperKey(subset);
+		}
 		List<Closure> allKeys = new ArrayList<>();
 		allKeys.addAll(relation.getSuperKeyClosures());
 		allKeys.addAll(relation.getMinimumKeyClosures());
@@ -353,8 +389,8 @@ public class DetermineNormalForms {
 	private void calculateFourthNormalForm() {
 		fourthNormalFormMsg = "";
 		List<MultivaluedDependency> failedMVDs = new ArrayList<>();
-		// Promote all FDs into MVDs
-		List<MultivaluedDependency> combinedMVDs = relation.getMVDs();
+		// Promote all FDs into MVDs, in a copy so that the relation's input MVDs stay as given
+		List<MultivaluedDependency> combinedMVDs = new ArrayList<>(relation.getMVDs());
 		for (FunctionalDependency fd : RDTUtils.getSingleAttributeMinimalCoverList(relation.getFDs(), relation)) {
 			MultivaluedDependency mvd = new MultivaluedDependency(fd.getLeftHandAttributes(), fd.getRightHandAttributes(), relation);
 			boolean duplicateCheck = true;
@@ -441,6 +477,10 @@ public class DetermineNormalForms {
 		return fourthNormalFormMsg;
 	}
 
+	protected boolean isIn2NF() {
+		return isSecondNormalForm;
+	}
+
 	protected boolean isIn3NF() {
 		return isThirdNormalForm;
 	}
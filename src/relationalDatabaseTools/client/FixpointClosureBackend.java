@@ -0,0 +1,84 @@
+package relationalDatabaseTools.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Original closure calculation: repeatedly scans every functional dependency
+ * until a full pass adds no new attribute. Needs no preparation, but each pass
+ * costs O(|F|^2) because of the list of already applied dependencies.
+ * @author Raymond Cho
+ *
+ */
+public class FixpointClosureBackend implements ClosureBackend {
+
+	@Override
+	public String getName() {
+		return "fixpoint";
+	}
+
+	@Override
+	public PreparedClosure prepare(final List<FunctionalDependency> givenFDs) {
+		return new PreparedClosure() {
+			@Override
+			public Closure calculateClosureOf(final List<Attribute> closureAttributes) {
+				return FixpointClosureBackend.calculateClosureOf(closureAttributes, givenFDs);
+			}
+		};
+	}
+
+	protected static Closure calculateClosureOf(final List<Attribute> closureAttributes,
+			final List<FunctionalDependency> givenFDs) {
+		if (closureAttributes == null || givenFDs == null || closureAttributes.isEmpty()) {
+			return null;
+		}
+		List<Attribute> leftSideClosure = new ArrayList<>();
+		List<Attribute> rightSideClosure = new ArrayList<>();
+		for (Attribute a : closureAttributes) {
+			if (!RDTUtils.attributeListContainsAttribute(leftSideClosure, a)) {
+				leftSideClosure.add(a);
+			}
+			if (!RDTUtils.attributeListContainsAttribute(rightSideClosure, a)) {
+				rightSideClosure.add(a);
+			}
+		}
+		int closureSize = rightSideClosure.size();
+		List<FunctionalDependency> addedFDs = new ArrayList<>();
+		long scanned = 0;
+		while (true) {
+			scanned += givenFDs.size();
+			for (FunctionalDependency f : givenFDs) {
+				if (!addedFDs.contains(f)) {
+					boolean containsAll = true;
+					for (Attribute leftAttr : f.getLeftHandAttributes()) {
+						if (!RDTUtils.attributeListContainsAttribute(rightSideClosure, leftAttr)) {
+							containsAll = false;
+							break;
+						}
+					}
+					if (containsAll) {
+						for (Attribute rightAttr : f.getRightHandAttributes()) {
+							if (!RDTUtils.attributeListContainsAttribute(rightSideClosure, rightAttr)) {
+								rightSideClosure.add(rightAttr);
+							}
+						}
+						addedFDs.add(f);
+					}
+				}
+			}
+			if (rightSideClosure.size() > closureSize) {
+				closureSize = rightSideClosure.size();
+				continue;
+			} else {
+				break;
+			}
+		}
+		Collections.sort(leftSideClosure);
+		Collections.sort(rightSideClosure);
+		AnalysisMetrics.countClosures(1);
+		AnalysisMetrics.countFDsScanned(scanned);
+
+		return new Closure(leftSideClosure, rightSideClosure);
+	}
+}
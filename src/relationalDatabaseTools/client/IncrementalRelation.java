@@ -0,0 +1,385 @@
+package relationalDatabaseTools.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Closures, keys and a minimal cover of a relation that are updated, rather
+ * than recalculated, when one functional dependency X -> Y is added or removed:
+ * <ul>
+ * <li>Adding X -> Y only grows closures, and only the closures that contain X.
+ * Each is closed again starting from its old closure. If X -> Y already follows
+ * from the other dependencies, nothing changes.</li>
+ * <li>Removing X -> Y can only shrink closures that contain X; only those are
+ * closed again from their sets. If X -> Y still follows from the remaining
+ * dependencies, nothing changes.</li>
+ * <li>A set can only become or stop being a minimum key if its closure or the
+ * closure of a set one attribute smaller changed, so only those sets are
+ * checked again.</li>
+ * <li>After an addition, the minimal cover is minimized again from the old
+ * cover plus the new dependency instead of from all dependencies. After a
+ * removal that changes the closures, it is recalculated from the remaining
+ * dependencies.</li>
+ * </ul>
+ * The closure of every subset is kept in a table, so relations are limited to
+ * {@link #MAX_ATTRIBUTES} attributes. Attribute sets are handled as bit masks
+ * in which bit i selects the i-th attribute of the relation.
+ * @author Raymond Cho
+ *
+ */
+public class IncrementalRelation {
+	public static final int MAX_ATTRIBUTES = 16;
+
+	private final Relation relation;
+	private final List<Attribute> attributes;
+	private final long fullSet;
+	private final List<FunctionalDependency> fds = new ArrayList<>();
+	private final List<long[]> fdMasks = new ArrayList<>();
+	private final long[] closures;
+	private final boolean[] isMinimumKey;
+	private List<long[]> cover;
+	private int lastUpdatedClosures;
+
+	/**
+	 * @param relation
+	 *            Relation with its input functional dependencies, at most
+	 *            {@link #MAX_ATTRIBUTES} attributes.
+	 */
+	public IncrementalRelation(final Relation relation) {
+		if (relation == null) {
+			throw new IllegalArgumentException("Input relation is null.");
+		}
+		if (!supports(relation)) {
+			throw new IllegalArgumentException("Relation " + relation.getName() + " has more than " + MAX_ATTRIBUTES + " attributes.");
+		}
+		this.relation = relation;
+		this.attributes = relation.getAttributes();
+		this.fullSet = (1L << attributes.size()) - 1;
+		for (FunctionalDependency fd : relation.getInputFDs()) {
+			fds.add(fd);
+			fdMasks.add(toMasks(fd));
+		}
+		closures = new long[1 << attributes.size()];
+		isMinimumKey = new boolean[closures.length];
+		for (int s = 0; s < closures.length; s++) {
+			closures[s] = close(s, fdMasks);
+		}
+		for (int s = 0; s < closures.length; s++) {
+			isMinimumKey[s] = checkMinimumKey(s);
+		}
+		cover = minimize(fdMasks);
+		lastUpdatedClosures = closures.length;
+	}
+
+	/**
+	 * @return True if the relation has few enough attributes.
+	 */
+	public static boolean supports(final Relation relation) {
+		return relation.getAttributes().size() <= MAX_ATTRIBUTES;
+	}
+
+	public Relation getRelation() {
+		return relation;
+	}
+
+	public List<FunctionalDependency> getFDs() {
+		return Collections.unmodifiableList(fds);
+	}
+
+	/**
+	 * @param fd
+	 *            Functional dependency over this relation's attributes.
+	 * @return False if an equal functional dependency was already present.
+	 */
+	public boolean addFunctionalDependency(final FunctionalDependency fd) {
+		if (indexOf(fd) >= 0) {
+			lastUpdatedClosures = 0;
+			return false;
+		}
+		long[] added = toMasks(fd);
+		boolean implied = (close(added[0], fdMasks) & added[1]) == added[1];
+		fds.add(fd);
+		fdMasks.add(added);
+		if (implied) {
+			lastUpdatedClosures = 0;
+			return true;
+		}
+		List<Integer> changed = new ArrayList<>();
+		for (int s = 0; s < closures.length; s++) {
+			if ((closures[s] & added[0]) == added[0] && (closures[s] & added[1]) != added[1]) {
+				closures[s] = close(closures[s] | added[1], fdMasks);
+				changed.add(s);
+			}
+		}
+		updateMinimumKeys(changed);
+		List<long[]> extended = new ArrayList<>(cover);
+		extended.add(added);
+		cover = minimize(extended);
+		return true;
+	}
+
+	/**
+	 * @param fd
+	 * @return False if no equal functional dependency was present.
+	 */
+	public boolean removeFunctionalDependency(final FunctionalDependency fd) {
+		int index = indexOf(fd);
+		if (index < 0) {
+			lastUpdatedClosures = 0;
+			return false;
+		}
+		long[] removed = fdMasks.get(index);
+		fds.remove(index);
+		fdMasks.remove(index);
+		if ((close(removed[0], fdMasks) & removed[1]) == removed[1]) {
+			lastUpdatedClosures = 0;
+			return true;
+		}
+		List<Integer> changed = new ArrayList<>();
+		for (int s = 0; s < closures.length; s++) {
+			if ((closures[s] & removed[0]) == removed[0]) {
+				long closure = close(s, fdMasks);
+				if (closure != closures[s]) {
+					closures[s] = closure;
+					changed.add(s);
+				}
+			}
+		}
+		updateMinimumKeys(changed);
+		cover = minimize(fdMasks);
+		return true;
+	}
+
+	/**
+	 * Brings the functional dependencies in line with the given list by
+	 * removing and adding one dependency at a time.
+	 * @param target
+	 *            Functional dependencies over this relation's attributes.
+	 * @return Number of dependencies added or removed.
+	 */
+	public int update(final List<FunctionalDependency> target) {
+		int updates = 0;
+		int updatedClosures = 0;
+		List<FunctionalDependency> current = new ArrayList<>(fds);
+		for (FunctionalDependency fd : current) {
+			if (!containsEqual(target, fd)) {
+				removeFunctionalDependency(fd);
+				updatedClosures += lastUpdatedClosures;
+				updates++;
+			}
+		}
+		for (FunctionalDependency fd : target) {
+			if (indexOf(fd) < 0) {
+				addFunctionalDependency(fd);
+				updatedClosures += lastUpdatedClosures;
+				updates++;
+			}
+		}
+		lastUpdatedClosures = updatedClosures;
+		return updates;
+	}
+
+	/**
+	 * @return Number of closures changed by the last update.
+	 */
+	public int getLastUpdatedClosures() {
+		return lastUpdatedClosures;
+	}
+
+	/**
+	 * @param subset
+	 * @return Closure of the attributes of the subset.
+	 */
+	public List<Attribute> getClosure(final List<Attribute> subset) {
+		return toAttributes(closures[(int) toMask(subset)]);
+	}
+
+	/**
+	 * @return Minimum keys by size, then in subset order, like the closure list.
+	 */
+	public List<List<Attribute>> getMinimumKeys() {
+		List<List<Attribute>> keys = new ArrayList<>();
+		for (int size = 0; size <= attributes.size(); size++) {
+			for (int s = 0; s < closures.length; s++) {
+				if (isMinimumKey[s] && Long.bitCount(s) == size) {
+					keys.add(toAttributes(s));
+				}
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * @return Number of superkeys that are not minimum keys.
+	 */
+	public int getSuperKeyCount() {
+		int count = 0;
+		for (int s = 0; s < closures.length; s++) {
+			if (closures[s] == fullSet && !isMinimumKey[s]) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return Minimal cover, with the right-hand sides of dependencies with the same left-hand side combined.
+	 */
+	public List<FunctionalDependency> getMinimalCover() {
+		List<FunctionalDependency> result = new ArrayList<>();
+		List<Long> leftSides = new ArrayList<>();
+		List<Long> rightSides = new ArrayList<>();
+		for (long[] fd : cover) {
+			int i = leftSides.indexOf(fd[0]);
+			if (i < 0) {
+				leftSides.add(fd[0]);
+				rightSides.add(fd[1]);
+			} else {
+				rightSides.set(i, rightSides.get(i) | fd[1]);
+			}
+		}
+		for (int i = 0; i < leftSides.size(); i++) {
+			result.add(new FunctionalDependency(toAttributes(leftSides.get(i)), toAttributes(rightSides.get(i)), relation));
+		}
+		Collections.sort(result);
+		return result;
+	}
+
+	/**
+	 * Checks the sets whose closure changed, and the sets one attribute larger,
+	 * for being minimum keys.
+	 */
+	private void updateMinimumKeys(final List<Integer> changed) {
+		lastUpdatedClosures = changed.size();
+		for (int s : changed) {
+			isMinimumKey[s] = checkMinimumKey(s);
+			for (int i = 0; i < attributes.size(); i++) {
+				int superset = s | (1 << i);
+				if (superset != s) {
+					isMinimumKey[superset] = checkMinimumKey(superset);
+				}
+			}
+		}
+	}
+
+	private boolean checkMinimumKey(final int s) {
+		if (closures[s] != fullSet) {
+			return false;
+		}
+		for (int i = 0; i < attributes.size(); i++) {
+			int subset = s & ~(1 << i);
+			if (subset != s && closures[subset] == fullSet) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return Minimal cover of the dependencies, with single attribute right-hand sides.
+	 */
+	private static List<long[]> minimize(final List<long[]> dependencies) {
+		List<long[]> result = new ArrayList<>();
+		for (long[] fd : dependencies) {
+			long right = fd[1] & ~fd[0];
+			while (right != 0) {
+				long bit = Long.lowestOneBit(right);
+				right &= ~bit;
+				if (!containsMasks(result, fd[0], bit)) {
+					result.add(new long[] { fd[0], bit });
+				}
+			}
+		}
+		// Remove extraneous left-hand side attributes.
+		for (long[] fd : result) {
+			long left = fd[0];
+			while (left != 0 && Long.bitCount(fd[0]) > 1) {
+				long bit = Long.lowestOneBit(left);
+				left &= ~bit;
+				if ((close(fd[0] & ~bit, result) & fd[1]) == fd[1]) {
+					fd[0] &= ~bit;
+				}
+			}
+		}
+		// Remove dependencies implied by the others.
+		for (int i = result.size() - 1; i >= 0; i--) {
+			long[] fd = result.remove(i);
+			if ((close(fd[0], result) & fd[1]) != fd[1]) {
+				result.add(i, fd);
+			}
+		}
+		return result;
+	}
+
+	private static boolean containsMasks(final List<long[]> dependencies, final long left, final long right) {
+		for (long[] fd : dependencies) {
+			if (fd[0] == left && fd[1] == right) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return Closure of the set under the dependencies.
+	 */
+	private static long close(final long set, final List<long[]> dependencies) {
+		long closure = set;
+		boolean grown = true;
+		while (grown) {
+			grown = false;
+			for (long[] fd : dependencies) {
+				if ((closure & fd[0]) == fd[0] && (closure & fd[1]) != fd[1]) {
+					closure |= fd[1];
+					grown = true;
+				}
+			}
+		}
+		return closure;
+	}
+
+	private int indexOf(final FunctionalDependency fd) {
+		for (int i = 0; i < fds.size(); i++) {
+			if (fds.get(i).getFDName().equals(fd.getFDName())) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean containsEqual(final List<FunctionalDependency> list, final FunctionalDependency fd) {
+		for (FunctionalDependency f : list) {
+			if (f.getFDName().equals(fd.getFDName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private long[] toMasks(final FunctionalDependency fd) {
+		return new long[] { toMask(fd.getLeftHandAttributes()), toMask(fd.getRightHandAttributes()) };
+	}
+
+	private long toMask(final List<Attribute> subset) {
+		long mask = 0;
+		for (Attribute a : subset) {
+			int i = attributes.indexOf(a);
+			if (i < 0) {
+				throw new IllegalArgumentException("Attribute " + a.getName() + " does not exist in schema of Relation " + relation.getName());
+			}
+			mask |= 1L << i;
+		}
+		return mask;
+	}
+
+	private List<Attribute> toAttributes(final long mask) {
+		List<Attribute> result = new ArrayList<>();
+		for (int i = 0; i < attributes.size(); i++) {
+			if ((mask & (1L << i)) != 0) {
+				result.add(attributes.get(i));
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,91 @@
+package relationalDatabaseTools.client;
+
+import java.util.List;
+
+/**
+ * Counter-based closure (Beeri and Bernstein's LINCLOSURE). Every functional
+ * dependency keeps a count of left-hand side attributes not yet in the closure;
+ * when an attribute is added, only the dependencies that mention it on their
+ * left-hand side are decremented, and a dependency fires when its count reaches
+ * zero. Each query costs O(|F|) to reset the counters plus the size of the
+ * dependencies it touches.
+ * @author Raymond Cho
+ *
+ */
+public class LinearClosureBackend implements ClosureBackend {
+
+	@Override
+	public String getName() {
+		return "linear";
+	}
+
+	@Override
+	public PreparedClosure prepare(final List<FunctionalDependency> givenFDs) {
+		return new Prepared(new ClosureIndex(givenFDs));
+	}
+
+	private static class Prepared implements PreparedClosure {
+		private final ClosureIndex index;
+		private final int[][] occurrences;
+		private final int[] leftSideSizes;
+		private final int[] counters;
+		private final int[] queue;
+
+		private Prepared(final ClosureIndex index) {
+			this.index = index;
+			this.occurrences = index.buildLeftSideOccurrences();
+			this.leftSideSizes = new int[index.getFDCount()];
+			for (int fd = 0; fd < leftSideSizes.length; fd++) {
+				leftSideSizes[fd] = index.getLeftSide(fd).length;
+			}
+			this.counters = new int[leftSideSizes.length];
+			this.queue = new int[index.getAttributeCount()];
+		}
+
+		@Override
+		public Closure calculateClosureOf(final List<Attribute> closureAttributes) {
+			if (closureAttributes == null || closureAttributes.isEmpty()) {
+				return null;
+			}
+			boolean[] closed = new boolean[index.getAttributeCount()];
+			System.arraycopy(leftSideSizes, 0, counters, 0, counters.length);
+			int head = 0;
+			int tail = 0;
+			for (Attribute a : closureAttributes) {
+				int id = index.getAttributeId(a);
+				if (id >= 0 && !closed[id]) {
+					closed[id] = true;
+					queue[tail++] = id;
+				}
+			}
+			for (int fd = 0; fd < counters.length; fd++) {
+				if (counters[fd] == 0) {
+					tail = fire(fd, closed, tail);
+				}
+			}
+			long scanned = counters.length;
+			while (head < tail) {
+				int a = queue[head++];
+				scanned += occurrences[a].length;
+				for (int fd : occurrences[a]) {
+					if (--counters[fd] == 0) {
+						tail = fire(fd, closed, tail);
+					}
+				}
+			}
+			AnalysisMetrics.countClosures(1);
+			AnalysisMetrics.countFDsScanned(scanned);
+			return index.toClosure(closureAttributes, closed);
+		}
+
+		private int fire(final int fd, final boolean[] closed, int tail) {
+			for (int b : index.getRightSide(fd)) {
+				if (!closed[b]) {
+					closed[b] = true;
+					queue[tail++] = b;
+				}
+			}
+			return tail;
+		}
+	}
+}
@@ -5,6 +5,8 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 
+import relationalDatabaseTools.client.AnalysisMetrics.Stage;
+
 /**
  * Static methods to calculate a minimum (canonical) cover of functional
  * dependencies.
@@ -13,7 +15,59 @@ import java.util.List;
  * 
  */
 public class MinimalFDCover {
+	/**
+	 * Calculates the minimal cover for the {@link AnalysisGraph} with the
+	 * closure backend of the relation's plan.
+	 */
+	protected static final AnalysisGraph.Calculator CALCULATOR = new AnalysisGraph.Calculator() {
+		@Override
+		public void calculate(final Relation relation) {
+			calculateMinimalCover(relation, AnalysisPlanner.planFor(relation).getClosureBackend());
+		}
+	};
+
+	/**
+	 * Calculates the minimal cover, and the closures it is calculated from,
+	 * unless it has been calculated already (see {@link AnalysisGraph}). Uses
+	 * the closure backend of the relation's plan (see {@link AnalysisPlanner}).
+	 * @param relation
+	 */
 	public static void determineMinimalCover(final Relation relation) {
+		AnalysisGraph.setCalculator(AnalysisGraph.Node.MINIMAL_COVER, CALCULATOR);
+		relation.getAnalysisGraph().calculate(AnalysisGraph.Node.MINIMAL_COVER);
+	}
+
+	/**
+	 * Like {@link #determineMinimalCover(Relation)}, but checks for redundant
+	 * functional dependencies with the given closure backend.
+	 * @param relation
+	 * @param backend
+	 */
+	public static void determineMinimalCover(final Relation relation, final ClosureBackend backend) {
+		AnalysisGraph graph = relation.getAnalysisGraph();
+		if (graph.isCalculated(AnalysisGraph.Node.MINIMAL_COVER)) {
+			return;
+		}
+		graph.calculate(AnalysisGraph.Node.CLOSURES);
+		calculateMinimalCover(relation, backend);
+		graph.setCalculated(AnalysisGraph.Node.MINIMAL_COVER);
+	}
+
+	/**
+	 * Calculates the minimal cover of a relation whose closures have been calculated.
+	 * @param relation
+	 * @param backend
+	 */
+	protected static void calculateMinimalCover(final Relation relation, final ClosureBackend backend) {
+		AnalysisMetrics metrics = AnalysisMetrics.begin(Stage.MINIMAL_COVER, relation);
+		try {
+			minimize(relation, backend);
+		} finally {
+			metrics.end(Stage.MINIMAL_COVER);
+		}
+	}
+
+	private static void minimize(final Relation relation, final ClosureBackend backend) {
 		List<FunctionalDependency> fMin = new ArrayList<>();
 		List<String> minimalCoverOutput = new ArrayList<>();
 
@@ -21,9 +75,6 @@ public class MinimalFDCover {
 			// Input FDs is empty, so minimal cover is also empty.
 			return;
 		}
-		if (relation.getClosures().isEmpty()) {
-			CalculateClosure.improvedCalculateClosures(relation);
-		}
 
 		// Split FDs that have more than one attribute on right-side.
 		for (FunctionalDependency f : relation.getInputFDs()) {
@@ -71,7 +122,7 @@ public class MinimalFDCover {
 						}
 					}
 					// Find closure with new left-hand side
-					Closure closure = RDTUtils.findClosureWithLeftHandAttributes(newLeftSide, relation.getClosures());
+					Closure closure = relation.findClosure(newLeftSide);
 
 					// Now check if the right-hand attribute is still in the
 					// closure.
@@ -98,8 +149,7 @@ public class MinimalFDCover {
 								f.getRightHandAttributes(), relation);
 						// Verify that new FD is legitimate (i.e., the closure
 						// of left side includes the attribute on right side
-						Closure verifyClosure = RDTUtils.findClosureWithLeftHandAttributes(reducedFD.getLeftHandAttributes(),
-								relation.getClosures());
+						Closure verifyClosure = relation.findClosure(reducedFD.getLeftHandAttributes());
 						if (RDTUtils.attributeListContainsAttribute(verifyClosure.getClosure(), reducedFD
 								.getRightHandAttributes().get(0))) {
 							if (!RDTUtils.isFunctionalDependencyAlreadyInFDList(reducedFD, minimizedLHS)) {
@@ -143,7 +193,7 @@ public class MinimalFDCover {
 					checkRemoved.add(fMin.get(j));
 				}
 			}
-			Closure checkClosure = CalculateClosure.calculateClosureOf(fMin.get(i).getLeftHandAttributes(), checkRemoved);
+			Closure checkClosure = CalculateClosure.calculateClosureOf(fMin.get(i).getLeftHandAttributes(), checkRemoved, backend);
 			if (!RDTUtils.attributeListContainsAttribute(checkClosure.getClosure(), fMin.get(i).getRightHandAttributes().get(0))) {
 				// The FD is necessary since the new closure does not contain
 				// the right-hand side attribute of the removed FD.
@@ -0,0 +1,135 @@
+package relationalDatabaseTools.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gwt.event.dom.client.ClickEvent;
+import com.google.gwt.event.dom.client.ClickHandler;
+import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
+import com.google.gwt.user.client.ui.Button;
+import com.google.gwt.user.client.ui.Composite;
+import com.google.gwt.user.client.ui.HTML;
+import com.google.gwt.user.client.ui.HorizontalPanel;
+import com.google.gwt.user.client.ui.Label;
+import com.google.gwt.user.client.ui.VerticalPanel;
+
+/**
+ * Shows a list of text rows one page at a time, so that only the rows of the
+ * current page are in the DOM however long the list is. The page is rendered
+ * into a single HTML widget. Rows can be added while the list is shown and
+ * appear on the next {@link #refresh()}.
+ * @author Raymond Cho
+ *
+ */
+public class PagedList extends Composite {
+	private final int pageSize;
+	private final List<String> rows = new ArrayList<>();
+	private final HTML page = new HTML();
+	private final HorizontalPanel navigation = new HorizontalPanel();
+	private final Button previousButton = new Button("Previous");
+	private final Button nextButton = new Button("Next");
+	private final Label positionLabel = new Label();
+	private int firstRow;
+	private boolean pageChanged;
+
+	/**
+	 * @param pageSize
+	 *            Number of rows on a page, at least 1.
+	 */
+	public PagedList(final int pageSize) {
+		if (pageSize < 1) {
+			throw new IllegalArgumentException("Page size must be at least 1.");
+		}
+		this.pageSize = pageSize;
+		previousButton.addClickHandler(new ClickHandler() {
+			@Override
+			public void onClick(ClickEvent event) {
+				showPage(firstRow - PagedList.this.pageSize);
+			}
+		});
+		nextButton.addClickHandler(new ClickHandler() {
+			@Override
+			public void onClick(ClickEvent event) {
+				showPage(firstRow + PagedList.this.pageSize);
+			}
+		});
+		navigation.add(previousButton);
+		navigation.add(positionLabel);
+		navigation.add(nextButton);
+		navigation.setVisible(false);
+
+		VerticalPanel panel = new VerticalPanel();
+		panel.add(page);
+		panel.add(navigation);
+		initWidget(panel);
+	}
+
+	public void addRow(final String text) {
+		rows.add(text);
+		if (rows.size() <= firstRow + pageSize) {
+			pageChanged = true;
+		}
+	}
+
+	/**
+	 * Adds the text to the end of the last row, or as a new row if the list is empty.
+	 * @param text
+	 */
+	public void appendToLastRow(final String text) {
+		if (rows.isEmpty()) {
+			addRow(text);
+			return;
+		}
+		int last = rows.size() - 1;
+		rows.set(last, rows.get(last) + text);
+		if (last < firstRow + pageSize) {
+			pageChanged = true;
+		}
+	}
+
+	public int getRowCount() {
+		return rows.size();
+	}
+
+	/**
+	 * Shows the rows added since the last refresh: renders the current page
+	 * again if they are on it, and updates the navigation.
+	 */
+	public void refresh() {
+		if (pageChanged) {
+			renderPage();
+		}
+		updateNavigation();
+	}
+
+	private void showPage(final int first) {
+		if (first < 0 || first >= rows.size()) {
+			return;
+		}
+		firstRow = first;
+		renderPage();
+		updateNavigation();
+	}
+
+	private void renderPage() {
+		SafeHtmlBuilder html = new SafeHtmlBuilder();
+		int end = Math.min(rows.size(), firstRow + pageSize);
+		for (int i = firstRow; i < end; i++) {
+			html.appendHtmlConstant("<div>").appendEscaped(rows.get(i)).appendHtmlConstant("</div>");
+		}
+		page.setHTML(html.toSafeHtml());
+		pageChanged = false;
+	}
+
+	private void updateNavigation() {
+		if (rows.size() <= pageSize) {
+			navigation.setVisible(false);
+			return;
+		}
+		navigation.setVisible(true);
+		int end = Math.min(rows.size(), firstRow + pageSize);
+		positionLabel.setText("Rows " + (firstRow + 1) + " to " + end + " of " + rows.size());
+		previousButton.setEnabled(firstRow > 0);
+		nextButton.setEnabled(end < rows.size());
+	}
+}
@@ -0,0 +1,19 @@
+package relationalDatabaseTools.client;
+
+import java.util.List;
+
+/**
+ * Calculates closures against a fixed list of functional dependencies that was
+ * indexed by a {@link ClosureBackend}. Implementations may keep scratch state
+ * between queries and are therefore not safe to share between threads.
+ * @author Raymond Cho
+ *
+ */
+public interface PreparedClosure {
+
+	/**
+	 * @param closureAttributes
+	 * @return Closure of the given attributes, or null if the given list is null or empty.
+	 */
+	Closure calculateClosureOf(List<Attribute> closureAttributes);
+}
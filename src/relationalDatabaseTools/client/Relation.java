@@ -2,7 +2,9 @@ package relationalDatabaseTools.client;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Represents a relation.
@@ -19,8 +21,10 @@ public class Relation {
 	private final List<Attribute> nonPrimeAttributes;
 	private boolean passedIntegrityChecks;
 	private String integrityCheckErrorMsg;
+	private int integrityCheckErrorPosition = -1;
 	private final List<FunctionalDependency> fds;
 	private final List<FunctionalDependency> derivedFDs;
+	private final List<FunctionalDependency> canonicalBasis;
 	private final List<FunctionalDependency> minimalCover;
 	private List<String> minimalCoverOutput;
 	private final List<MultivaluedDependency> mvds;
@@ -28,8 +32,12 @@ public class Relation {
 	private final List<Closure> minimumKeys;
 	private final List<Closure> superKeys;
 	private DetermineNormalForms normalFormResults;
+	private ClosureLattice closureLattice;
+	private AnalysisPlan plan;
+	private AnalysisGraph analysisGraph;
 	
 	public Relation(final String input) {
+		AnalysisMetrics.countRelationCreated();
 		this.name = parseName(input);
 		passedIntegrityChecks = true;
 		integrityCheckErrorMsg = "";
@@ -38,13 +46,13 @@ public class Relation {
 		this.nonPrimeAttributes = new ArrayList<>();
 		this.fds = new ArrayList<>();
 		this.derivedFDs = new ArrayList<>();
+		this.canonicalBasis = new ArrayList<>();
 		this.minimalCover = new ArrayList<>();
 		this.minimalCoverOutput = new ArrayList<>();
 		this.mvds = new ArrayList<>();
 		this.closures = new ArrayList<>();
 		this.minimumKeys = new ArrayList<>();
 		this.superKeys = new ArrayList<>();
-		this.normalFormResults = new DetermineNormalForms(this);
 	}
 	
 	public Relation(final String name, final List<Attribute> attributes, final List<FunctionalDependency> fds) {
@@ -52,6 +60,7 @@ public class Relation {
 	}
 	
 	public Relation(final String name, final List<Attribute> attributes, final List<FunctionalDependency> fds, final List<MultivaluedDependency> mvds) {
+		AnalysisMetrics.countRelationCreated();
 		this.name = name;
 		passedIntegrityChecks = true;
 		integrityCheckErrorMsg = "";
@@ -61,6 +70,7 @@ public class Relation {
 		this.nonPrimeAttributes = new ArrayList<>();
 		this.fds = fds;
 		this.derivedFDs = new ArrayList<>();
+		this.canonicalBasis = new ArrayList<>();
 		this.minimalCover = new ArrayList<>();
 		this.minimalCoverOutput = new ArrayList<>();
 		if (mvds == null) {
@@ -71,7 +81,31 @@ public class Relation {
 		this.closures = new ArrayList<>();
 		this.minimumKeys = new ArrayList<>();
 		this.superKeys = new ArrayList<>();
-		this.normalFormResults = new DetermineNormalForms(this);
+	}
+	
+	/**
+	 * Creates a relation with the input of the snapshot and no analysis state.
+	 * The lists are new, but the attribute and dependency objects are the
+	 * snapshot's.
+	 * @param snapshot
+	 */
+	protected Relation(final RelationSnapshot snapshot) {
+		AnalysisMetrics.countRelationCreated();
+		this.name = snapshot.getName();
+		passedIntegrityChecks = true;
+		integrityCheckErrorMsg = "";
+		this.attributes = new ArrayList<>(snapshot.getAttributes());
+		this.primeAttributes = new ArrayList<>();
+		this.nonPrimeAttributes = new ArrayList<>();
+		this.fds = new ArrayList<>(snapshot.getInputFDs());
+		this.derivedFDs = new ArrayList<>();
+		this.canonicalBasis = new ArrayList<>();
+		this.minimalCover = new ArrayList<>();
+		this.minimalCoverOutput = new ArrayList<>();
+		this.mvds = new ArrayList<>(snapshot.getMVDs());
+		this.closures = new ArrayList<>();
+		this.minimumKeys = new ArrayList<>();
+		this.superKeys = new ArrayList<>();
 	}
 	
 	public String getName() {
@@ -101,54 +135,47 @@ public class Relation {
 		}
 		int start = input.indexOf('(') + 1;
 		int end = input.indexOf(')');
-		String attributePortion = input.substring(start, end);
-		String[] attributes = attributePortion.split(",");
-		for (String attribute : attributes) {
-			if (!isNullOrEmpty(attribute)) {
-				Attribute a = new Attribute(attribute.trim());
-				for (Attribute b : result) {
-					if (b.getName().equals(a.getName())) {
-						integrityCheckErrorMsg = "Duplicate attribute encountered: " + attribute.trim();
-						passedIntegrityChecks = false;
-						return result;
-					}
+		Set<String> names = new HashSet<>();
+		int attributeStart = start;
+		for (int i = start; i <= end; i++) {
+			if (i < end && input.charAt(i) != ',') {
+				continue;
+			}
+			if (i > attributeStart) {
+				String attribute = input.substring(attributeStart, i).trim();
+				if (!names.add(attribute)) {
+					setIntegrityCheckError("Duplicate attribute encountered: " + attribute, attributeStart);
+					return result;
 				}
-				result.add(a);
+				result.add(new Attribute(attribute));
 			}
+			attributeStart = i + 1;
 		}
 		return result;
 	}
 	
 	public void addFunctionalDependencies(final String input) {
-		String trimmedInput = input.replaceAll("\\s","");
-		if (trimmedInput.isEmpty()) {
+		if (DependencyTokenizer.isBlank(input)) {
 			return;
 		}
-		String[] FDs;
-		if (trimmedInput.contains(";")) {
-			FDs = trimmedInput.split(";");
-		} else {
-			FDs = new String[1];
-			FDs[0] = trimmedInput;
+		DependencyTokenizer tokenizer = new DependencyTokenizer(input, attributes);
+		Set<DependencyTokenizer.Key> keys = new HashSet<>();
+		for (FunctionalDependency f : fds) {
+			keys.add(tokenizer.keyOf(f.getLeftHandAttributes(), f.getRightHandAttributes()));
 		}
-		for (String prefunctional : FDs) {
-			FunctionalDependency fd = new FunctionalDependency(prefunctional, this);
+		while (tokenizer.next()) {
+			reportUnknownAttribute(tokenizer);
+			FunctionalDependency fd = new FunctionalDependency(tokenizer.getLeftHandAttributes(), tokenizer.getRightHandAttributes(), this);
 			if (fd.getIsProperDependency()) {
-				boolean duplicateCheck = false;
-				for (FunctionalDependency f : fds) {
-					if (f.getFDName().equals(fd.getFDName())) {
-						integrityCheckErrorMsg = "Duplicate functional dependency encountered: " + fd.getFDName();
-						passedIntegrityChecks = false;
-						return;
-					}
-				}
-				if (!duplicateCheck) {
-					fds.add(fd);
+				// A dependency with repeated attributes fails below instead.
+				if (!tokenizer.hasDuplicateAttributes() && !keys.add(tokenizer.getKey())) {
+					setIntegrityCheckError("Duplicate functional dependency encountered: " + fd.getFDName(), tokenizer.getStart());
+					return;
 				}
+				fds.add(fd);
 			}
-			if (!RDTUtils.attributeListContainsUniqueAttributes(fd.getLeftHandAttributes()) || !RDTUtils.attributeListContainsUniqueAttributes(fd.getRightHandAttributes())) {
-				integrityCheckErrorMsg = "An input functional dependency contains duplicate attributes on the same side: " + fd.getFDName();
-				passedIntegrityChecks = false;
+			if (tokenizer.hasDuplicateAttributes()) {
+				setIntegrityCheckError("An input functional dependency contains duplicate attributes on the same side: " + fd.getFDName(), tokenizer.getStart());
 				return;
 			}
 		}
@@ -156,41 +183,46 @@ public class Relation {
 	}
 	
 	public void addMultivaluedDependencies(final String input) {
-		String trimmedInput = input.replaceAll("\\s","");
-		if (trimmedInput.isEmpty()) {
+		if (DependencyTokenizer.isBlank(input)) {
 			return;
 		}
-		String[] MVDs;
-		if (trimmedInput.contains(";")) {
-			MVDs = trimmedInput.split(";");
-		} else {
-			MVDs = new String[1];
-			MVDs[0] = trimmedInput;
+		DependencyTokenizer tokenizer = new DependencyTokenizer(input, attributes);
+		Set<DependencyTokenizer.Key> keys = new HashSet<>();
+		for (MultivaluedDependency m : mvds) {
+			keys.add(tokenizer.keyOf(m.getLeftHandAttributes(), m.getRightHandAttributes()));
 		}
-		for (String premultivalued : MVDs) {
-			MultivaluedDependency mvd = new MultivaluedDependency(premultivalued, this);
+		while (tokenizer.next()) {
+			reportUnknownAttribute(tokenizer);
+			MultivaluedDependency mvd = new MultivaluedDependency(tokenizer.getLeftHandAttributes(), tokenizer.getRightHandAttributes(), this);
 			if (mvd.getIsProperDependency()) {
-				boolean duplicateCheck = false;
-				for (MultivaluedDependency m : mvds) {
-					if (m.getName().equals(mvd.getName())) {
-						integrityCheckErrorMsg = "Duplicate multivalued dependency encountered: " + m.getName();
-						passedIntegrityChecks = false;
-						return;
-					}
-				}
-				if (!duplicateCheck) {
-					mvds.add(mvd);
+				// A dependency with repeated attributes fails below instead.
+				if (!tokenizer.hasDuplicateAttributes() && !keys.add(tokenizer.getKey())) {
+					setIntegrityCheckError("Duplicate multivalued dependency encountered: " + mvd.getName(), tokenizer.getStart());
+					return;
 				}
+				mvds.add(mvd);
 			}
-			if (!RDTUtils.attributeListContainsUniqueAttributes(mvd.getLeftHandAttributes()) || !RDTUtils.attributeListContainsUniqueAttributes(mvd.getRightHandAttributes())) {
-				integrityCheckErrorMsg = "An input multivalued dependency contains duplicate attributes on the same side: " + mvd.getName();
-				passedIntegrityChecks = false;
+			if (tokenizer.hasDuplicateAttributes()) {
+				setIntegrityCheckError("An input multivalued dependency contains duplicate attributes on the same side: " + mvd.getName(), tokenizer.getStart());
 				return;
 			}
 		}
 		Collections.sort(mvds);
 	}
 	
+	/**
+	 * Fails the integrity checks if the tokenizer's current dependency has an
+	 * attribute that does not exist. Reading goes on, so a later error replaces
+	 * this one.
+	 * @param tokenizer
+	 */
+	protected void reportUnknownAttribute(final DependencyTokenizer tokenizer) {
+		if (tokenizer.getUnknownAttribute() != null) {
+			setIntegrityCheckError("Attribute " + tokenizer.getUnknownAttribute() + " does not exist in schema of Relation " + name,
+					tokenizer.getUnknownAttributePosition());
+		}
+	}
+	
 	protected void sortFDs() {
 		Collections.sort(derivedFDs);
 	}
@@ -233,6 +265,10 @@ public class Relation {
 		return;
 	}
 	
+	protected void addCanonicalBasisFD(final FunctionalDependency f) {
+		canonicalBasis.add(f);
+	}
+	
 	protected void addMinimalCoverFD(final FunctionalDependency f) {
 		minimalCover.add(f);
 	}
@@ -253,6 +289,13 @@ public class Relation {
 		return derivedFDs;
 	}
 	
+	/**
+	 * @return Canonical (Duquenne-Guigues) basis of the input functional dependencies, see {@link ClosedSets}.
+	 */
+	public List<FunctionalDependency> getCanonicalBasis() {
+		return canonicalBasis;
+	}
+	
 	public List<MultivaluedDependency> getMVDs() {
 		return mvds;
 	}
@@ -294,10 +337,76 @@ public class Relation {
 		this.integrityCheckErrorMsg = msg;
 	}
 	
+	/**
+	 * @return Position of the last integrity check error in the input it was
+	 *         found in (the schema, or the list of dependencies being added),
+	 *         or -1 if it has none.
+	 */
+	public int getIntegrityCheckErrorPosition() {
+		return integrityCheckErrorPosition;
+	}
+	
+	private void setIntegrityCheckError(final String msg, final int position) {
+		integrityCheckErrorMsg = msg;
+		integrityCheckErrorPosition = position;
+		passedIntegrityChecks = false;
+	}
+	
+	/**
+	 * Materializes the closure of every non-empty subset of attributes, sorted by
+	 * subset size. Prefer {@link #iterateClosures()}, which walks the same
+	 * closures in the same order without holding them all in memory.
+	 * @return List of all closures.
+	 */
 	protected List<Closure> getClosures() {
+		if (closures.isEmpty() && closureLattice != null) {
+			for (Closure c : closureLattice) {
+				closures.add(c);
+			}
+		}
 		return closures;
 	}
 	
+	/**
+	 * @return The closure of every non-empty subset of attributes, sorted by
+	 *         subset size, produced one at a time when closures were calculated
+	 *         through a closure lattice.
+	 */
+	protected Iterable<Closure> iterateClosures() {
+		if (closures.isEmpty() && closureLattice != null) {
+			return closureLattice;
+		}
+		return closures;
+	}
+	
+	/**
+	 * @param leftHand
+	 * @return Closure of the given attributes, or null if the list is empty or
+	 *         closures have not been calculated.
+	 */
+	protected Closure findClosure(final List<Attribute> leftHand) {
+		if (closureLattice != null) {
+			return closureLattice.toClosure(leftHand);
+		}
+		return RDTUtils.findClosureWithLeftHandAttributes(leftHand, closures);
+	}
+	
+	protected boolean isMinimumKeyClosure(final Closure closure) {
+		if (closureLattice != null) {
+			long subset = closureLattice.toSubset(closure.getClosureOf());
+			return subset > 0 && closureLattice.isMinimumKey(subset);
+		}
+		return minimumKeys.contains(closure);
+	}
+	
+	protected boolean isSuperKeyClosure(final Closure closure) {
+		if (closureLattice != null) {
+			long subset = closureLattice.toSubset(closure.getClosureOf());
+			return subset > 0 && closureLattice.isSuperKey(subset) && !closureLattice.isMinimumKey(subset);
+		}
+		return superKeys.contains(closure);
+	}
+	
 	protected void addClosure(final Closure closure) {
 		closures.add(closure);
 	}
@@ -306,6 +415,25 @@ public class Relation {
 		Collections.sort(closures);
 	}
 	
+	/**
+	 * @return Algorithms chosen for this relation, or null if it has not been planned.
+	 */
+	protected AnalysisPlan getPlan() {
+		return plan;
+	}
+	
+	protected void setPlan(final AnalysisPlan plan) {
+		this.plan = plan;
+	}
+	
+	protected ClosureLattice getClosureLattice() {
+		return closureLattice;
+	}
+	
+	protected void setClosureLattice(final ClosureLattice closureLattice) {
+		this.closureLattice = closureLattice;
+	}
+	
 	protected void addMinimumKeyClosure(final Closure closure) {
 		minimumKeys.add(closure);
 	}
@@ -339,11 +467,33 @@ public class Relation {
 		return nonPrimeAttributes;
 	}
 	
+	/**
+	 * @return Graph of this relation's analysis results, which is created on first use.
+	 */
+	public AnalysisGraph getAnalysisGraph() {
+		if (analysisGraph == null) {
+			analysisGraph = new AnalysisGraph(this);
+		}
+		return analysisGraph;
+	}
+	
+	/**
+	 * Determines the normal forms, and the keys and minimal cover they are
+	 * determined from, unless they have been determined already.
+	 */
 	protected void determineNormalForms() {
-		normalFormResults.calculateNormalForms();
+		DetermineNormalForms.setCalculators();
+		getAnalysisGraph().calculate(AnalysisGraph.Node.NORMAL_FORMS);
 	}
 	
+	/**
+	 * @return Normal form results, which are created on first use so that only
+	 *         code that checks normal forms depends on them.
+	 */
 	protected DetermineNormalForms getNormalFormsResults() {
+		if (normalFormResults == null) {
+			normalFormResults = new DetermineNormalForms(this);
+		}
 		return normalFormResults;
 	}
 	
@@ -437,16 +587,49 @@ public class Relation {
 	}
 	
 	public static boolean functionalContainsAtLeastOneDependency(final String input) {
-		if (functionalContainsArrows(input)) {
-			String[] splitted = input.replaceAll("\\s","").split("->");
-			try {
-				char firstLeft = splitted[0].charAt(0);
-				char firstRight = splitted[1].charAt(0);
-				if (firstLeft >= 'A' && firstLeft <= 'Z' && firstRight >= 'A' && firstRight <= 'Z') {
-					return true;
+		if (!functionalContainsArrows(input)) {
+			return false;
+		}
+		// The first dependency must start with a letter, and its right-hand side
+		// must start with a letter right after the first arrow.
+		boolean first = true;
+		boolean afterArrow = false;
+		for (int i = 0; i < input.length(); i++) {
+			char c = input.charAt(i);
+			if (DependencyTokenizer.isWhitespace(c)) {
+				continue;
+			}
+			boolean letter = c >= 'A' && c <= 'Z';
+			if (afterArrow) {
+				return letter;
+			}
+			if (first) {
+				if (!letter) {
+					return false;
 				}
-				return false;
-			} catch (Exception e) {
+				first = false;
+			} else if (startsArrow(input, i)) {
+				afterArrow = true;
+				i = input.indexOf('>', i);
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * @return True if the character at the index is a hyphen followed by
+	 *         greater-than, with only whitespace in between.
+	 */
+	private static boolean startsArrow(final String input, final int index) {
+		if (input.charAt(index) != '-') {
+			return false;
+		}
+		for (int i = index + 1; i < input.length(); i++) {
+			char c = input.charAt(i);
+			if (c == '>') {
+				return true;
+			}
+			if (!DependencyTokenizer.isWhitespace(c)) {
 				return false;
 			}
 		}
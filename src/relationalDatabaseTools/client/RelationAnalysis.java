@@ -0,0 +1,379 @@
+package relationalDatabaseTools.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the complete analysis of one relation outside the user interface: input
+ * checks, attribute closures and keys, minimal cover, normal forms and the 3NF
+ * and BCNF decompositions, in the same order and with the same rules as
+ * {@link RelationalDatabaseTools}. Results are exposed as plain strings so that
+ * drivers in other packages (such as the batch command line tool) can report
+ * them without reaching into the analysis classes. Each analysis records its
+ * own {@link AnalysisMetrics}. With an {@link AnalysisBudget}, the analysis
+ * stops once the budget runs out and keeps the results of the stages that
+ * finished (see {@link #isComplete()}). With an {@link AnalysisExecutor}, the
+ * independent components of the relation are analyzed through it.
+ * @author Raymond Cho
+ *
+ */
+public class RelationAnalysis {
+	private final String schemaInput;
+	private final String fdInput;
+	private final String mvdInput;
+	private final List<String> warnings;
+	private String errorMsg;
+	private Relation relation;
+	private Calculate3NFDecomposition threeNF;
+	private CalculateBCNFDecomposition bcnf;
+	private final AnalysisMetrics metrics;
+	private AnalysisBudget budget;
+	private AnalysisExecutor executor;
+	private AnalysisBudgetExceededException budgetExceeded;
+
+	public RelationAnalysis(final String schema, final String fds, final String mvds) {
+		this.schemaInput = schema == null ? "" : schema.toUpperCase();
+		this.fdInput = fds == null ? "" : fds.toUpperCase();
+		this.mvdInput = mvds == null ? "" : mvds.toUpperCase();
+		this.warnings = new ArrayList<>();
+		this.errorMsg = null;
+		this.metrics = new AnalysisMetrics();
+	}
+
+	/**
+	 * Parses the input and, if it passes all checks, runs every analysis stage.
+	 * @return True if the analysis ran, even if it ran out of budget; false if
+	 *         the input was rejected (see {@link #getErrorMsg()}).
+	 */
+	public boolean run() {
+		AnalysisMetrics previous = AnalysisMetrics.enter(metrics);
+		metrics.setBudget(budget);
+		metrics.setExecutor(executor);
+		try {
+			if (!parse()) {
+				return false;
+			}
+			CalculateClosure.improvedCalculateClosures(relation);
+			MinimalFDCover.determineMinimalCover(relation);
+			relation.determineNormalForms();
+			DetermineNormalForms normalForms = relation.getNormalFormsResults();
+			threeNF = new Calculate3NFDecomposition(relation);
+			if (!normalForms.isIn3NF()) {
+				threeNF.decompose();
+			}
+			if (!normalForms.isInBCNF()) {
+				if (normalForms.isIn3NF()) {
+					threeNF.decompose();
+				}
+				bcnf = new CalculateBCNFDecomposition(threeNF);
+				bcnf.decompose();
+			}
+			return true;
+		} catch (AnalysisBudgetExceededException e) {
+			budgetExceeded = e;
+			if (bcnf != null && bcnf.getPureBCNFDecomposedRs() == null) {
+				bcnf = null;
+			}
+			return true;
+		} finally {
+			AnalysisMetrics.enter(previous);
+		}
+	}
+
+	private boolean parse() {
+		if (Relation.isNullOrEmpty(schemaInput)) {
+			return fail("Input relation schema is empty.");
+		}
+		if (!Relation.schemaContainsSafeChars(schemaInput)) {
+			return fail("Input relation schema must only contain letters, commas, and parenthesis.");
+		}
+		if (!Relation.schemaContainsParenthesisPair(schemaInput)) {
+			return fail("Input relation schema must contain only one pair of properly formatted parenthesis: R( )");
+		}
+		relation = new Relation(schemaInput);
+		if (relation.getAttributes().isEmpty()) {
+			return fail("Input relation schema has no attributes.");
+		}
+		if (!Relation.functionalContainsSafeChars(fdInput)) {
+			return fail("Input functional dependencies must only contain letters, commas, semi-colons, hyphens, and greater-than.");
+		}
+		if (!Relation.functionalContainsSafeChars(mvdInput)) {
+			return fail("Input multivalued dependencies must only contain letters, commas, semi-colons, hyphens, and greater-than.");
+		}
+		if (!relation.hasPassedIntegrityChecks()) {
+			return fail(relation.getIntegrityCheckErrorMsg());
+		}
+		if (!Relation.functionalContainsAtLeastOneDependency(fdInput)) {
+			warnings.add("Warning: encountered a functional dependency that is "
+					+ "incomplete or improperly formatted or input functional dependencies is empty.");
+		}
+		if (!mvdInput.isEmpty() && !Relation.functionalContainsAtLeastOneDependency(mvdInput)) {
+			warnings.add("Warning: encountered a multivalued dependency that is incomplete or improperly formatted.");
+		}
+		relation.addFunctionalDependencies(fdInput);
+		relation.addMultivaluedDependencies(mvdInput);
+		if (!relation.hasPassedIntegrityChecks()) {
+			return fail(relation.getIntegrityCheckErrorMsg());
+		}
+		return true;
+	}
+
+	private boolean fail(final String msg) {
+		errorMsg = msg;
+		relation = null;
+		return false;
+	}
+
+	/**
+	 * @return Counts of every stage of this analysis.
+	 */
+	public AnalysisMetrics getMetrics() {
+		return metrics;
+	}
+
+	public AnalysisBudget getBudget() {
+		return budget;
+	}
+
+	/**
+	 * @param budget
+	 *            Budget of the next {@link #run()} (may be null for no limits).
+	 */
+	public void setBudget(final AnalysisBudget budget) {
+		this.budget = budget;
+	}
+
+	public AnalysisExecutor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * @param executor
+	 *            Executor of the next {@link #run()} (may be null to analyze the
+	 *            components one after another).
+	 */
+	public void setExecutor(final AnalysisExecutor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * @return False if the analysis ran out of budget; results of the stage that
+	 *         was running and of later stages are then missing or partial.
+	 */
+	public boolean isComplete() {
+		return budgetExceeded == null;
+	}
+
+	/**
+	 * @return Name of the stage that was running when the budget ran out, or null if complete.
+	 */
+	public String getIncompleteStage() {
+		return budgetExceeded == null ? null : budgetExceeded.getStage().getName();
+	}
+
+	/**
+	 * @return Why the analysis stopped early, or null if complete.
+	 */
+	public String getIncompleteReason() {
+		return budgetExceeded == null ? null : budgetExceeded.getMessage();
+	}
+
+	/**
+	 * @return Algorithms chosen for the relation, or null if it was not analyzed.
+	 */
+	public AnalysisPlan getPlan() {
+		return relation == null ? null : relation.getPlan();
+	}
+
+	public String getErrorMsg() {
+		return errorMsg;
+	}
+
+	public List<String> getWarnings() {
+		return warnings;
+	}
+
+	public Relation getRelation() {
+		return relation;
+	}
+
+	public String getRelationName() {
+		return relation.getName();
+	}
+
+	public List<String> getAttributeNames() {
+		List<String> result = new ArrayList<>();
+		for (Attribute a : relation.getAttributes()) {
+			result.add(a.getName());
+		}
+		return result;
+	}
+
+	public List<String> getInputFDNames() {
+		return fdNames(relation.getInputFDs());
+	}
+
+	public List<String> getMVDNames() {
+		List<String> result = new ArrayList<>();
+		for (MultivaluedDependency m : relation.getMVDs()) {
+			result.add(m.getName());
+		}
+		return result;
+	}
+
+	/**
+	 * @return Each minimum candidate key as its comma-separated attributes.
+	 */
+	public List<String> getMinimumKeys() {
+		List<String> result = new ArrayList<>();
+		for (Closure c : relation.getMinimumKeyClosures()) {
+			result.add(c.printLeftSideAttributes());
+		}
+		return result;
+	}
+
+	/**
+	 * @return Number of superkeys, excluding minimum candidate keys.
+	 */
+	public int getSuperKeyCount() {
+		return relation.getSuperKeyClosures().size();
+	}
+
+	public List<String> getPrimeAttributeNames() {
+		return attributeNames(relation.getPrimeAttributes());
+	}
+
+	public List<String> getNonPrimeAttributeNames() {
+		return attributeNames(relation.getNonPrimeAttributes());
+	}
+
+	public List<String> getMinimalCover() {
+		return fdNames(relation.getMinimalCover());
+	}
+
+	/**
+	 * @return False if the analysis stopped before the normal forms were determined.
+	 */
+	public boolean hasNormalForms() {
+		return relation.getNormalFormsResults().hasDeterminedNormalForms;
+	}
+
+	public boolean isIn2NF() {
+		return relation.getNormalFormsResults().isIn2NF();
+	}
+
+	public boolean isIn3NF() {
+		return relation.getNormalFormsResults().isIn3NF();
+	}
+
+	public boolean isInBCNF() {
+		return relation.getNormalFormsResults().isInBCNF();
+	}
+
+	public boolean isIn4NF() {
+		return relation.getNormalFormsResults().isIn4NF();
+	}
+
+	/**
+	 * @return Messages of the 1NF, 2NF, 3NF, BCNF and 4NF checks, in that order.
+	 */
+	public List<String> getNormalFormMsgs() {
+		DetermineNormalForms normalForms = relation.getNormalFormsResults();
+		List<String> result = new ArrayList<>();
+		if (!normalForms.hasDeterminedNormalForms) {
+			return result;
+		}
+		result.add(normalForms.getFirstNormalFormMsg());
+		result.add(normalForms.getSecondNormalFormMsg());
+		result.add(normalForms.getThirdNormalFormMsg());
+		result.add(normalForms.getBCNFMsg());
+		result.add(normalForms.getFourthNormalFormMsg());
+		return result;
+	}
+
+	/**
+	 * @return 3NF decomposition, one printed relation per entry (empty if the relation is in 3NF).
+	 */
+	public List<String> getThreeNFRelations() {
+		if (threeNF == null || isIn3NF() || threeNF.getOutputRelations() == null) {
+			return new ArrayList<>();
+		}
+		return printRelations(threeNF.getOutputRelations());
+	}
+
+	/**
+	 * @return True if the BCNF decomposition from the input relation was
+	 *         skipped, because it ran out of closures or the plan left it out;
+	 *         {@link #getBCNFRelations()} is then empty although the relation
+	 *         is not in BCNF.
+	 */
+	public boolean isBCNFDecompositionSkipped() {
+		return bcnf != null && bcnf.isPureBCNFSkipped();
+	}
+
+	/**
+	 * @return BCNF decomposition from the input relation, one printed relation per entry
+	 *         (empty if the relation is in BCNF or the decomposition was skipped).
+	 */
+	public List<String> getBCNFRelations() {
+		if (bcnf == null || bcnf.getPureBCNFDecomposedRs() == null) {
+			return new ArrayList<>();
+		}
+		return printRelations(bcnf.getPureBCNFDecomposedRs());
+	}
+
+	/**
+	 * @return Input functional dependencies lost by the BCNF decomposition from the input relation.
+	 */
+	public List<String> getBCNFLostFDs() {
+		if (bcnf == null || bcnf.getPureBCNFLostFDs() == null) {
+			return new ArrayList<>();
+		}
+		return fdNames(bcnf.getPureBCNFLostFDs());
+	}
+
+	/**
+	 * @return BCNF decomposition from the 3NF relations, one printed relation per entry
+	 *         (empty if the relation is in BCNF).
+	 */
+	public List<String> getBCNFFrom3NFRelations() {
+		if (bcnf == null || bcnf.getThreeNFDecomposedRs() == null) {
+			return new ArrayList<>();
+		}
+		return printRelations(bcnf.getThreeNFDecomposedRs());
+	}
+
+	/**
+	 * @return Minimal cover functional dependencies lost by the BCNF decomposition from the 3NF relations.
+	 */
+	public List<String> getBCNFFrom3NFLostFDs() {
+		if (bcnf == null || bcnf.getThreeNFLostFDs() == null) {
+			return new ArrayList<>();
+		}
+		return fdNames(bcnf.getThreeNFLostFDs());
+	}
+
+	private static List<String> attributeNames(final List<Attribute> attributes) {
+		List<String> result = new ArrayList<>();
+		for (Attribute a : attributes) {
+			result.add(a.getName());
+		}
+		return result;
+	}
+
+	private static List<String> fdNames(final List<FunctionalDependency> fds) {
+		List<String> result = new ArrayList<>();
+		for (FunctionalDependency f : fds) {
+			result.add(f.getFDName());
+		}
+		return result;
+	}
+
+	private static List<String> printRelations(final List<Relation> relations) {
+		List<String> result = new ArrayList<>();
+		for (Relation r : relations) {
+			result.add(r.printRelation());
+		}
+		return result;
+	}
+}
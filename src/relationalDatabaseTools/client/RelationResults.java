@@ -0,0 +1,150 @@
+package relationalDatabaseTools.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable results of analyzing a {@link RelationSnapshot}: its minimum
+ * candidate keys and superkeys, prime and non-prime attributes, minimal cover,
+ * derived functional dependencies and normal forms. The input is not copied
+ * but read from the snapshot, and the results share the snapshot's attribute
+ * and dependency objects. The working relation the analysis ran on is not
+ * kept, so the results hold no state that changes later and can be read by
+ * any number of threads.
+ * @author Raymond Cho
+ *
+ */
+public class RelationResults {
+	private final RelationSnapshot snapshot;
+	private final List<Closure> minimumKeys;
+	private final List<Closure> superKeys;
+	private final List<Attribute> primeAttributes;
+	private final List<Attribute> nonPrimeAttributes;
+	private final List<FunctionalDependency> minimalCover;
+	private final List<FunctionalDependency> derivedFDs;
+	private final List<FunctionalDependency> bcnfViolatingFDs;
+	private final boolean isIn2NF;
+	private final boolean isIn3NF;
+	private final boolean isInBCNF;
+	private final boolean isIn4NF;
+	private final String firstNormalFormMsg;
+	private final String secondNormalFormMsg;
+	private final String thirdNormalFormMsg;
+	private final String bcnfMsg;
+	private final String fourthNormalFormMsg;
+
+	private RelationResults(final RelationSnapshot snapshot, final Relation relation) {
+		this.snapshot = snapshot;
+		this.minimumKeys = freeze(relation.getMinimumKeyClosures());
+		this.superKeys = freeze(relation.getSuperKeyClosures());
+		this.primeAttributes = freeze(relation.getPrimeAttributes());
+		this.nonPrimeAttributes = freeze(relation.getNonPrimeAttributes());
+		this.minimalCover = freeze(relation.getMinimalCover());
+		this.derivedFDs = freeze(relation.getDerivedFDs());
+		DetermineNormalForms normalForms = relation.getNormalFormsResults();
+		this.bcnfViolatingFDs = freeze(normalForms.getBCNFViolatingFDs());
+		this.isIn2NF = normalForms.isIn2NF();
+		this.isIn3NF = normalForms.isIn3NF();
+		this.isInBCNF = normalForms.isInBCNF();
+		this.isIn4NF = normalForms.isIn4NF();
+		this.firstNormalFormMsg = normalForms.getFirstNormalFormMsg();
+		this.secondNormalFormMsg = normalForms.getSecondNormalFormMsg();
+		this.thirdNormalFormMsg = normalForms.getThirdNormalFormMsg();
+		this.bcnfMsg = normalForms.getBCNFMsg();
+		this.fourthNormalFormMsg = normalForms.getFourthNormalFormMsg();
+	}
+
+	/**
+	 * Calculates the closures and keys, minimal cover, derived functional
+	 * dependencies and normal forms of a new working relation of the snapshot.
+	 * @param snapshot
+	 * @return Results of the analysis.
+	 */
+	public static RelationResults analyze(final RelationSnapshot snapshot) {
+		if (snapshot == null) {
+			throw new IllegalArgumentException("Input relation snapshot is null.");
+		}
+		Relation relation = snapshot.createRelation();
+		CalculateClosure.improvedCalculateClosures(relation);
+		MinimalFDCover.determineMinimalCover(relation);
+		CalculateFDs.calculateDerivedFDs(relation);
+		relation.determineNormalForms();
+		return new RelationResults(snapshot, relation);
+	}
+
+	private static <T> List<T> freeze(final List<T> list) {
+		return Collections.unmodifiableList(new ArrayList<>(list));
+	}
+
+	public RelationSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	public List<Closure> getMinimumKeyClosures() {
+		return minimumKeys;
+	}
+
+	/**
+	 * @return Superkeys, excluding the minimum candidate keys.
+	 */
+	public List<Closure> getSuperKeyClosures() {
+		return superKeys;
+	}
+
+	public List<Attribute> getPrimeAttributes() {
+		return primeAttributes;
+	}
+
+	public List<Attribute> getNonPrimeAttributes() {
+		return nonPrimeAttributes;
+	}
+
+	public List<FunctionalDependency> getMinimalCover() {
+		return minimalCover;
+	}
+
+	public List<FunctionalDependency> getDerivedFDs() {
+		return derivedFDs;
+	}
+
+	public List<FunctionalDependency> getBCNFViolatingFDs() {
+		return bcnfViolatingFDs;
+	}
+
+	public boolean isIn2NF() {
+		return isIn2NF;
+	}
+
+	public boolean isIn3NF() {
+		return isIn3NF;
+	}
+
+	public boolean isInBCNF() {
+		return isInBCNF;
+	}
+
+	public boolean isIn4NF() {
+		return isIn4NF;
+	}
+
+	public String getFirstNormalFormMsg() {
+		return firstNormalFormMsg;
+	}
+
+	public String getSecondNormalFormMsg() {
+		return secondNormalFormMsg;
+	}
+
+	public String getThirdNormalFormMsg() {
+		return thirdNormalFormMsg;
+	}
+
+	public String getBCNFMsg() {
+		return bcnfMsg;
+	}
+
+	public String getFourthNormalFormMsg() {
+		return fourthNormalFormMsg;
+	}
+}
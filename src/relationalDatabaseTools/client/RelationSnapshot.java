@@ -0,0 +1,81 @@
+package relationalDatabaseTools.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable input of a relation: its name, attributes, and functional and
+ * multivalued dependencies, taken from a relation that was parsed and passed
+ * the integrity checks. A {@link Relation} holds the state of its analysis as
+ * well, so it can only be analyzed once and by one thread; a snapshot instead
+ * hands out a new working relation for every analysis (see
+ * {@link #createRelation()}), which shares the snapshot's attribute and
+ * dependency objects rather than parsing the input again. One snapshot can
+ * therefore be analyzed by many threads at the same time, and kept together
+ * with its {@link RelationResults}, for example in a cache.
+ * @author Raymond Cho
+ *
+ */
+public class RelationSnapshot {
+	private final String name;
+	private final List<Attribute> attributes;
+	private final List<FunctionalDependency> fds;
+	private final List<MultivaluedDependency> mvds;
+
+	private RelationSnapshot(final String name, final List<Attribute> attributes, final List<FunctionalDependency> fds,
+			final List<MultivaluedDependency> mvds) {
+		this.name = name;
+		this.attributes = Collections.unmodifiableList(new ArrayList<>(attributes));
+		this.fds = Collections.unmodifiableList(new ArrayList<>(fds));
+		this.mvds = Collections.unmodifiableList(new ArrayList<>(mvds));
+	}
+
+	/**
+	 * @param relation
+	 *            Relation parsed from the input, with its dependencies added,
+	 *            which passed the integrity checks.
+	 * @return Snapshot of the relation's input.
+	 */
+	public static RelationSnapshot of(final Relation relation) {
+		if (relation == null) {
+			throw new IllegalArgumentException("Input relation is null.");
+		}
+		if (!relation.hasPassedIntegrityChecks()) {
+			throw new IllegalArgumentException("Relation " + relation.getName() + " has not passed the integrity checks: "
+					+ relation.getIntegrityCheckErrorMsg());
+		}
+		return new RelationSnapshot(relation.getName(), relation.getAttributes(), relation.getInputFDs(), relation.getMVDs());
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public List<Attribute> getAttributes() {
+		return attributes;
+	}
+
+	public List<FunctionalDependency> getInputFDs() {
+		return fds;
+	}
+
+	public List<MultivaluedDependency> getMVDs() {
+		return mvds;
+	}
+
+	/**
+	 * @return New relation with this input and no analysis state, to be analyzed by one caller.
+	 */
+	public Relation createRelation() {
+		return new Relation(this);
+	}
+
+	/**
+	 * Analyzes a new working relation of this snapshot.
+	 * @return Results of the analysis.
+	 */
+	public RelationResults analyze() {
+		return RelationResults.analyze(this);
+	}
+}
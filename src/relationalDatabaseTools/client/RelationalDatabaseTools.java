@@ -3,15 +3,27 @@ package relationalDatabaseTools.client;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.google.gwt.core.client.Duration;
 import com.google.gwt.core.client.EntryPoint;
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.RunAsyncCallback;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
 import com.google.gwt.event.dom.client.ClickEvent;
 import com.google.gwt.event.dom.client.ClickHandler;
+import com.google.gwt.event.dom.client.KeyUpEvent;
+import com.google.gwt.event.dom.client.KeyUpHandler;
+import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
+import com.google.gwt.storage.client.Storage;
+import com.google.gwt.user.client.Timer;
 import com.google.gwt.user.client.ui.Button;
+import com.google.gwt.user.client.ui.CheckBox;
 import com.google.gwt.user.client.ui.HTML;
 import com.google.gwt.user.client.ui.Label;
 import com.google.gwt.user.client.ui.RootPanel;
 import com.google.gwt.user.client.ui.TextBox;
 import com.google.gwt.user.client.ui.VerticalPanel;
+import com.google.gwt.user.client.ui.Widget;
 
 /**
  * Relational Database Tools user interface.
@@ -19,6 +31,18 @@ import com.google.gwt.user.client.ui.VerticalPanel;
  *
  */
 public class RelationalDatabaseTools implements EntryPoint {
+	/**
+	 * Milliseconds of analysis between two returns to the browser's event loop.
+	 */
+	private static final int TIME_SLICE_MILLIS = 50;
+	/**
+	 * Number of rows shown on a page of the attribute closures or the derived functional dependencies.
+	 */
+	private static final int ROWS_PER_PAGE = 100;
+	/**
+	 * Milliseconds without typing after which the live results are updated.
+	 */
+	private static final int LIVE_UPDATE_DELAY_MILLIS = 300;
 	
 	private final VerticalPanel mainPanel = new VerticalPanel();
 	private final VerticalPanel panel_1 = new VerticalPanel();
@@ -36,6 +60,7 @@ public class RelationalDatabaseTools implements EntryPoint {
 	private final Label label_2c = new Label("Use semi-colons to separate different functional dependencies.");
 	private final TextBox textBox_2 = new TextBox();
 	private final VerticalPanel secondaryFDPanel = new VerticalPanel();
+	private final HTML liveResults = new HTML();
 	
 	private final Label label_3 = new Label("Enter all given multivalued dependencies in form A -> B; AB -> C; B,C ->A (same as functional dependencies)");
 	private final Label label_3b = new Label("Leave blank if there are none.");
@@ -44,13 +69,67 @@ public class RelationalDatabaseTools implements EntryPoint {
 	
 	private final Button calculateButton = new Button("Calculate");
 	private final Button resetButton = new Button("Reset");
+	private final Button cancelButton = new Button("Cancel");
+	private final Label progressLabel = new Label();
+	private final CheckBox workerCheckBox = new CheckBox("Calculate in a background worker");
+	private final CheckBox canonicalBasisCheckBox = new CheckBox("List closed sets and the canonical basis instead of all derived dependencies");
 	
-	private Label outputLabel = new Label();
 	private final Label errorLabel = new Label();
 	
-	private final List<Label> outputs = new ArrayList<>();
+	/**
+	 * Output is collected into one HTML string per section and attached as a
+	 * single widget once the section is complete or the analysis yields, rather
+	 * than as one widget per line. Long lists are shown a page at a time.
+	 */
+	private final List<Widget> outputs = new ArrayList<>();
+	private SafeHtmlBuilder pendingOutput;
+	private StringBuilder pendingLine;
+	private PagedList openList;
 	
 	private Relation relation;
+	private RunningAnalysis currentAnalysis;
+	private final ResultCache resultCache = createResultCache();
+	/**
+	 * Keys and minimal cover of the schema being edited, updated one functional
+	 * dependency at a time while the user types.
+	 */
+	private IncrementalRelation liveRelation;
+	private final Timer liveUpdateTimer = new Timer() {
+		@Override
+		public void run() {
+			updateLiveResults();
+		}
+	};
+	private final AnalysisOutput pageOutput = new AnalysisOutput() {
+		@Override
+		public void append(final String text, final boolean newLine) {
+			appendOutput(text, newLine);
+		}
+		
+		@Override
+		public void appendMajorBreak() {
+			RelationalDatabaseTools.this.appendMajorBreak();
+		}
+		
+		@Override
+		public void appendMinorBreak() {
+			RelationalDatabaseTools.this.appendMinorBreak();
+		}
+		
+		@Override
+		public void beginList() {
+			flushOutput();
+			openList = new PagedList(ROWS_PER_PAGE);
+			outputs.add(openList);
+			outputPanel.add(openList);
+		}
+		
+		@Override
+		public void endList() {
+			flushOutput();
+			openList = null;
+		}
+	};
 	
 	@Override
 	public void onModuleLoad() {
@@ -74,7 +153,17 @@ public class RelationalDatabaseTools implements EntryPoint {
 		panel_2.add(textBox_2);
 		textBox_2.addStyleName("textboxes");
 		panel_2.add(secondaryFDPanel);
+		panel_2.add(liveResults);
+		liveResults.setVisible(false);
 		panel_2.addStyleName("panels");
+		KeyUpHandler liveUpdateHandler = new KeyUpHandler() {
+			@Override
+			public void onKeyUp(KeyUpEvent event) {
+				liveUpdateTimer.schedule(LIVE_UPDATE_DELAY_MILLIS);
+			}
+		};
+		textBox_1.addKeyUpHandler(liveUpdateHandler);
+		textBox_2.addKeyUpHandler(liveUpdateHandler);
 		
 		panel_3.add(label_3);
 		panel_3.add(textBox_3);
@@ -89,11 +178,24 @@ public class RelationalDatabaseTools implements EntryPoint {
 				calculate();
 			}
 		});
+		panel_4.add(workerCheckBox);
+		workerCheckBox.setValue(WorkerAnalysis.isSupported());
+		workerCheckBox.setEnabled(WorkerAnalysis.isSupported());
+		panel_4.add(canonicalBasisCheckBox);
+		panel_4.add(cancelButton);
+		cancelButton.setVisible(false);
+		cancelButton.addClickHandler(new ClickHandler() {
+			@Override
+			public void onClick(ClickEvent event) {
+				cancelAnalysis("Calculation cancelled.");
+			}
+		});
+		panel_4.add(progressLabel);
+		progressLabel.setVisible(false);
 		panel_4.addStyleName("panels");
 		
 		errorLabel.addStyleName("errorLabel");
 		outputPanel.add(errorLabel);
-		outputPanel.add(outputLabel);
 		outputPanel.addStyleName("panels");
 		
 		mainPanel.add(resetButton);
@@ -104,8 +206,6 @@ public class RelationalDatabaseTools implements EntryPoint {
 		mainPanel.add(outputPanel);
 		mainPanel.addStyleName("panels");
 		
-		outputs.add(outputLabel);
-		
 		RootPanel.get("relationalTools").add(mainPanel);
 		relation = null;
 	}
@@ -117,6 +217,7 @@ public class RelationalDatabaseTools implements EntryPoint {
 		textBox_2.setText(completeFDs);
 		String completeMVDs = textBox_3.getText().toUpperCase();
 		textBox_3.setText(completeMVDs);
+		cancelAnalysis(null);
 		clearError();
 		clearOutput();
 		if (Relation.isNullOrEmpty(completeRelation)) {
@@ -145,7 +246,7 @@ public class RelationalDatabaseTools implements EntryPoint {
 			return;
 		}
 		if (!relation.hasPassedIntegrityChecks()) {
-			displayError(relation.getIntegrityCheckErrorMsg());
+			displayIntegrityCheckError("relation schema");
 			return;
 		}
 		boolean functionalCheck = Relation.functionalContainsAtLeastOneDependency(completeFDs);
@@ -165,9 +266,13 @@ public class RelationalDatabaseTools implements EntryPoint {
 			displayError(outputErrorCheck);
 		}
 		relation.addFunctionalDependencies(completeFDs);
+		if (!relation.hasPassedIntegrityChecks()) {
+			displayIntegrityCheckError("functional dependencies");
+			return;
+		}
 		relation.addMultivaluedDependencies(completeMVDs);
 		if (!relation.hasPassedIntegrityChecks()) {
-			displayError(relation.getIntegrityCheckErrorMsg());
+			displayIntegrityCheckError("multivalued dependencies");
 			return;
 		}
 
@@ -230,322 +335,396 @@ public class RelationalDatabaseTools implements EntryPoint {
 			appendOutput(".", false);
 		}
 		
-		
-		// Print out closure of given attributes and keys
-		appendMajorBreak();
-		CalculateClosure.improvedCalculateClosures(relation);
-		appendOutput("Calculating attribute closures: ", true);
-		List<Closure> calculatedClosures = relation.getClosures();
-		List<Closure> minimumKeys = relation.getMinimumKeyClosures();
-		List<Closure> superKeys = relation.getSuperKeyClosures();
-		for (Closure closure : calculatedClosures) {
-			List<Attribute> left = closure.getClosureOf();
-			List<Attribute> right = closure.getClosure();
-			appendOutput("{", true);
-			for (int i = 0; i < left.size(); i++) {
-				appendOutput(left.get(i).getName(), false);
-				if (i < left.size() - 1) {
-					appendOutput(", ", false);
-				}
-			}
-			appendOutput("}+ = {", false);
-			for (int i = 0; i < right.size(); i++) {
-				appendOutput(right.get(i).getName(), false);
-				if (i < right.size() - 1) {
-					appendOutput(", ", false);
-				}
-			}
-			appendOutput("}", false);
-			if (minimumKeys.contains(closure)) {
-				if (closure.getClosureOf().size() == 1) {
-					appendOutput(" " + RDTUtils.LONG_LEFTWARDS_ARROW + " Minimum candidate key", false);
-				} else {
-					appendOutput(" " + RDTUtils.LONG_LEFTWARDS_ARROW + " Composite minimum candidate key", false);
-				}
-			}
-			if (superKeys.contains(closure)) {
-				appendOutput(" " + RDTUtils.LONG_LEFTWARDS_ARROW + " Superkey", false);
-			}
+		// Show the report of the same canonical input from the cache, or run the
+		// analysis on the canonical input and cache its report once complete.
+		// Reports of the canonical basis are cached apart from the full reports.
+		CanonicalInput input = CanonicalInput.of(relation);
+		boolean canonicalBasisReport = canonicalBasisCheckBox.getValue();
+		String reportKey = input.getFingerprint();
+		if (canonicalBasisReport) {
+			reportKey += "|" + AnalysisWorker.CANONICAL_BASIS;
 		}
-		
-
-		// Print out number of minimum candidate keys and superkeys
-		appendMajorBreak();
-		int minKeys = relation.getMinimumKeyClosures().size();
-		int minCompKeys = 0;
-		for (Closure c : relation.getMinimumKeyClosures()) {
-			if (c.getClosureOf().size() > 1) {
-				minCompKeys++;
+		List<String> cachedReport = resultCache.get(reportKey);
+		if (cachedReport != null) {
+			for (String entry : cachedReport) {
+				SerializedOutput.replay(entry, pageOutput);
 			}
+			flushOutput();
+			return;
 		}
-		if (minKeys == 1) {
-			if (minCompKeys == 0) {
-				appendOutput("Found 1 minimum candidate key. There are no composite minimum candidate keys.", true);
-			} else {
-				appendOutput("Found 1 composite minimum candidate key. There are no non-composite minimum candidate keys.", true);
-			}
+		flushOutput();
+		progressLabel.setText("Calculating...");
+		progressLabel.setVisible(true);
+		cancelButton.setVisible(true);
+		if (workerCheckBox.getValue()) {
+			BackgroundAnalysis analysis = new BackgroundAnalysis(input, reportKey, canonicalBasisReport);
+			currentAnalysis = analysis;
+			analysis.start();
 		} else {
-			appendOutput("Found " + relation.getMinimumKeyClosures().size() + " minimum candidate keys, ", true);
-			if (minCompKeys == 1) {
-				appendOutput("of which 1 is a composite minimum candidate key.", false);
-			} else {
-				appendOutput("of which " + minCompKeys + " are composite minimum candidate keys.", false);
-			}
+			IncrementalAnalysis analysis = new IncrementalAnalysis(input, reportKey, canonicalBasisReport);
+			currentAnalysis = analysis;
+			Scheduler.get().scheduleIncremental(analysis);
 		}
-		int numSuperKeys = relation.getSuperKeyClosures().size();
-		if (numSuperKeys == 1) {
-			appendOutput("Found 1 superkey (excluding minimum candidate keys).", true);
-		} else {
-			appendOutput("Found " + relation.getSuperKeyClosures().size() + " superkeys (excluding minimum candidate keys).", true);
+	}
+	
+	/**
+	 * Shows the minimum keys, superkeys and minimal cover of the input as it is
+	 * typed. While the schema stays the same, the functional dependencies that
+	 * were added or removed since the last update are applied to the
+	 * {@link IncrementalRelation} one at a time instead of analyzing the input
+	 * again. Input that does not parse yet hides the results.
+	 */
+	private void updateLiveResults() {
+		String completeRelation = textBox_1.getText().toUpperCase();
+		String completeFDs = textBox_2.getText().toUpperCase();
+		if (Relation.isNullOrEmpty(completeRelation) || !Relation.schemaContainsSafeChars(completeRelation)
+				|| !Relation.schemaContainsParenthesisPair(completeRelation)
+				|| !Relation.functionalContainsSafeChars(completeFDs)) {
+			hideLiveResults();
+			return;
 		}
-		
-
-		// Print out prime and non-prime attributes
-		appendMajorBreak();
-		appendOutput("List of prime attributes (attributes that are part of a minimum candidate key): ", true);
-		List<Attribute> primes = relation.getPrimeAttributes();
-		for (int i = 0; i < primes.size(); i++) {
-			appendOutput(primes.get(i).getName(), false);
-			if (i < primes.size() - 1) {
-				appendOutput(", ", false);
-			}
+		Relation edited = new Relation(completeRelation);
+		if (edited.getAttributes().isEmpty() || !edited.hasPassedIntegrityChecks()) {
+			hideLiveResults();
+			return;
 		}
-		appendOutput(".", false);
-		appendOutput("List of non-prime attributes (attributes that are not part of any minimum candidate key): ", true);
-		List<Attribute> nonPrimes = relation.getNonPrimeAttributes();
-		if (nonPrimes.isEmpty()) {
-			appendOutput("(none).", false);
-		} else {
-			for (int i = 0; i < nonPrimes.size(); i++) {
-				appendOutput(nonPrimes.get(i).getName(), false);
-				if (i < nonPrimes.size() - 1) {
-					appendOutput(", ", false);
-				}
-			}
-			appendOutput(".", false);
+		edited.addFunctionalDependencies(completeFDs);
+		if (!edited.hasPassedIntegrityChecks()) {
+			hideLiveResults();
+			return;
 		}
-		
-
-		// Print out minimal cover of functional dependencies
-		appendMajorBreak();
-		MinimalFDCover.determineMinimalCover(relation);
-		appendOutput("Calculating a minimal cover set (F_min) of functional dependencies from given input: (note that functional dependencies with common left-hand sides have their right-hand sides combined)", true);
-		appendMinorBreak();
-		List<FunctionalDependency> minimalCover = relation.getMinimalCover();
-		List<String> minimalCoverOutput = relation.getMinimalCoverOutput();
-		for (String output : minimalCoverOutput) {
-			appendOutput(output, true);
+		SafeHtmlBuilder html = new SafeHtmlBuilder();
+		if (!IncrementalRelation.supports(edited)) {
+			liveRelation = null;
+			html.appendEscaped("Live results are available for relations of up to " + IncrementalRelation.MAX_ATTRIBUTES
+					+ " attributes. Press Calculate for the full analysis.");
+			liveResults.setHTML(html.toSafeHtml());
+			liveResults.setVisible(true);
+			return;
 		}
-		appendMinorBreak();
-		if (minimalCover.isEmpty()) {
-			appendOutput("There are no functional dependencies in the minimal cover set.", true);
+		if (liveRelation == null || !liveRelation.getRelation().getName().equals(edited.getName())
+				|| !liveRelation.getRelation().getAttributes().equals(edited.getAttributes())) {
+			liveRelation = new IncrementalRelation(edited);
 		} else {
-			appendOutput("F_min = { ", true);
-			for (int i = 0; i < minimalCover.size(); i++) {
-				appendOutput(minimalCover.get(i).getFDName(), false);
-				if (i < minimalCover.size() - 1) {
-					appendOutput("; ", false);
+			liveRelation.update(edited.getInputFDs());
+		}
+		
+		List<List<Attribute>> keys = liveRelation.getMinimumKeys();
+		html.appendHtmlConstant("<div>").appendEscaped("Minimum candidate keys: ");
+		for (int i = 0; i < keys.size(); i++) {
+			html.appendEscaped("{");
+			List<Attribute> key = keys.get(i);
+			for (int j = 0; j < key.size(); j++) {
+				html.appendEscaped(key.get(j).getName());
+				if (j < key.size() - 1) {
+					html.appendEscaped(", ");
 				}
 			}
-			appendOutput(" }", false);
-		}
-
-		// Print out derived functional dependencies
-		appendMajorBreak();
-		CalculateFDs.calculateDerivedFDs(relation);
-		appendOutput("Calculating complete set of non-trivial functional dependencies based on the given ones: ", true);
-		List<FunctionalDependency> derivedFDs = relation.getDerivedFDs();
-		if (derivedFDs.isEmpty()) {
-			appendOutput("There are no new functional dependencies aside from the pre-existing ones.", true);
-		} else {
-			appendOutput("Full set of non-trivial functional dependencies: ", true);
-			for (int i = 0; i < derivedFDs.size(); i++) {
-				appendOutput(derivedFDs.get(i).getFDName(), true);
+			html.appendEscaped("}");
+			if (i < keys.size() - 1) {
+				html.appendEscaped("; ");
 			}
 		}
-		
-
-		// Display normal forms
-		appendMajorBreak();
-		appendOutput("Determining highest normal form of relation: ", true);
-		relation.determineNormalForms();
-		DetermineNormalForms normalForms = relation.getNormalFormsResults();
-		appendOutput(normalForms.getFirstNormalFormMsg(), true);
-		appendMinorBreak();
-		appendOutput(normalForms.getSecondNormalFormMsg(), true);
-		appendMinorBreak();
-		appendOutput(normalForms.getThirdNormalFormMsg(), true);
-		appendMinorBreak();
-		appendOutput(normalForms.getBCNFMsg(), true);
-		appendMinorBreak();
-		appendOutput(normalForms.getFourthNormalFormMsg(), true);
-		
-		
-		// Output 3NF decomposition
-		appendMajorBreak();
-		appendOutput("Decomposing input relation into 3NF using canonical functional dependency cover (lossless and preserving all minimal cover set functional dependencies): ", true);
-		Calculate3NFDecomposition threeNF = new Calculate3NFDecomposition(relation);
-		if (normalForms.isIn3NF()) {
-			appendOutput("Input relation is already in 3NF. No decomposition necessary. ", true);
-		} else {
-			threeNF.decompose();
-			appendOutput(threeNF.getOutputMsg(), true);
-			List<Relation> output3NFRelations = threeNF.getOutputRelations();
-			for (Relation r : output3NFRelations) {
-				appendOutput(r.printRelation(), true);
+		html.appendEscaped(". Superkeys (excluding minimum candidate keys): " + liveRelation.getSuperKeyCount() + ".");
+		html.appendHtmlConstant("</div><div>").appendEscaped("Minimal cover: ");
+		List<FunctionalDependency> cover = liveRelation.getMinimalCover();
+		if (cover.isEmpty()) {
+			html.appendEscaped("(none)");
+		}
+		for (int i = 0; i < cover.size(); i++) {
+			html.appendEscaped(cover.get(i).getFDName());
+			if (i < cover.size() - 1) {
+				html.appendEscaped("; ");
 			}
 		}
-		
-		
-		// Output BCNF decomposition
-		appendMajorBreak();
-		appendOutput("Decomposing input relation into BCNF relations (lossless but not necessarily functional dependency preserving). Will attempt two parallel decompositions: one from the input relation and the second from the set of decomposed 3NF relations: ", true);
-		appendMinorBreak();
-		if (normalForms.isInBCNF()) {
-			appendOutput("Input relation is already in BCNF. No decomposition necessary. ", true);
-		} else {
-			if (normalForms.isIn3NF()) {
-				threeNF.decompose();
+		html.appendEscaped(".");
+		html.appendHtmlConstant("</div><div>").appendEscaped("Attribute closures updated: "
+				+ liveRelation.getLastUpdatedClosures() + ".");
+		html.appendHtmlConstant("</div>");
+		liveResults.setHTML(html.toSafeHtml());
+		liveResults.setVisible(true);
+	}
+	
+	private void hideLiveResults() {
+		liveResults.setVisible(false);
+	}
+	
+	private interface RunningAnalysis {
+		void cancel();
+	}
+	
+	/**
+	 * @return Cache backed by the browser's local storage, if it is supported.
+	 */
+	private static ResultCache createResultCache() {
+		final Storage storage = Storage.getLocalStorageIfSupported();
+		if (storage == null) {
+			return new ResultCache(ResultCache.DEFAULT_CAPACITY);
+		}
+		// Reports stored by an earlier build may have different text, so they are not replayed.
+		return new ResultCache(ResultCache.DEFAULT_CAPACITY, new ResultCache.Store() {
+			@Override
+			public String getItem(final String key) {
+				return storage.getItem(key);
 			}
-			CalculateBCNFDecomposition bcnf = new CalculateBCNFDecomposition(threeNF);
-			bcnf.decompose();
 			
-			// Start with input relation source BCNF decomposition
-			appendOutput("Decomposing input relation into BCNF relations using input relation and input functional dependencies as sources. ", true);
-			if (bcnf.getBcnfDecomposedWithDuplicates().size() == bcnf.getPureBCNFDecomposedRs().size()) {
-				appendOutput("Final set of decomposed BCNF relations: ", true);
-				for (Relation r : bcnf.getPureBCNFDecomposedRs()) {
-					appendOutput(r.printRelation(), true);
-				}
-			} else {
-				appendOutput("Initial set of decomposed BCNF relations: ", true);
-				for (Relation r : bcnf.getBcnfDecomposedWithDuplicates()) {
-					appendOutput(r.printRelation(), true);
-				}
-				appendOutput("Final set of decomposed BCNF relations (removing duplicate and subset relations): ", true);
-				for (Relation r : bcnf.getPureBCNFDecomposedRs()) {
-					appendOutput(r.printRelation(), true);
-				}
-			}
-			List<FunctionalDependency> pureBCNFLostFDs = bcnf.getPureBCNFLostFDs();
-			if (pureBCNFLostFDs.isEmpty()) {
-				appendOutput("No input functional dependencies were lost.", true);
-			} else {
-				if (pureBCNFLostFDs.size() == 1) {
-					appendOutput("The following input functional dependency was lost: ", true);
-				} else {
-					appendOutput("The following input functional dependencies were lost: ", true);
-				}
-				for (int i = 0; i < pureBCNFLostFDs.size(); i++) {
-					appendOutput(pureBCNFLostFDs.get(i).getFDName(), false);
-					if (i < pureBCNFLostFDs.size() - 1) {
-						appendOutput("; ", false);
-					}
-				}
-				appendOutput(".", false);
-				appendOutput("Note that a lost input functional dependency can be safely ignored if it is not part of the minimal cover set of functional dependencies", true);
+			@Override
+			public void setItem(final String key, final String value) {
+				storage.setItem(key, value);
 			}
 			
-			appendMinorBreak();
-			
-			// Next display 3NF relation source BCNF decomposition
-			appendOutput("Decomposing input relation into BCNF relations using decomposed 3NF relations and the minimal cover set of functional dependencies as sources. ", true);
-			if (bcnf.getThreeNFDecomposedWithDuplicates().size() == bcnf.getThreeNFDecomposedRs().size()) {
-				appendOutput("Final set of decomposed BCNF relations: ", true);
-				for (Relation r : bcnf.getThreeNFDecomposedRs()) {
-					appendOutput(r.printRelation(), true);
-				}
-			} else {
-				appendOutput("Initial set of decomposed BCNF relations: ", true);
-				for (Relation r : bcnf.getThreeNFDecomposedWithDuplicates()) {
-					appendOutput(r.printRelation(), true);
-				}
-				appendOutput("Final set of decomposed BCNF relations (removing duplicate and subset relations): ", true);
-				for (Relation r : bcnf.getThreeNFDecomposedRs()) {
-					appendOutput(r.printRelation(), true);
-				}
+			@Override
+			public void removeItem(final String key) {
+				storage.removeItem(key);
 			}
-			List<FunctionalDependency> threeNFLostFDs = bcnf.getThreeNFLostFDs();
-			if (threeNFLostFDs.isEmpty()) {
-				appendOutput("No functional dependencies from the minimal cover set were lost.", true);
-			} else {
-				if (threeNFLostFDs.size() == 1) {
-					appendOutput("The following minimal cover set functional dependency was lost: ", true);
-				} else {
-					appendOutput("The following minimal cover set functional dependencies were lost: ", true);
-				}
-				for (int i = 0; i < threeNFLostFDs.size(); i++) {
-					appendOutput(threeNFLostFDs.get(i).getFDName(), false);
-					if (i < threeNFLostFDs.size() - 1) {
-						appendOutput("; ", false);
+		}, GWT.getPermutationStrongName());
+	}
+	
+	/**
+	 * Runs the steps of the report on the page, a time slice at a time so that
+	 * the page stays responsive, and each section is shown as soon as it is
+	 * ready. Cancelling takes effect at the next step. The code of the minimal
+	 * cover, normal forms and decompositions is only reachable through the
+	 * {@link DependencyReport}, which is created behind a split point: it is
+	 * downloaded when the first report reaches the minimal cover, while the
+	 * closures and keys are already shown. A step that fails ends the analysis
+	 * with an error message.
+	 */
+	private class IncrementalAnalysis implements RunningAnalysis, RepeatingCommand {
+		private final String reportKey;
+		private final SerializedOutput recorder = new SerializedOutput(pageOutput);
+		private final AnalysisReport report;
+		private boolean cancelled;
+		
+		private IncrementalAnalysis(final CanonicalInput input, final String reportKey, final boolean canonicalBasisReport) {
+			this.reportKey = reportKey;
+			this.report = new AnalysisReport(input.createRelation(), recorder);
+			report.setCanonicalBasisReport(canonicalBasisReport);
+		}
+		
+		@Override
+		public boolean execute() {
+			if (cancelled) {
+				return false;
+			}
+			Duration slice = new Duration();
+			try {
+				do {
+					if (report.isWaitingForDependencyReport()) {
+						flushOutput();
+						progressLabel.setText("Loading the minimal cover, normal form and decomposition code...");
+						loadDependencyReport();
+						return false;
 					}
-				}
-				appendOutput(".", false);
+					if (!report.step()) {
+						resultCache.put(reportKey, recorder.takeEntries());
+						finishAnalysis(this);
+						return false;
+					}
+				} while (slice.elapsedMillis() < TIME_SLICE_MILLIS);
+			} catch (RuntimeException e) {
+				// Like AnalysisWorker, report the failure instead of leaving the analysis running.
+				finishAnalysis(this);
+				displayError("Analysis failed: " + e.getMessage());
+				return false;
 			}
-			
-			appendOutput(bcnf.getOutputMsg(), true);
-			List<Relation> resultsWithDuplicates = bcnf.getResultWithDuplicates();
-			List<Relation> outputBCNFRelations = bcnf.getOutputRelations();
-			if (resultsWithDuplicates.size() == outputBCNFRelations.size()) {
-				for (Relation r : outputBCNFRelations) {
-					appendOutput(r.printRelation(), true);
+			flushOutput();
+			progressLabel.setText(report.describeProgress());
+			return true;
+		}
+		
+		@Override
+		public void cancel() {
+			cancelled = true;
+		}
+		
+		/**
+		 * Sets the report's dependency report once its code has been loaded, and
+		 * schedules the remaining steps.
+		 */
+		private void loadDependencyReport() {
+			GWT.runAsync(DependencyReport.class, new RunAsyncCallback() {
+				@Override
+				public void onSuccess() {
+					if (cancelled) {
+						return;
+					}
+					report.setDependencyReport(new DependencyReport(report.getRelation(), report.getOutput()));
+					Scheduler.get().scheduleIncremental(IncrementalAnalysis.this);
 				}
-			} else {
-				appendOutput("Initial set of decomposed BCNF relations: ", true);
-				for (Relation r : resultsWithDuplicates) {
-					appendOutput(r.printRelation(), true);
+				
+				@Override
+				public void onFailure(final Throwable reason) {
+					if (cancelled) {
+						return;
+					}
+					finishAnalysis(IncrementalAnalysis.this);
+					displayError("Could not load the minimal cover, normal form and decomposition code: " + reason.getMessage());
 				}
-				appendOutput("Final set of decomposed BCNF relations (removing duplicate and subset relations): ", true);
-				for (Relation r : outputBCNFRelations) {
-					appendOutput(r.printRelation(), true);
+			});
+		}
+	}
+	
+	/**
+	 * Runs the report in a Web Worker, so that the page only shows the output.
+	 * Cancelling terminates the worker. If the worker cannot run, for example
+	 * because the worker module was not compiled, the analysis continues on
+	 * the page and the background worker option is cleared.
+	 */
+	private class BackgroundAnalysis implements RunningAnalysis, WorkerAnalysis.Listener {
+		private final CanonicalInput input;
+		private final String reportKey;
+		private final boolean canonicalBasisReport;
+		private final SerializedOutput recorder = new SerializedOutput(pageOutput);
+		private final WorkerAnalysis worker = new WorkerAnalysis(recorder, this);
+		
+		private BackgroundAnalysis(final CanonicalInput input, final String reportKey, final boolean canonicalBasisReport) {
+			this.input = input;
+			this.reportKey = reportKey;
+			this.canonicalBasisReport = canonicalBasisReport;
+		}
+		
+		private void start() {
+			worker.start(input.getSchema(), input.getFunctionalDependencies(), input.getMultivaluedDependencies(),
+					canonicalBasisReport);
+		}
+		
+		@Override
+		public void cancel() {
+			worker.terminate();
+		}
+		
+		@Override
+		public void onProgress(final String progress) {
+			flushOutput();
+			progressLabel.setText(progress);
+		}
+		
+		@Override
+		public void onDone() {
+			resultCache.put(reportKey, recorder.takeEntries());
+			finishAnalysis(this);
+		}
+		
+		@Override
+		public void onError(final String message) {
+			if (message == null) {
+				if (currentAnalysis == this) {
+					workerCheckBox.setValue(false);
+					IncrementalAnalysis analysis = new IncrementalAnalysis(input, reportKey, canonicalBasisReport);
+					currentAnalysis = analysis;
+					Scheduler.get().scheduleIncremental(analysis);
 				}
+				return;
 			}
-			
+			finishAnalysis(this);
+			displayError(message);
+		}
+	}
+	
+	private void finishAnalysis(final RunningAnalysis analysis) {
+		if (currentAnalysis == analysis) {
+			flushOutput();
+			currentAnalysis = null;
+			progressLabel.setVisible(false);
+			cancelButton.setVisible(false);
+		}
+	}
+	
+	/**
+	 * Stops the running analysis, if any.
+	 * @param message
+	 *            Progress message to show, or null to hide the progress label.
+	 */
+	private void cancelAnalysis(final String message) {
+		if (currentAnalysis == null) {
+			return;
+		}
+		currentAnalysis.cancel();
+		currentAnalysis = null;
+		flushOutput();
+		cancelButton.setVisible(false);
+		if (message == null) {
+			progressLabel.setVisible(false);
+		} else {
+			progressLabel.setText(message);
 		}
-		
 	}
 	
 	private void displayOutput(final String output) {
 		clearOutput();
-		appendOutput(output, false);
+		appendOutput(output, true);
 	}
 	
 	private void appendOutput(final String output, final boolean newLine) {
-		if (newLine) {
-			Label nextLabel = new Label(output);
-			outputs.add(nextLabel);
-			outputPanel.add(nextLabel);
+		if (openList != null) {
+			if (newLine) {
+				openList.addRow(output);
+			} else {
+				openList.appendToLastRow(output);
+			}
 			return;
+		}
+		if (newLine) {
+			closePendingLine();
+			pendingLine = new StringBuilder(output);
+		} else if (pendingLine == null) {
+			pendingLine = new StringBuilder(output);
 		} else {
-			Label lastLabel = outputs.get(outputs.size()-1);
-			String existingOutput = lastLabel.getText();
-			lastLabel.setText(existingOutput + output);
+			pendingLine.append(output);
 		}
 	}
 	
-	private void appendOutput(final Label label) {
-		outputs.add(label);
-		outputPanel.add(label);
-		return;
+	private void closePendingLine() {
+		if (pendingLine == null) {
+			return;
+		}
+		if (pendingOutput == null) {
+			pendingOutput = new SafeHtmlBuilder();
+		}
+		pendingOutput.appendHtmlConstant("<div>").appendEscaped(pendingLine.toString()).appendHtmlConstant("</div>");
+		pendingLine = null;
 	}
 	
 	private void appendMajorBreak() {
-		appendOutput(new HTML("<br>"));
+		flushOutput();
+		appendMinorBreak();
 		appendOutput("------------------------------", true);
 	}
 	
 	private void appendMinorBreak() {
-		appendOutput(new HTML("<br>"));
+		closePendingLine();
+		if (pendingOutput == null) {
+			pendingOutput = new SafeHtmlBuilder();
+		}
+		pendingOutput.appendHtmlConstant("<br>");
 	}
 	
-	private void clearOutput() {
-		for (Label label : outputs) {
-			label.setText("");
+	/**
+	 * Attaches the output collected so far as one widget, and shows the rows
+	 * added to the open list.
+	 */
+	private void flushOutput() {
+		closePendingLine();
+		if (pendingOutput != null) {
+			HTML html = new HTML(pendingOutput.toSafeHtml());
+			outputs.add(html);
+			outputPanel.add(html);
+			pendingOutput = null;
 		}
-		for (int i = outputs.size()-1; i >= 1; i--) {
-			outputPanel.remove(outputs.get(i));
-			outputs.remove(i);
+		if (openList != null) {
+			openList.refresh();
+		}
+	}
+	
+	private void clearOutput() {
+		for (Widget output : outputs) {
+			outputPanel.remove(output);
 		}
+		outputs.clear();
+		pendingOutput = null;
+		pendingLine = null;
+		openList = null;
 	}
 	
 	private void displayError(final String error) {
@@ -553,6 +732,19 @@ public class RelationalDatabaseTools implements EntryPoint {
 		errorLabel.setText(error);
 	}
 	
+	/**
+	 * Shows the relation's integrity check error, with its position in the input if known.
+	 * @param input
+	 *            Description of the input the error was found in.
+	 */
+	private void displayIntegrityCheckError(final String input) {
+		String error = relation.getIntegrityCheckErrorMsg();
+		if (relation.getIntegrityCheckErrorPosition() >= 0) {
+			error += " (at character " + (relation.getIntegrityCheckErrorPosition() + 1) + " of the input " + input + ")";
+		}
+		displayError(error);
+	}
+	
 	private void clearError() {
 		errorLabel.setText("");
 		errorLabel.setVisible(false);
@@ -565,6 +757,10 @@ public class RelationalDatabaseTools implements EntryPoint {
 	}
 	
 	private void resetDisplay() {
+		cancelAnalysis(null);
+		liveUpdateTimer.cancel();
+		liveRelation = null;
+		hideLiveResults();
 		clearInput();
 		clearOutput();
 		clearError();
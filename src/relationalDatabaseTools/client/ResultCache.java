@@ -0,0 +1,330 @@
+package relationalDatabaseTools.client;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Least recently used cache of analysis reports, recorded as
+ * {@link SerializedOutput} entries and keyed by the fingerprint of their
+ * {@link CanonicalInput}. Reports are kept in memory and, if a {@link Store}
+ * is given, also in the store (the browser's local storage), so that they
+ * survive reloading the page. Both hold at most the cache's capacity of
+ * reports; reports longer than {@link #MAX_STORED_LENGTH} characters are only
+ * kept in memory. A store that fails, for example because its quota is
+ * exceeded, is treated as not holding the report.
+ *
+ * Stored reports are keyed by a 64-bit hash of the fingerprint, and each
+ * starts with its full fingerprint, which is compared on loading. They belong
+ * to the build that recorded them: the cache is given a build token, such as
+ * the permutation's strong name, and the stored reports of any other build are
+ * removed when the cache is created, since their text may be out of date.
+ * @author Raymond Cho
+ *
+ */
+public class ResultCache {
+	public static final int DEFAULT_CAPACITY = 16;
+	/**
+	 * Maximum number of characters of a report kept in the store.
+	 */
+	public static final int MAX_STORED_LENGTH = 1 << 20;
+
+	private static final String KEY_PREFIX = "relationalDatabaseTools.results.";
+	private static final String INDEX_KEY = KEY_PREFIX + "index";
+	private static final String BUILD_KEY = KEY_PREFIX + "build";
+	private static final String INDEX_SEPARATOR = "\n";
+	/**
+	 * Layout before stored reports were tied to a build, removed on sight.
+	 */
+	private static final String OLD_KEY_PREFIX = KEY_PREFIX + "v1.";
+
+	/**
+	 * Persistent string storage, such as the browser's local storage.
+	 */
+	public interface Store {
+		/**
+		 * @return Value of the key, or null if there is none.
+		 */
+		String getItem(String key);
+
+		void setItem(String key, String value);
+
+		void removeItem(String key);
+	}
+
+	private final int capacity;
+	private final Store store;
+	private final Map<String, List<String>> reports;
+
+	/**
+	 * @param capacity
+	 *            Maximum number of reports kept, at least 1.
+	 * @param store
+	 *            Persistent storage of the reports (may be null).
+	 * @param build
+	 *            Token of the build whose reports the store may hold.
+	 */
+	public ResultCache(final int capacity, final Store store, final String build) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1.");
+		}
+		if (store != null && build == null) {
+			throw new IllegalArgumentException("Input build is null.");
+		}
+		this.capacity = capacity;
+		this.store = store;
+		this.reports = new LinkedHashMap<String, List<String>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, List<String>> eldest) {
+				return size() > ResultCache.this.capacity;
+			}
+		};
+		if (store != null) {
+			removeOtherBuilds(build);
+		}
+	}
+
+	/**
+	 * @param capacity
+	 *            Maximum number of reports kept, at least 1.
+	 */
+	public ResultCache(final int capacity) {
+		this(capacity, null, null);
+	}
+
+	/**
+	 * @param fingerprint
+	 *            Fingerprint of the canonical input.
+	 * @return Recorded report, or null if it is not cached.
+	 */
+	public List<String> get(final String fingerprint) {
+		List<String> report = reports.get(fingerprint);
+		if (report == null && store != null) {
+			report = load(fingerprint);
+			if (report != null) {
+				reports.put(fingerprint, report);
+			}
+		}
+		if (report != null && store != null) {
+			touch(hash(fingerprint), true);
+		}
+		return report;
+	}
+
+	/**
+	 * @param fingerprint
+	 *            Fingerprint of the canonical input.
+	 * @param report
+	 *            Recorded report.
+	 */
+	public void put(final String fingerprint, final List<String> report) {
+		if (fingerprint == null || report == null) {
+			throw new IllegalArgumentException("Input fingerprint or report is null.");
+		}
+		reports.put(fingerprint, report);
+		if (store == null) {
+			return;
+		}
+		List<String> entries = new ArrayList<>();
+		entries.add(fingerprint);
+		entries.addAll(report);
+		String encoded = encode(entries);
+		String id = hash(fingerprint);
+		boolean stored = false;
+		if (encoded.length() <= MAX_STORED_LENGTH) {
+			try {
+				store.setItem(KEY_PREFIX + id, encoded);
+				stored = true;
+			} catch (RuntimeException e) {
+				removeStored(id);
+			}
+		}
+		touch(id, stored);
+	}
+
+	/**
+	 * @return Number of reports in memory.
+	 */
+	public int size() {
+		return reports.size();
+	}
+
+	/**
+	 * Removes every report, from memory and from the store.
+	 */
+	public void clear() {
+		reports.clear();
+		if (store == null) {
+			return;
+		}
+		for (String id : readIndex()) {
+			removeStored(id);
+		}
+		removeStored(null);
+	}
+
+	/**
+	 * Removes the stored reports unless they were recorded by the given build,
+	 * and records the build.
+	 */
+	private void removeOtherBuilds(final String build) {
+		String storedBuild;
+		try {
+			storedBuild = store.getItem(BUILD_KEY);
+		} catch (RuntimeException e) {
+			return;
+		}
+		if (build.equals(storedBuild)) {
+			return;
+		}
+		for (String id : readIndex()) {
+			removeStored(id);
+		}
+		removeStored(null);
+		try {
+			String oldIndex = store.getItem(OLD_KEY_PREFIX + "index");
+			if (oldIndex != null) {
+				for (String fingerprint : oldIndex.split(INDEX_SEPARATOR)) {
+					store.removeItem(OLD_KEY_PREFIX + fingerprint);
+				}
+				store.removeItem(OLD_KEY_PREFIX + "index");
+			}
+			store.setItem(BUILD_KEY, build);
+		} catch (RuntimeException e) {
+			// Reports of other builds are looked for again next time.
+		}
+	}
+
+	private List<String> load(final String fingerprint) {
+		String id = hash(fingerprint);
+		String encoded;
+		try {
+			encoded = store.getItem(KEY_PREFIX + id);
+		} catch (RuntimeException e) {
+			return null;
+		}
+		if (encoded == null) {
+			return null;
+		}
+		List<String> entries = decode(encoded);
+		if (entries == null || entries.isEmpty()) {
+			removeStored(id);
+			touch(id, false);
+			return null;
+		}
+		if (!entries.get(0).equals(fingerprint)) {
+			// Another input with the same hash.
+			return null;
+		}
+		return new ArrayList<>(entries.subList(1, entries.size()));
+	}
+
+	/**
+	 * Moves the report's hash to the most recently used end of the stored index,
+	 * or removes it from the index, and evicts stored reports beyond the capacity.
+	 */
+	private void touch(final String id, final boolean stored) {
+		List<String> index = readIndex();
+		index.remove(id);
+		if (stored) {
+			index.add(id);
+		}
+		while (index.size() > capacity) {
+			removeStored(index.remove(0));
+		}
+		StringBuilder sb = new StringBuilder();
+		for (String i : index) {
+			if (sb.length() > 0) {
+				sb.append(INDEX_SEPARATOR);
+			}
+			sb.append(i);
+		}
+		try {
+			store.setItem(INDEX_KEY, sb.toString());
+		} catch (RuntimeException e) {
+			// The index is rebuilt from the reports touched later.
+		}
+	}
+
+	private List<String> readIndex() {
+		List<String> index = new ArrayList<>();
+		String stored;
+		try {
+			stored = store.getItem(INDEX_KEY);
+		} catch (RuntimeException e) {
+			return index;
+		}
+		if (stored == null || stored.isEmpty()) {
+			return index;
+		}
+		for (String id : stored.split(INDEX_SEPARATOR)) {
+			index.add(id);
+		}
+		return index;
+	}
+
+	/**
+	 * @param id
+	 *            Hash of the report to remove, or null to remove the index.
+	 */
+	private void removeStored(final String id) {
+		try {
+			store.removeItem(id == null ? INDEX_KEY : KEY_PREFIX + id);
+		} catch (RuntimeException e) {
+			// Nothing more can be done about a failing store.
+		}
+	}
+
+	/**
+	 * @return 64-bit FNV-1a hash of the fingerprint's characters, in hexadecimal.
+	 */
+	protected static String hash(final String fingerprint) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < fingerprint.length(); i++) {
+			hash ^= fingerprint.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return Long.toHexString(hash);
+	}
+
+	/**
+	 * @return Entries, each preceded by its length and a colon.
+	 */
+	protected static String encode(final List<String> report) {
+		StringBuilder sb = new StringBuilder();
+		for (String entry : report) {
+			sb.append(entry.length()).append(':').append(entry);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return Entries of the encoded report, or null if it is malformed.
+	 */
+	protected static List<String> decode(final String encoded) {
+		List<String> report = new ArrayList<>();
+		int position = 0;
+		while (position < encoded.length()) {
+			int colon = encoded.indexOf(':', position);
+			if (colon < 0) {
+				return null;
+			}
+			int length;
+			try {
+				length = Integer.parseInt(encoded.substring(position, colon));
+			} catch (NumberFormatException e) {
+				return null;
+			}
+			int end = colon + 1 + length;
+			if (length < 0 || end > encoded.length()) {
+				return null;
+			}
+			report.add(encoded.substring(colon + 1, end));
+			position = end;
+		}
+		return report;
+	}
+}
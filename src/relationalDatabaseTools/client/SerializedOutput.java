@@ -0,0 +1,120 @@
+package relationalDatabaseTools.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the text of an {@link AnalysisReport} as a list of strings, so that
+ * it can be posted from a Web Worker to the page and replayed there into
+ * another {@link AnalysisOutput}. Each entry starts with a character telling
+ * what it is: text on a new line, text on the current line, a major break, a
+ * minor break, or the beginning or end of a list. The recorded entries also
+ * serve as the cached form of a report (see {@link ResultCache}).
+ * @author Raymond Cho
+ *
+ */
+public class SerializedOutput implements AnalysisOutput {
+	private static final char NEW_LINE = 'n';
+	private static final char SAME_LINE = 's';
+	private static final char MAJOR_BREAK = 'M';
+	private static final char MINOR_BREAK = 'm';
+	private static final char BEGIN_LIST = '[';
+	private static final char END_LIST = ']';
+	
+	private final AnalysisOutput forward;
+	private List<String> entries = new ArrayList<>();
+	
+	public SerializedOutput() {
+		this(null);
+	}
+	
+	/**
+	 * @param forward
+	 *            Output that also receives everything as it is recorded (may be null).
+	 */
+	public SerializedOutput(final AnalysisOutput forward) {
+		this.forward = forward;
+	}
+	
+	@Override
+	public void append(final String text, final boolean newLine) {
+		entries.add((newLine ? NEW_LINE : SAME_LINE) + text);
+		if (forward != null) {
+			forward.append(text, newLine);
+		}
+	}
+	
+	@Override
+	public void appendMajorBreak() {
+		entries.add(String.valueOf(MAJOR_BREAK));
+		if (forward != null) {
+			forward.appendMajorBreak();
+		}
+	}
+	
+	@Override
+	public void appendMinorBreak() {
+		entries.add(String.valueOf(MINOR_BREAK));
+		if (forward != null) {
+			forward.appendMinorBreak();
+		}
+	}
+	
+	@Override
+	public void beginList() {
+		entries.add(String.valueOf(BEGIN_LIST));
+		if (forward != null) {
+			forward.beginList();
+		}
+	}
+	
+	@Override
+	public void endList() {
+		entries.add(String.valueOf(END_LIST));
+		if (forward != null) {
+			forward.endList();
+		}
+	}
+	
+	/**
+	 * @return Entries recorded since the last call, which are no longer kept.
+	 */
+	public List<String> takeEntries() {
+		List<String> taken = entries;
+		entries = new ArrayList<>();
+		return taken;
+	}
+	
+	/**
+	 * Writes one recorded entry to the output.
+	 * @param entry
+	 * @param output
+	 */
+	public static void replay(final String entry, final AnalysisOutput output) {
+		if (entry == null || entry.isEmpty()) {
+			throw new IllegalArgumentException("Input entry is null or empty.");
+		}
+		switch (entry.charAt(0)) {
+		case NEW_LINE:
+			output.append(entry.substring(1), true);
+			break;
+		case SAME_LINE:
+			output.append(entry.substring(1), false);
+			break;
+		case MAJOR_BREAK:
+			output.appendMajorBreak();
+			break;
+		case MINOR_BREAK:
+			output.appendMinorBreak();
+			break;
+		case BEGIN_LIST:
+			output.beginList();
+			break;
+		case END_LIST:
+			output.endList();
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown output entry: " + entry);
+		}
+	}
+}
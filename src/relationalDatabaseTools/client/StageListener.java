@@ -0,0 +1,38 @@
+package relationalDatabaseTools.client;
+
+/**
+ * Notified when an analysis stage or a step of a decomposition starts and ends,
+ * on the thread that runs it, so that the JVM tools can show the pipeline in a
+ * profiler timeline. Installed with
+ * {@link AnalysisMetrics#setStageListener(StageListener)}.
+ * @author Raymond Cho
+ *
+ */
+public interface StageListener {
+
+	StageListener NONE = new StageListener() {
+		@Override
+		public Object stageStarted(final String stage, final int attributeCount, final int fdCount, final int depth) {
+			return null;
+		}
+
+		@Override
+		public void stageEnded(final Object token) {
+		}
+	};
+
+	/**
+	 * @param stage
+	 *            Name of the stage, as in the metrics, or of the decomposition step.
+	 * @param attributeCount
+	 *            Number of attributes of the relation the stage works on.
+	 * @param fdCount
+	 *            Number of input functional dependencies of that relation.
+	 * @param depth
+	 *            Nesting depth of the stage, or recursion depth of the step.
+	 * @return Token passed to {@link #stageEnded(Object)} when the stage ends.
+	 */
+	Object stageStarted(String stage, int attributeCount, int fdCount, int depth);
+
+	void stageEnded(Object token);
+}
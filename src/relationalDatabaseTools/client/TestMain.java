@@ -20,7 +20,7 @@ public class TestMain {
 		System.out.println("Input relation: " + relation.printRelation());
 		System.out.println("-------------");
 		CalculateClosure.improvedCalculateClosures(relation);
-		for (Closure c : relation.getClosures()) {
+		for (Closure c : relation.iterateClosures()) {
 			System.out.println(c.printCompleteClosure());
 		}
 		System.out.println("-------------");
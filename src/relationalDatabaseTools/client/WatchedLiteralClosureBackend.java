@@ -0,0 +1,161 @@
+package relationalDatabaseTools.client;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Closure as Horn-clause unit propagation with watched literals. Each functional
+ * dependency X -> Y is the definite Horn clause (X1 and ... and Xn) implies Y and
+ * is watched by one left-hand side attribute that is not yet in the closure. When
+ * a watched attribute enters the closure, only the dependencies on its watch list
+ * are visited: each either moves its watch to another attribute still outside the
+ * closure or fires. Because the head of a definite clause is never falsified, the
+ * second watch of the SAT formulation is not needed.
+ * <p>
+ * Watches are left where they are between queries. The propagation stays sound
+ * for any placement of watches, so a query never pays for resetting state it did
+ * not touch; per-query flags are invalidated by bumping an epoch counter.
+ * @author Raymond Cho
+ *
+ */
+public class WatchedLiteralClosureBackend implements ClosureBackend {
+
+	@Override
+	public String getName() {
+		return "watched";
+	}
+
+	@Override
+	public PreparedClosure prepare(final List<FunctionalDependency> givenFDs) {
+		return new Prepared(new ClosureIndex(givenFDs));
+	}
+
+	private static class Prepared implements PreparedClosure {
+		private final ClosureIndex index;
+		private final int[][] watches;
+		private final int[] watchCounts;
+		private final int[] unconditionalFDs;
+		private final int[] closedEpoch;
+		private final int[] firedEpoch;
+		private final int[] queue;
+		private int epoch;
+
+		private Prepared(final ClosureIndex index) {
+			this.index = index;
+			int attributeCount = index.getAttributeCount();
+			int fdCount = index.getFDCount();
+			this.watches = new int[attributeCount][];
+			this.watchCounts = new int[attributeCount];
+			int unconditional = 0;
+			for (int fd = 0; fd < fdCount; fd++) {
+				int[] left = index.getLeftSide(fd);
+				if (left.length == 0) {
+					unconditional++;
+				} else {
+					watchCounts[left[0]]++;
+				}
+			}
+			for (int a = 0; a < attributeCount; a++) {
+				watches[a] = new int[Math.max(watchCounts[a], 2)];
+				watchCounts[a] = 0;
+			}
+			this.unconditionalFDs = new int[unconditional];
+			unconditional = 0;
+			for (int fd = 0; fd < fdCount; fd++) {
+				int[] left = index.getLeftSide(fd);
+				if (left.length == 0) {
+					unconditionalFDs[unconditional++] = fd;
+				} else {
+					addWatch(left[0], fd);
+				}
+			}
+			this.closedEpoch = new int[attributeCount];
+			this.firedEpoch = new int[fdCount];
+			this.queue = new int[attributeCount];
+			this.epoch = 0;
+		}
+
+		private void addWatch(final int attribute, final int fd) {
+			int[] list = watches[attribute];
+			if (watchCounts[attribute] == list.length) {
+				int[] grown = new int[list.length * 2];
+				System.arraycopy(list, 0, grown, 0, list.length);
+				watches[attribute] = grown;
+				list = grown;
+			}
+			list[watchCounts[attribute]++] = fd;
+		}
+
+		@Override
+		public Closure calculateClosureOf(final List<Attribute> closureAttributes) {
+			if (closureAttributes == null || closureAttributes.isEmpty()) {
+				return null;
+			}
+			if (epoch == Integer.MAX_VALUE) {
+				Arrays.fill(closedEpoch, 0);
+				Arrays.fill(firedEpoch, 0);
+				epoch = 0;
+			}
+			epoch++;
+			int head = 0;
+			int tail = 0;
+			for (Attribute a : closureAttributes) {
+				int id = index.getAttributeId(a);
+				if (id >= 0 && closedEpoch[id] != epoch) {
+					closedEpoch[id] = epoch;
+					queue[tail++] = id;
+				}
+			}
+			for (int fd : unconditionalFDs) {
+				tail = fire(fd, tail);
+			}
+			long scanned = unconditionalFDs.length;
+			while (head < tail) {
+				int a = queue[head++];
+				int[] list = watches[a];
+				int i = 0;
+				while (i < watchCounts[a]) {
+					int fd = list[i];
+					scanned++;
+					if (firedEpoch[fd] == epoch) {
+						i++;
+						continue;
+					}
+					int unsatisfied = -1;
+					for (int b : index.getLeftSide(fd)) {
+						if (closedEpoch[b] != epoch) {
+							unsatisfied = b;
+							break;
+						}
+					}
+					if (unsatisfied >= 0) {
+						// Move the watch; the last entry takes this slot and is examined next.
+						list[i] = list[--watchCounts[a]];
+						addWatch(unsatisfied, fd);
+					} else {
+						tail = fire(fd, tail);
+						i++;
+					}
+				}
+			}
+			boolean[] closed = new boolean[closedEpoch.length];
+			for (int i = 0; i < tail; i++) {
+				closed[queue[i]] = true;
+			}
+			AnalysisMetrics.countClosures(1);
+			AnalysisMetrics.countFDsScanned(scanned);
+			return index.toClosure(closureAttributes, closed);
+		}
+
+		private int fire(final int fd, int tail) {
+			firedEpoch[fd] = epoch;
+			for (int b : index.getRightSide(fd)) {
+				if (closedEpoch[b] != epoch) {
+					closedEpoch[b] = epoch;
+					queue[tail++] = b;
+				}
+			}
+			return tail;
+		}
+	}
+}
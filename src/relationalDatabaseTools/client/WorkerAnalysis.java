@@ -0,0 +1,144 @@
+package relationalDatabaseTools.client;
+
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArrayString;
+
+/**
+ * Runs an {@link AnalysisReport} in a Web Worker, which loads the script of
+ * the AnalysisWorker module from the war directory, and replays the posted
+ * output on the page (see {@link AnalysisWorker} for the messages). Every
+ * analysis has its own worker, which is terminated once the analysis is done
+ * or cancelled, so that several analyses can run in parallel. The worker
+ * script is only there if the AnalysisWorker module was compiled along with
+ * the application (see benchmark/pom.xml for the build); a worker that fails
+ * before it has posted anything is reported as one that could not run, so
+ * that the page can calculate by itself instead.
+ * @author Raymond Cho
+ *
+ */
+public class WorkerAnalysis {
+	/**
+	 * Path of the worker script, relative to the host page.
+	 */
+	public static final String SCRIPT_PATH = "analysisworker/analysisworker.worker.js";
+	
+	/**
+	 * Is told how the analysis in the worker proceeds.
+	 */
+	public interface Listener {
+		void onProgress(String progress);
+		
+		void onDone();
+		
+		/**
+		 * @param message
+		 *            Error message, or null if the worker could not run at all,
+		 *            for example because its script could not be loaded.
+		 */
+		void onError(String message);
+	}
+	
+	private final AnalysisOutput output;
+	private final Listener listener;
+	private JavaScriptObject worker;
+	private boolean responded;
+	
+	/**
+	 * @param output
+	 *            Receives the output of the report.
+	 * @param listener
+	 */
+	public WorkerAnalysis(final AnalysisOutput output, final Listener listener) {
+		if (output == null || listener == null) {
+			throw new IllegalArgumentException("Input output or listener is null.");
+		}
+		this.output = output;
+		this.listener = listener;
+	}
+	
+	/**
+	 * @return True if the browser supports Web Workers.
+	 */
+	public static native boolean isSupported() /*-{
+		return !!$wnd.Worker;
+	}-*/;
+	
+	/**
+	 * Starts a worker and posts the input to it.
+	 * @param completeRelation
+	 *            Relation schema as entered.
+	 * @param completeFDs
+	 *            Functional dependencies as entered.
+	 * @param completeMVDs
+	 *            Multivalued dependencies as entered.
+	 * @param canonicalBasisReport
+	 *            True to report the closed sets and the canonical basis instead
+	 *            of the derived functional dependencies.
+	 */
+	public void start(final String completeRelation, final String completeFDs, final String completeMVDs,
+			final boolean canonicalBasisReport) {
+		if (worker != null) {
+			throw new IllegalStateException("Worker analysis has already been started.");
+		}
+		worker = startWorker(GWT.getHostPageBaseURL() + SCRIPT_PATH, completeRelation, completeFDs, completeMVDs,
+				canonicalBasisReport ? AnalysisWorker.CANONICAL_BASIS : "");
+	}
+	
+	/**
+	 * Stops the worker; nothing more is written or reported afterwards.
+	 */
+	public void terminate() {
+		if (worker != null) {
+			terminateWorker(worker);
+			worker = null;
+		}
+	}
+	
+	private native JavaScriptObject startWorker(final String url, final String completeRelation, final String completeFDs,
+			final String completeMVDs, final String reportOption) /*-{
+		var analysis = this;
+		var worker = new $wnd.Worker(url);
+		worker.onmessage = $entry(function(event) {
+			analysis.@relationalDatabaseTools.client.WorkerAnalysis::onMessage(Lcom/google/gwt/core/client/JsArrayString;)(event.data);
+		});
+		worker.onerror = $entry(function(event) {
+			event.preventDefault();
+			analysis.@relationalDatabaseTools.client.WorkerAnalysis::onFailure(Ljava/lang/String;)(event.message);
+		});
+		worker.postMessage([ completeRelation, completeFDs, completeMVDs, reportOption ]);
+		return worker;
+	}-*/;
+	
+	private static native void terminateWorker(final JavaScriptObject worker) /*-{
+		worker.terminate();
+	}-*/;
+	
+	private void onMessage(final JsArrayString message) {
+		if (worker == null) {
+			return;
+		}
+		responded = true;
+		String type = message.get(0);
+		if (AnalysisWorker.OUTPUT.equals(type)) {
+			for (int i = 1; i < message.length(); i++) {
+				SerializedOutput.replay(message.get(i), output);
+			}
+		} else if (AnalysisWorker.PROGRESS.equals(type)) {
+			listener.onProgress(message.get(1));
+		} else if (AnalysisWorker.DONE.equals(type)) {
+			terminate();
+			listener.onDone();
+		} else if (AnalysisWorker.ERROR.equals(type)) {
+			onFailure(message.get(1));
+		}
+	}
+	
+	private void onFailure(final String message) {
+		if (worker == null) {
+			return;
+		}
+		terminate();
+		listener.onError(responded ? message : null);
+	}
+}
@@ -0,0 +1,18 @@
+package relationalDatabaseTools.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One call of an analysis stage, such as closure enumeration or key calculation.
+ * @author Raymond Cho
+ *
+ */
+@Name("relationalDatabaseTools.AnalysisStage")
+@Label("Analysis Stage")
+@Category("Relational Database Tools")
+@Description("One call of a stage of the relation analysis pipeline")
+public class AnalysisStageEvent extends StageEvent {
+}
@@ -0,0 +1,18 @@
+package relationalDatabaseTools.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One recursive step of the BCNF decomposition, on one relation.
+ * @author Raymond Cho
+ *
+ */
+@Name("relationalDatabaseTools.DecompositionStep")
+@Label("BCNF Decomposition Step")
+@Category("Relational Database Tools")
+@Description("One recursive step of the BCNF decomposition")
+public class DecompositionStepEvent extends StageEvent {
+}
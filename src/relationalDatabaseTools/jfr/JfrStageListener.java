@@ -0,0 +1,49 @@
+package relationalDatabaseTools.jfr;
+
+import relationalDatabaseTools.client.AnalysisMetrics;
+import relationalDatabaseTools.client.CalculateBCNFDecomposition;
+import relationalDatabaseTools.client.StageListener;
+
+/**
+ * Emits a Java Flight Recorder event for every analysis stage and every BCNF
+ * decomposition step, with the relation's attribute count, functional dependency
+ * count and the nesting or recursion depth, so that slow analyses can be lined
+ * up with garbage collection and allocation in the recording's timeline. Events
+ * are only recorded while a recording with them enabled is running, for example
+ * with -XX:StartFlightRecording; otherwise the cost is one disabled event object
+ * per stage. Requires JDK 11 or later.
+ * @author Raymond Cho
+ *
+ */
+public class JfrStageListener implements StageListener {
+
+	/**
+	 * Installs the listener for all analyses.
+	 */
+	public static void install() {
+		AnalysisMetrics.setStageListener(new JfrStageListener());
+	}
+
+	@Override
+	public Object stageStarted(final String stage, final int attributeCount, final int fdCount, final int depth) {
+		StageEvent event = CalculateBCNFDecomposition.DECOMPOSITION_STEP.equals(stage)
+				? new DecompositionStepEvent()
+				: new AnalysisStageEvent();
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.stage = stage;
+		event.attributeCount = attributeCount;
+		event.fdCount = fdCount;
+		event.depth = depth;
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void stageEnded(final Object token) {
+		if (token != null) {
+			((StageEvent) token).commit();
+		}
+	}
+}
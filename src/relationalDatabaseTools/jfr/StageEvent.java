@@ -0,0 +1,23 @@
+package relationalDatabaseTools.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * Fields shared by the analysis events.
+ * @author Raymond Cho
+ *
+ */
+abstract class StageEvent extends Event {
+	@Label("Stage")
+	String stage;
+
+	@Label("Attribute Count")
+	int attributeCount;
+
+	@Label("Functional Dependency Count")
+	int fdCount;
+
+	@Label("Depth")
+	int depth;
+}
@@ -0,0 +1,63 @@
+package relationalDatabaseTools.linker;
+
+import java.util.SortedSet;
+
+import com.google.gwt.core.ext.LinkerContext;
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.core.ext.linker.AbstractLinker;
+import com.google.gwt.core.ext.linker.ArtifactSet;
+import com.google.gwt.core.ext.linker.CompilationResult;
+import com.google.gwt.core.ext.linker.LinkerOrder;
+
+/**
+ * Links a module into a single script that a Web Worker can load, named
+ * [module].worker.js. The standard linkers load the compiled code through the
+ * host page's document, which a worker does not have; this script binds the
+ * globals of the compiled code to the worker's global scope instead and starts
+ * the module's entry point directly. The module must compile to exactly one
+ * permutation and must not split its code.
+ * @author Raymond Cho
+ *
+ */
+@LinkerOrder(LinkerOrder.Order.PRIMARY)
+public class WorkerLinker extends AbstractLinker {
+	
+	@Override
+	public String getDescription() {
+		return "Web Worker";
+	}
+	
+	@Override
+	public ArtifactSet link(final TreeLogger logger, final LinkerContext context, final ArtifactSet artifacts)
+			throws UnableToCompleteException {
+		SortedSet<CompilationResult> results = artifacts.find(CompilationResult.class);
+		if (results.size() != 1) {
+			logger.log(TreeLogger.ERROR, "Module " + context.getModuleName() + " must compile to exactly one permutation "
+					+ "to run in a Web Worker, but has " + results.size() + ".");
+			throw new UnableToCompleteException();
+		}
+		String[] javaScript = results.first().getJavaScript();
+		if (javaScript.length != 1) {
+			logger.log(TreeLogger.ERROR, "Module " + context.getModuleName() + " must not split its code to run in a Web Worker.");
+			throw new UnableToCompleteException();
+		}
+		StringBuilder script = new StringBuilder();
+		script.append("(function() {\n");
+		script.append("var $wnd = self;\n");
+		script.append("var $doc = self;\n");
+		script.append("var $moduleName = '").append(context.getModuleName()).append("';\n");
+		script.append("var $moduleBase = self.location.href.substring(0, self.location.href.lastIndexOf('/') + 1);\n");
+		script.append("var $gwt_version = '';\n");
+		script.append("var $strongName = '").append(results.first().getStrongName()).append("';\n");
+		script.append("var $stats = null;\n");
+		script.append("var $sessionId = null;\n");
+		script.append(javaScript[0]);
+		script.append("\ngwtOnLoad(null, $moduleName, $moduleBase, 0);\n");
+		script.append("})();\n");
+		
+		ArtifactSet linked = new ArtifactSet(artifacts);
+		linked.add(emitString(logger, script.toString(), context.getModuleName() + ".worker.js"));
+		return linked;
+	}
+}